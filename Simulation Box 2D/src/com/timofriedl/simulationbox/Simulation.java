@@ -1,6 +1,7 @@
 package com.timofriedl.simulationbox;
 
 import java.awt.Color;
+import java.awt.Graphics2D;
 
 import com.timofriedl.simulationbox.camera.Camera;
 import com.timofriedl.simulationbox.display.Window;
@@ -9,6 +10,8 @@ import com.timofriedl.simulationbox.gameloop.Renderable;
 import com.timofriedl.simulationbox.gameloop.Tickable;
 import com.timofriedl.simulationbox.input.KeyInput;
 import com.timofriedl.simulationbox.input.MouseInput;
+import com.timofriedl.simulationbox.object.MassObject;
+import com.timofriedl.simulationbox.world.World;
 
 /**
  * Inherit from this class to create your own simulation.
@@ -22,6 +25,18 @@ import com.timofriedl.simulationbox.input.MouseInput;
  * 
  * Just basic stuff for fun projects.
  * 
+ * Objects that are added to the {@link World} of a simulation are ticked and
+ * rendered by the default {@link #tick()} and {@link #render(Graphics2D)}
+ * methods. Simulations that keep their own objects override these methods.
+ * 
+ * Simulations created with {@link #Simulation()} are headless. They have no
+ * window, input or camera, can run on systems without a display and are run
+ * with {@link GameLoop#runTicks(long)} or
+ * {@link GameLoop#runUntil(java.util.function.Predicate)} as fast as possible.
+ * Simulations share no mutable state, so many headless simulations can run on
+ * different threads at the same time, e.g. with an
+ * {@link com.timofriedl.simulationbox.ensemble.Ensemble}.
+ * 
  * @author Timo Friedl
  */
 public abstract class Simulation implements Tickable, Renderable {
@@ -52,13 +67,35 @@ public abstract class Simulation implements Tickable, Renderable {
 	protected final KeyInput keyInput;
 
 	/**
-	 * Creates a new simulation instance.
+	 * the objects of this simulation
+	 */
+	protected final World world = new World();
+
+	/**
+	 * the gravity constant of this simulation in cube-units per (massUnit *
+	 * square tick)
+	 */
+	private double gravityConstant = MassObject.DEFAULT_G;
+
+	/**
+	 * Creates a new simulation instance that ticks and renders on one thread.
 	 * 
 	 * @param title   the window title
 	 * @param bgColor the background color of this simulation
-	 * @param camera  the simulation camera
 	 */
 	public Simulation(String title, Color bgColor) {
+		this(title, bgColor, false);
+	}
+
+	/**
+	 * Creates a new simulation instance.
+	 * 
+	 * @param title     the window title
+	 * @param bgColor   the background color of this simulation
+	 * @param decoupled true to tick and render on separate threads, see
+	 *                  {@link GameLoop}
+	 */
+	public Simulation(String title, Color bgColor, boolean decoupled) {
 		window = new Window(this, title, bgColor);
 		mouseInput = new MouseInput(this);
 		keyInput = new KeyInput(this);
@@ -66,7 +103,24 @@ public abstract class Simulation implements Tickable, Renderable {
 		camera = new Camera(this);
 
 		window.setVisible(true);
-		gameLoop.start();
+		gameLoop.start(decoupled);
+	}
+
+	/**
+	 * Creates a new headless simulation instance without window, input and
+	 * camera. The simulation is initialized by the first call of
+	 * {@link GameLoop#runTicks(long)} or
+	 * {@link GameLoop#runUntil(java.util.function.Predicate)}.
+	 */
+	public Simulation() {
+		window = null;
+		mouseInput = null;
+		keyInput = null;
+		camera = null;
+		gameLoop = new GameLoop(this);
+
+		// nothing is rendered, so the culling boxes are not needed
+		world.setCulling(false);
 	}
 
 	/**
@@ -75,7 +129,31 @@ public abstract class Simulation implements Tickable, Renderable {
 	public abstract void init();
 
 	/**
-	 * @return the window instance
+	 * Ticks the {@link World} of this simulation.
+	 */
+	@Override
+	public void tick() {
+		world.tick();
+	}
+
+	/**
+	 * Renders the objects of the {@link World} of this simulation that are
+	 * visible by the camera.
+	 */
+	@Override
+	public void render(Graphics2D g) {
+		world.render(g, camera);
+	}
+
+	/**
+	 * @return true if this simulation has no window, input and camera
+	 */
+	public boolean isHeadless() {
+		return window == null;
+	}
+
+	/**
+	 * @return the window instance, or null if this simulation is headless
 	 */
 	public Window getWindow() {
 		return window;
@@ -89,24 +167,49 @@ public abstract class Simulation implements Tickable, Renderable {
 	}
 
 	/**
-	 * @return the simulation camera
+	 * @return the simulation camera, or null if this simulation is headless
 	 */
 	public Camera getCamera() {
 		return camera;
 	}
 
 	/**
-	 * @return the reference to the mouse input
+	 * @return the reference to the mouse input, or null if this simulation is
+	 *         headless
 	 */
 	public MouseInput getMouseInput() {
 		return mouseInput;
 	}
 
 	/**
-	 * @return the reference to the key input
+	 * @return the reference to the key input, or null if this simulation is
+	 *         headless
 	 */
 	public KeyInput getKeyInput() {
 		return keyInput;
 	}
 
+	/**
+	 * @return the objects of this simulation
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * @return the gravity constant of this simulation in cube-units per
+	 *         (massUnit * square tick)
+	 */
+	public double getGravityConstant() {
+		return gravityConstant;
+	}
+
+	/**
+	 * @param gravityConstant the new gravity constant of this simulation in
+	 *                        cube-units per (massUnit * square tick)
+	 */
+	public void setGravityConstant(double gravityConstant) {
+		this.gravityConstant = gravityConstant;
+	}
+
 }
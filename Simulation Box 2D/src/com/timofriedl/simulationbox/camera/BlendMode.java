@@ -0,0 +1,24 @@
+package com.timofriedl.simulationbox.camera;
+
+/**
+ * The ways a {@link RasterBuffer} combines the color of a shape with the
+ * pixels below it.
+ * 
+ * @author Timo Friedl
+ */
+public enum BlendMode {
+
+	/**
+	 * the color is drawn over the pixels, weighted by its alpha value and the
+	 * coverage of each pixel
+	 */
+	OVER,
+
+	/**
+	 * the color is added to the pixels, weighted by its alpha value and the
+	 * coverage of each pixel, so many faint particles in one place add up to a
+	 * bright spot
+	 */
+	ADD;
+
+}
@@ -1,7 +1,11 @@
 package com.timofriedl.simulationbox.camera;
 
 import java.awt.BasicStroke;
+import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.RenderingHints;
+import java.awt.Shape;
 import java.awt.Stroke;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseWheelListener;
@@ -11,10 +15,12 @@ import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.HashMap;
 
 import com.timofriedl.simulationbox.Simulation;
 import com.timofriedl.simulationbox.display.Window;
 import com.timofriedl.simulationbox.gameloop.Tickable;
+import com.timofriedl.simulationbox.vector.MutableVector2D;
 import com.timofriedl.simulationbox.vector.Vector2D;
 
 /**
@@ -26,29 +32,40 @@ import com.timofriedl.simulationbox.vector.Vector2D;
 public class Camera implements Tickable {
 
 	/**
-	 * the speed of the camera animations
+	 * the default speed of the camera animations
 	 */
-	public static double ANIMATION_SPEED = 0.15;
+	public static final double DEFAULT_ANIMATION_SPEED = 0.15;
 
 	/**
-	 * the speed of the camera zoom
+	 * the default speed of the camera zoom
 	 */
-	public static double ZOOM_SPEED = 0.1;
+	public static final double DEFAULT_ZOOM_SPEED = 0.1;
 
 	/**
-	 * the minimum and maximum zoom factor
+	 * the default minimum and maximum zoom factor
 	 */
-	public static double MIN_ZOOM = 0.001, MAX_ZOOM = 1.0;
+	public static final double DEFAULT_MIN_ZOOM = 0.001, DEFAULT_MAX_ZOOM = 1.0;
 
 	/**
-	 * the numer of different rotation angles
+	 * the default number of different rotation angles
 	 */
-	public static int ROTATION_STEPS = 60;
+	public static final int DEFAULT_ROTATION_STEPS = 60;
 
 	/**
-	 * the WASD-Key camera speed
+	 * the default WASD-Key camera speed
+	 */
+	public static final double DEFAULT_MOVING_SPEED = 20.0;
+
+	/**
+	 * the default onscreen sizes in pixels below which objects are splatted
+	 * into the density map, drawn as points, and drawn as squares
+	 */
+	public static final double DEFAULT_SPLAT_SIZE = 1.0, DEFAULT_POINT_SIZE = 2.0, DEFAULT_SQUARE_SIZE = 4.0;
+
+	/**
+	 * the number of cached line widths per doubling of the width
 	 */
-	public static double MOVING_SPEED = 20.0;
+	private static final int STROKE_STEPS_PER_OCTAVE = 8;
 
 	/**
 	 * the rectangle that describes the dimensions of the window
@@ -61,15 +78,40 @@ public class Camera implements Tickable {
 	 */
 	private Simulation simulation;
 
+	/**
+	 * the speed of the camera animations
+	 */
+	private double animationSpeed = DEFAULT_ANIMATION_SPEED;
+
+	/**
+	 * the speed of the camera zoom
+	 */
+	private double zoomSpeed = DEFAULT_ZOOM_SPEED;
+
+	/**
+	 * the minimum and maximum zoom factor
+	 */
+	private double minZoom = DEFAULT_MIN_ZOOM, maxZoom = DEFAULT_MAX_ZOOM;
+
+	/**
+	 * the number of different rotation angles
+	 */
+	private int rotationSteps = DEFAULT_ROTATION_STEPS;
+
+	/**
+	 * the WASD-Key camera speed
+	 */
+	private double movingSpeed = DEFAULT_MOVING_SPEED;
+
 	/**
 	 * the current center position of this cam
 	 */
-	private Vector2D position = Vector2D.ZERO;
+	private final MutableVector2D position = new MutableVector2D();
 
 	/**
 	 * the aimed camera center position
 	 */
-	private Vector2D positionAim = Vector2D.ZERO;
+	private final MutableVector2D positionAim = new MutableVector2D();
 
 	/**
 	 * the current zoom factor of this cam
@@ -77,7 +119,7 @@ public class Camera implements Tickable {
 	 * zoom = 1.0 => 1.0 units = 1px on screen</br>
 	 * zoom = 2.0 => 1.0 units = 2px on screen
 	 */
-	private double zoom = MIN_ZOOM;
+	private double zoom = DEFAULT_MIN_ZOOM;
 
 	/**
 	 * the aimed camera zoom
@@ -105,6 +147,101 @@ public class Camera implements Tickable {
 	 */
 	private double rotationAim = 0.0;
 
+	/**
+	 * the world to screen transform of the current camera state, a 2x3 affine
+	 * matrix stored row by row
+	 */
+	private double m00, m01, m02, m10, m11, m12;
+
+	/**
+	 * the screen to world transform of the current camera state, the inverse of
+	 * the world to screen transform
+	 */
+	private double i00, i01, i02, i10, i11, i12;
+
+	/**
+	 * the cosine and sine of the current camera rotation
+	 */
+	private double cos = 1.0, sin = 0.0;
+
+	/**
+	 * the cached line strokes by their quantized onscreen width
+	 */
+	private final HashMap<Integer, BasicStroke> strokes = new HashMap<>();
+
+	/**
+	 * the onscreen width of the last line
+	 */
+	private double lastStrokeWidth = Double.NaN;
+
+	/**
+	 * the stroke of the last line
+	 */
+	private BasicStroke lastStroke;
+
+	/**
+	 * the shapes of the current batched layer
+	 */
+	private final RenderBatch batch = new RenderBatch();
+
+	/**
+	 * the number of batched layers that have begun but not ended
+	 */
+	private int batchDepth;
+
+	/**
+	 * true if the shapes of the current layers are collected in the batch
+	 */
+	private boolean batching;
+
+	/**
+	 * the framebuffer that circles, lines and points are drawn into, null to
+	 * draw on the {@link Graphics2D} of the window
+	 */
+	private RasterBuffer raster;
+
+	/**
+	 * true if small objects are drawn with simplified shapes
+	 */
+	private boolean levelOfDetail;
+
+	/**
+	 * the onscreen sizes in pixels below which objects are splatted into the
+	 * density map, drawn as points, and drawn as squares
+	 */
+	private double splatSize = DEFAULT_SPLAT_SIZE, pointSize = DEFAULT_POINT_SIZE, squareSize = DEFAULT_SQUARE_SIZE;
+
+	/**
+	 * the accumulation buffer for objects below the splat size, created on the
+	 * first splat
+	 */
+	private DensityMap densityMap;
+
+	/**
+	 * the reusable onscreen square for simplified objects
+	 */
+	private final Rectangle2D.Double square = new Rectangle2D.Double();
+
+	/**
+	 * the reusable onscreen position for rendering
+	 */
+	private final MutableVector2D screenPosition = new MutableVector2D();
+
+	/**
+	 * the reusable onscreen circle for rendering
+	 */
+	private final Ellipse2D.Double circle = new Ellipse2D.Double();
+
+	/**
+	 * the reusable onscreen line for rendering
+	 */
+	private final Line2D.Double line = new Line2D.Double();
+
+	/**
+	 * the reusable onscreen polygon for rendering
+	 */
+	private final Path2D.Double polygon = new Path2D.Double();
+
 	/**
 	 * Creates a new camera instance.#
 	 * 
@@ -115,6 +252,8 @@ public class Camera implements Tickable {
 
 		simulation.getWindow().getCanvas().addMouseWheelListener(zoomListener);
 		simulation.getWindow().getCanvas().addMouseWheelListener(rotationListener);
+
+		updateTransform();
 	}
 
 	@Override
@@ -128,8 +267,8 @@ public class Camera implements Tickable {
 	 */
 	private MouseWheelListener zoomListener = e -> {
 		if (!simulation.getKeyInput().getPressed()[KeyEvent.VK_CONTROL]) {
-			zoomAim += -ZOOM_SPEED * e.getPreciseWheelRotation() * zoom;
-			zoomAim = Math.min(Math.max(MIN_ZOOM, zoomAim), MAX_ZOOM);
+			zoomAim += -zoomSpeed * e.getPreciseWheelRotation() * zoom;
+			zoomAim = Math.min(Math.max(minZoom, zoomAim), maxZoom);
 		}
 	};
 
@@ -138,7 +277,7 @@ public class Camera implements Tickable {
 	 */
 	private MouseWheelListener rotationListener = e -> {
 		if (simulation.getKeyInput().getPressed()[KeyEvent.VK_CONTROL])
-			rotationAim += e.getPreciseWheelRotation() / ROTATION_STEPS * 2.0 * Math.PI;
+			rotationAim += e.getPreciseWheelRotation() / rotationSteps * 2.0 * Math.PI;
 	};
 
 	/**
@@ -152,21 +291,74 @@ public class Camera implements Tickable {
 		final boolean s = pressed[KeyEvent.VK_S];
 		final boolean d = pressed[KeyEvent.VK_D];
 
-		Vector2D moveDirection = new Vector2D((a ? -1.0 : 0.0) + (d ? 1.0 : 0.0), (w ? -1.0 : 0.0) + (s ? 1.0 : 0.0))
-				.rotate(rotation);
-		if (moveDirection.squareLength() != 0.0)
-			moveDirection = moveDirection.scaleTo(MOVING_SPEED / zoom);
+		final double dx = (a ? -1.0 : 0.0) + (d ? 1.0 : 0.0);
+		final double dy = (w ? -1.0 : 0.0) + (s ? 1.0 : 0.0);
+		if (dx == 0.0 && dy == 0.0)
+			return;
 
-		positionAim = positionAim.add(moveDirection);
+		final double scale = movingSpeed / zoom / Math.sqrt(dx * dx + dy * dy);
+
+		positionAim.add((dx * cos - dy * sin) * scale, (dx * sin + dy * cos) * scale);
 	}
 
 	/**
 	 * Calculates the camera moving, zooming, and rotating.
 	 */
 	private void move() {
-		position = position.add(positionAim.subtract(position).scale(ANIMATION_SPEED));
-		zoom += ANIMATION_SPEED * (zoomAim - zoom);
-		rotation += ANIMATION_SPEED * (rotationAim - rotation);
+		position.add((positionAim.getX() - position.getX()) * animationSpeed,
+				(positionAim.getY() - position.getY()) * animationSpeed);
+		zoom += animationSpeed * (zoomAim - zoom);
+		rotation += animationSpeed * (rotationAim - rotation);
+		updateTransform();
+	}
+
+	/**
+	 * Calculates the world to screen transform and its inverse for the current
+	 * position, zoom and rotation, so the points of a frame are transformed
+	 * without trigonometric functions.
+	 */
+	private void updateTransform() {
+		cos = Math.cos(rotation);
+		sin = Math.sin(rotation);
+
+		// screen = rotate(world - position, -rotation) * zoom + screen center
+		m00 = cos * zoom;
+		m01 = sin * zoom;
+		m10 = -sin * zoom;
+		m11 = cos * zoom;
+		m02 = Window.WIDTH * 0.5 - m00 * position.getX() - m01 * position.getY();
+		m12 = Window.HEIGHT * 0.5 - m10 * position.getX() - m11 * position.getY();
+
+		// world = rotate(screen - screen center, rotation) / zoom + position
+		i00 = cos / zoom;
+		i01 = -sin / zoom;
+		i10 = sin / zoom;
+		i11 = cos / zoom;
+		i02 = position.getX() - i00 * Window.WIDTH * 0.5 - i01 * Window.HEIGHT * 0.5;
+		i12 = position.getY() - i10 * Window.WIDTH * 0.5 - i11 * Window.HEIGHT * 0.5;
+	}
+
+	/**
+	 * Converts an ingame position to an onscreen position.
+	 * 
+	 * @param ingameX the x position in the simulation
+	 * @param ingameY the y position in the simulation
+	 * @param dst     the vector to store the position on the screen in
+	 * @return <code>dst</code>
+	 */
+	private MutableVector2D toPositionOnScreen(double ingameX, double ingameY, MutableVector2D dst) {
+		return dst.set(m00 * ingameX + m01 * ingameY + m02, m10 * ingameX + m11 * ingameY + m12);
+	}
+
+	/**
+	 * Converts an ingame position to an onscreen position.
+	 * 
+	 * @param ingamePosition the position in the simulation
+	 * @param dst            the vector to store the position on the screen in
+	 * @return <code>dst</code>
+	 */
+	private MutableVector2D toPositionOnScreen(Vector2D ingamePosition, MutableVector2D dst) {
+		return toPositionOnScreen(ingamePosition.getX(), ingamePosition.getY(), dst);
 	}
 
 	/**
@@ -176,34 +368,233 @@ public class Camera implements Tickable {
 	 * @return the position on the screen
 	 */
 	private Vector2D toPositionOnScreen(Vector2D ingamePosition) {
-		return ingamePosition.subtract(position).rotate(-rotation).scale(zoom)
-				.add(new Vector2D(Window.WIDTH / 2.0, Window.HEIGHT / 2.0));
+		return toPositionOnScreen(ingamePosition, new MutableVector2D()).toVector2D();
 	}
 
 	/**
-	 * Creates a new {@link BasicStroke} instance, representing the line width on
-	 * screen that matches the ingame line width.
+	 * Converts many ingame positions to onscreen positions in one pass, e.g.
+	 * the positions of a {@link com.timofriedl.simulationbox.physics.BodyStore}.
+	 * The source and destination arrays may be the same.
+	 * 
+	 * @param n       the number of positions
+	 * @param ingameX the x positions in the simulation
+	 * @param ingameY the y positions in the simulation
+	 * @param screenX the array to store the x positions on the screen in
+	 * @param screenY the array to store the y positions on the screen in
+	 */
+	public void toScreen(int n, double[] ingameX, double[] ingameY, double[] screenX, double[] screenY) {
+		final double m00 = this.m00, m01 = this.m01, m02 = this.m02;
+		final double m10 = this.m10, m11 = this.m11, m12 = this.m12;
+
+		for (int i = 0; i < n; i++) {
+			final double x = ingameX[i], y = ingameY[i];
+			screenX[i] = m00 * x + m01 * y + m02;
+			screenY[i] = m10 * x + m11 * y + m12;
+		}
+	}
+
+	/**
+	 * Converts an ingame position to an onscreen position.
+	 * 
+	 * @param ingameX the x position in the simulation
+	 * @param ingameY the y position in the simulation
+	 * @param dst     the vector to store the position on the screen in
+	 * @return <code>dst</code>
+	 */
+	public MutableVector2D toScreen(double ingameX, double ingameY, MutableVector2D dst) {
+		return toPositionOnScreen(ingameX, ingameY, dst);
+	}
+
+	/**
+	 * Converts an onscreen position, e.g. of the mouse, to an ingame position.
+	 * 
+	 * @param screenX the x position on the screen
+	 * @param screenY the y position on the screen
+	 * @param dst     the vector to store the position in the simulation in
+	 * @return <code>dst</code>
+	 */
+	public MutableVector2D toIngame(double screenX, double screenY, MutableVector2D dst) {
+		return dst.set(i00 * screenX + i01 * screenY + i02, i10 * screenX + i11 * screenY + i12);
+	}
+
+	/**
+	 * @return a new {@link AffineTransform} that converts ingame positions to
+	 *         onscreen positions for the current camera state
+	 */
+	public AffineTransform getTransform() {
+		return new AffineTransform(m00, m10, m01, m11, m02, m12);
+	}
+
+	/**
+	 * @return a new {@link AffineTransform} that converts onscreen positions to
+	 *         ingame positions for the current camera state
+	 */
+	public AffineTransform getInverseTransform() {
+		return new AffineTransform(i00, i10, i01, i11, i02, i12);
+	}
+
+	/**
+	 * Calculates the ingame bounding box of the area that is visible on screen.
+	 * The box contains the whole rotated and zoomed window, so it can be used to
+	 * skip objects that are not visible before they are rendered.
+	 * 
+	 * @param dst the rectangle to store the bounds in
+	 * @return <code>dst</code>
+	 */
+	public Rectangle2D.Double getViewBounds(Rectangle2D.Double dst) {
+		final double halfWidth = Window.WIDTH * 0.5 / zoom, halfHeight = Window.HEIGHT * 0.5 / zoom;
+		final double cos = Math.abs(this.cos), sin = Math.abs(this.sin);
+		final double extentX = cos * halfWidth + sin * halfHeight, extentY = sin * halfWidth + cos * halfHeight;
+
+		dst.setRect(position.getX() - extentX, position.getY() - extentY, 2.0 * extentX, 2.0 * extentY);
+		return dst;
+	}
+
+	/**
+	 * Finds the {@link BasicStroke} that represents the line width on screen
+	 * that matches the ingame line width. The width is rounded to one of eight
+	 * steps per doubling, so lines of similar widths share one cached stroke.
 	 * 
 	 * @param ingameLineWidth the ingame line width
 	 * @return the onscreen stroke instance
 	 */
 	private Stroke createLineStroke(double ingameLineWidth) {
-		return new BasicStroke((float) (ingameLineWidth * zoom));
+		final double width = ingameLineWidth * zoom;
+		if (width == lastStrokeWidth)
+			return lastStroke;
+
+		final int step = width > 0.0 ? (int) Math.round(STROKE_STEPS_PER_OCTAVE * Math.log(width) / Math.log(2.0))
+				: Integer.MIN_VALUE;
+		BasicStroke stroke = strokes.get(step);
+		if (stroke == null) {
+			stroke = new BasicStroke(
+					step == Integer.MIN_VALUE ? 0f : (float) Math.pow(2.0, (double) step / STROKE_STEPS_PER_OCTAVE));
+			strokes.put(step, stroke);
+		}
+
+		lastStrokeWidth = width;
+		lastStroke = stroke;
+		return stroke;
+	}
+
+	/**
+	 * Draws the outline of an onscreen shape on the window or into the raster
+	 * buffer, or adds it to the batch of the current layer.
+	 * 
+	 * @param g               the {@link Graphics2D} to draw on
+	 * @param shape           the onscreen shape
+	 * @param ingameLineWidth the ingame width of the outline
+	 */
+	private void draw(Graphics2D g, Shape shape, double ingameLineWidth) {
+		final Stroke stroke = createLineStroke(ingameLineWidth);
+
+		if (batching) {
+			batch.draw(raster != null ? raster.getGraphics() : g, g.getPaint(), stroke, shape);
+		} else if (raster != null) {
+			raster.draw(g.getPaint(), stroke, shape);
+		} else {
+			g.setStroke(stroke);
+			g.draw(shape);
+		}
+	}
+
+	/**
+	 * Fills an onscreen shape on the window or in the raster buffer, or adds it
+	 * to the batch of the current layer.
+	 * 
+	 * @param g     the {@link Graphics2D} to draw on
+	 * @param shape the onscreen shape
+	 */
+	private void fill(Graphics2D g, Shape shape) {
+		if (batching)
+			batch.fill(raster != null ? raster.getGraphics() : g, g.getPaint(), shape);
+		else if (raster != null)
+			raster.fill(g.getPaint(), shape);
+		else
+			g.fill(shape);
+	}
+
+	/**
+	 * Draws the raster buffer and the density map of this frame. Called by the
+	 * window after the simulation has rendered, does nothing if raster
+	 * rendering and level of detail are disabled.
+	 * 
+	 * @param g the {@link Graphics2D} to draw on
+	 */
+	public void flush(Graphics2D g) {
+		if (raster != null)
+			raster.blit(g);
+
+		if (densityMap != null)
+			densityMap.draw(g);
+	}
+
+	/**
+	 * Renders a small filled object with a simplified shape, depending on its
+	 * size on screen. Objects below the splat size are added to the
+	 * {@link DensityMap}, objects below the point size are drawn as one pixel,
+	 * and objects below the square size are drawn as a square of the same area.
+	 * With raster rendering, points and squares are drawn with the fast paths of
+	 * the {@link RasterBuffer} instead.
+	 * 
+	 * @param g          the {@link Graphics2D} to draw on
+	 * @param screenX    the onscreen center x position of the object
+	 * @param screenY    the onscreen center y position of the object
+	 * @param screenSize the larger onscreen side of the bounds of the object
+	 * @param screenArea the onscreen area of the object
+	 * @return true if the object was rendered, false if it is too large or does
+	 *         not have a single color
+	 */
+	private boolean fillSimplified(Graphics2D g, double screenX, double screenY, double screenSize,
+			double screenArea) {
+		final Paint paint = g.getPaint();
+		if (screenSize >= squareSize || !(paint instanceof Color))
+			return false;
+
+		final int argb = ((Color) paint).getRGB();
+		if (screenSize < splatSize) {
+			if (densityMap == null)
+				densityMap = new DensityMap(Window.WIDTH, Window.HEIGHT);
+
+			densityMap.splat(screenX, screenY, screenArea, argb);
+			return true;
+		}
+
+		if (raster != null) {
+			if (screenSize < pointSize)
+				raster.plot(screenX, screenY, 1.0, argb);
+			else
+				raster.fillCircle(screenX, screenY, 2.0 * Math.sqrt(screenArea / Math.PI), argb);
+			return true;
+		}
+
+		if (screenSize < pointSize) {
+			square.setFrame(Math.floor(screenX), Math.floor(screenY), 1.0, 1.0);
+		} else {
+			final double side = Math.sqrt(screenArea);
+			square.setFrame(screenX - side * 0.5, screenY - side * 0.5, side, side);
+		}
+
+		if (square.intersects(SCREEN_BOUNDS))
+			fill(g, square);
+		return true;
 	}
 
 	/**
 	 * Calculates the onscreen bounds of an ingame circle.
 	 * 
-	 * @param ingamePosition the ingame center position of the circle
+	 * @param ingameX        the ingame center x position of the circle
+	 * @param ingameY        the ingame center y position of the circle
 	 * @param ingameDiameter the ingame diameter of the circle
-	 * @return the calculated onscreen bounds of the circle
+	 * @return the calculated onscreen bounds of the circle, only valid until the
+	 *         next call
 	 */
-	private Ellipse2D.Double createCircleBounds(Vector2D ingamePosition, double ingameDiameter) {
+	private Ellipse2D.Double createCircleBounds(double ingameX, double ingameY, double ingameDiameter) {
 		final double screenDiameter = ingameDiameter * zoom;
-		final Vector2D screenPosition = toPositionOnScreen(ingamePosition)
-				.subtract(new Vector2D(screenDiameter, screenDiameter).scale(0.5));
+		toPositionOnScreen(ingameX, ingameY, screenPosition).add(screenDiameter * -0.5, screenDiameter * -0.5);
 
-		return new Ellipse2D.Double(screenPosition.getX(), screenPosition.getY(), screenDiameter, screenDiameter);
+		circle.setFrame(screenPosition.getX(), screenPosition.getY(), screenDiameter, screenDiameter);
+		return circle;
 	}
 
 	/**
@@ -215,12 +606,24 @@ public class Camera implements Tickable {
 	 * @param ingameLineWidth the ingame width of the boundary line
 	 */
 	public void drawCircle(Graphics2D g, Vector2D ingamePosition, double ingameDiameter, double ingameLineWidth) {
-		final Ellipse2D.Double circle = createCircleBounds(ingamePosition, ingameDiameter);
+		drawCircle(g, ingamePosition.getX(), ingamePosition.getY(), ingameDiameter, ingameLineWidth);
+	}
 
-		if (circle.intersects(SCREEN_BOUNDS)) {
-			g.setStroke(createLineStroke(ingameLineWidth));
-			g.draw(circle);
-		}
+	/**
+	 * Renders the bounds of a circle with given ingame dimensions on screen.
+	 * 
+	 * @param g               the {@link Graphics2D} to draw on
+	 * @param ingameX         the ingame x position of the circle
+	 * @param ingameY         the ingame y position of the circle
+	 * @param ingameDiameter  the ingame diameter of the circle
+	 * @param ingameLineWidth the ingame width of the boundary line
+	 */
+	public void drawCircle(Graphics2D g, double ingameX, double ingameY, double ingameDiameter,
+			double ingameLineWidth) {
+		final Ellipse2D.Double circle = createCircleBounds(ingameX, ingameY, ingameDiameter);
+
+		if (circle.intersects(SCREEN_BOUNDS))
+			draw(g, circle, ingameLineWidth);
 	}
 
 	/**
@@ -231,10 +634,37 @@ public class Camera implements Tickable {
 	 * @param ingameDiameter the ingame diameter of the circle
 	 */
 	public void fillCircle(Graphics2D g, Vector2D ingamePosition, double ingameDiameter) {
-		final Ellipse2D.Double circle = createCircleBounds(ingamePosition, ingameDiameter);
+		fillCircle(g, ingamePosition.getX(), ingamePosition.getY(), ingameDiameter);
+	}
+
+	/**
+	 * Renders a filled circle with given ingame dimensions on screen.
+	 * 
+	 * @param g              the {@link Graphics2D} to draw on
+	 * @param ingameX        the ingame x position of the circle
+	 * @param ingameY        the ingame y position of the circle
+	 * @param ingameDiameter the ingame diameter of the circle
+	 */
+	public void fillCircle(Graphics2D g, double ingameX, double ingameY, double ingameDiameter) {
+		final double screenDiameter = ingameDiameter * zoom;
+		if (levelOfDetail && screenDiameter < squareSize) {
+			toPositionOnScreen(ingameX, ingameY, screenPosition);
+			if (fillSimplified(g, screenPosition.getX(), screenPosition.getY(), screenDiameter,
+					Math.PI * 0.25 * screenDiameter * screenDiameter))
+				return;
+		}
+
+		final Paint paint = g.getPaint();
+		if (raster != null && paint instanceof Color) {
+			toPositionOnScreen(ingameX, ingameY, screenPosition);
+			raster.fillCircle(screenPosition.getX(), screenPosition.getY(), screenDiameter, ((Color) paint).getRGB());
+			return;
+		}
+
+		final Ellipse2D.Double circle = createCircleBounds(ingameX, ingameY, ingameDiameter);
 
 		if (circle.intersects(SCREEN_BOUNDS))
-			g.fill(circle);
+			fill(g, circle);
 	}
 
 	/**
@@ -246,37 +676,81 @@ public class Camera implements Tickable {
 	 * @param ingameLineWidth  the ingame width of the line
 	 */
 	public void drawLine(Graphics2D g, Vector2D ingameStartPoint, Vector2D ingameEndPoint, double ingameLineWidth) {
-		final Vector2D a = toPositionOnScreen(ingameStartPoint);
-		final Vector2D b = toPositionOnScreen(ingameEndPoint);
+		drawLine(g, ingameStartPoint.getX(), ingameStartPoint.getY(), ingameEndPoint.getX(), ingameEndPoint.getY(),
+				ingameLineWidth);
+	}
 
-		final Line2D.Double l = new Line2D.Double(a.getX(), a.getY(), b.getX(), b.getY());
+	/**
+	 * Renders a line with a given ingame start and end coordinate.
+	 * 
+	 * @param g               the {@link Graphics2D} to draw on
+	 * @param ingameStartX    the x position of the start point of the line
+	 * @param ingameStartY    the y position of the start point of the line
+	 * @param ingameEndX      the x position of the end point of the line
+	 * @param ingameEndY      the y position of the end point of the line
+	 * @param ingameLineWidth the ingame width of the line
+	 */
+	public void drawLine(Graphics2D g, double ingameStartX, double ingameStartY, double ingameEndX,
+			double ingameEndY, double ingameLineWidth) {
+		toPositionOnScreen(ingameStartX, ingameStartY, screenPosition);
+		final double ax = screenPosition.getX();
+		final double ay = screenPosition.getY();
+		toPositionOnScreen(ingameEndX, ingameEndY, screenPosition);
+
+		line.setLine(ax, ay, screenPosition.getX(), screenPosition.getY());
 
-		if (!SCREEN_BOUNDS.intersectsLine(l))
+		if (!SCREEN_BOUNDS.intersectsLine(line))
 			return;
 
-		g.setStroke(createLineStroke(ingameLineWidth));
-		g.draw(l);
+		// hairlines of width 0 are one pixel wide, like with a Graphics2D
+		final double lineWidth = ingameLineWidth * zoom;
+		final Paint paint = g.getPaint();
+		if (raster != null && lineWidth <= 1.0 && paint instanceof Color)
+			raster.drawLine(line.x1, line.y1, line.x2, line.y2, lineWidth > 0.0 ? lineWidth : 1.0,
+					((Color) paint).getRGB());
+		else
+			draw(g, line, ingameLineWidth);
 	}
 
 	/**
 	 * Calculates the onscreen bounds of an ingame rectangle.
 	 * 
-	 * @param ingamePosition the ingame rectangle center position
+	 * @param ingameX        the ingame rectangle center x position
+	 * @param ingameY        the ingame rectangle center y position
 	 * @param ingameSize     the ingame width and height of the rectangle
 	 * @param ingameRotation the clockwise rectangle rotation in radians
-	 * @return the calculated onscren bounds as a four-element array
+	 * @return the calculated onscreen bounds, only valid until the next call
 	 */
-	private Vector2D[] createRectangleBounds(Vector2D ingamePosition, Vector2D ingameSize, double ingameRotation) {
-		final Vector2D screenPosition = toPositionOnScreen(ingamePosition);
-		final Vector2D halfAxisH = new Vector2D(ingameSize.getX() * 0.5 * zoom, 0.0).rotate(ingameRotation - rotation);
-		final Vector2D halfAxisV = new Vector2D(0.0, ingameSize.getY() * 0.5 * zoom).rotate(ingameRotation - rotation);
-
-		final Vector2D a = screenPosition.subtract(halfAxisH).subtract(halfAxisV);
-		final Vector2D b = screenPosition.add(halfAxisH).subtract(halfAxisV);
-		final Vector2D c = screenPosition.add(halfAxisH).add(halfAxisV);
-		final Vector2D d = screenPosition.subtract(halfAxisH).add(halfAxisV);
-
-		return new Vector2D[] { a, b, c, d };
+	private Path2D.Double createRectangleBounds(double ingameX, double ingameY, Vector2D ingameSize,
+			double ingameRotation) {
+		toPositionOnScreen(ingameX, ingameY, screenPosition);
+		final double px = screenPosition.getX();
+		final double py = screenPosition.getY();
+
+		// cos and sin of (ingameRotation - rotation), without trigonometry for unrotated rectangles
+		double cos = this.cos, sin = -this.sin;
+		if (ingameRotation != 0.0) {
+			final double objectCos = Math.cos(ingameRotation), objectSin = Math.sin(ingameRotation);
+			cos = objectCos * this.cos + objectSin * this.sin;
+			sin = objectSin * this.cos - objectCos * this.sin;
+		}
+		final double hx = ingameSize.getX() * 0.5 * zoom;
+		final double hy = ingameSize.getY() * 0.5 * zoom;
+
+		// sum and difference of the rotated half axes (hx * cos, hx * sin) and (-hy * sin, hy * cos)
+		final double ux = hx * cos + hy * sin;
+		final double uy = hx * sin - hy * cos;
+		final double vx = hx * cos - hy * sin;
+		final double vy = hx * sin + hy * cos;
+
+		polygon.reset();
+		polygon.moveTo(px - ux, py - uy);
+		polygon.lineTo(px - vx, py - vy);
+		polygon.lineTo(px + ux, py + uy);
+		polygon.lineTo(px + vx, py + vy);
+		polygon.closePath();
+
+		return polygon;
 	}
 
 	/**
@@ -290,7 +764,22 @@ public class Camera implements Tickable {
 	 */
 	public void drawRectangle(Graphics2D g, Vector2D ingamePosition, Vector2D ingameSize, double ingameRotation,
 			double ingameLineWidth) {
-		drawPolygon(g, createRectangleBounds(ingamePosition, ingameSize, ingameRotation), ingameLineWidth);
+		drawRectangle(g, ingamePosition.getX(), ingamePosition.getY(), ingameSize, ingameRotation, ingameLineWidth);
+	}
+
+	/**
+	 * Renders the bounds of a rectangle with given ingame dimensions on screen.
+	 * 
+	 * @param g               the {@link Graphics2D} to draw on
+	 * @param ingameX         the ingame center x position of the rectangle
+	 * @param ingameY         the ingame center y position of the rectangle
+	 * @param ingameSize      the ingame width and height of the rectangle
+	 * @param ingameRotation  the rotation of the rectangle in radians
+	 * @param ingameLineWidth the ingame width of the boundary line
+	 */
+	public void drawRectangle(Graphics2D g, double ingameX, double ingameY, Vector2D ingameSize,
+			double ingameRotation, double ingameLineWidth) {
+		drawPath(g, createRectangleBounds(ingameX, ingameY, ingameSize, ingameRotation), ingameLineWidth);
 	}
 
 	/**
@@ -302,14 +791,36 @@ public class Camera implements Tickable {
 	 * @param ingameRotation the rotation of the rectangle in radians
 	 */
 	public void fillRectangle(Graphics2D g, Vector2D ingamePosition, Vector2D ingameSize, double ingameRotation) {
-		fillPolygon(g, createRectangleBounds(ingamePosition, ingameSize, ingameRotation));
+		fillRectangle(g, ingamePosition.getX(), ingamePosition.getY(), ingameSize, ingameRotation);
+	}
+
+	/**
+	 * Renders a filled rectangle with given ingame dimensions on screen.
+	 * 
+	 * @param g              the {@link Graphics2D} to draw on
+	 * @param ingameX        the ingame center x position of the rectangle
+	 * @param ingameY        the ingame center y position of the rectangle
+	 * @param ingameSize     the ingame size of the rectangle
+	 * @param ingameRotation the rotation of the rectangle in radians
+	 */
+	public void fillRectangle(Graphics2D g, double ingameX, double ingameY, Vector2D ingameSize,
+			double ingameRotation) {
+		final double screenWidth = ingameSize.getX() * zoom, screenHeight = ingameSize.getY() * zoom;
+		if (levelOfDetail && Math.max(screenWidth, screenHeight) < squareSize) {
+			toPositionOnScreen(ingameX, ingameY, screenPosition);
+			if (fillSimplified(g, screenPosition.getX(), screenPosition.getY(), Math.max(screenWidth, screenHeight),
+					screenWidth * screenHeight))
+				return;
+		}
+
+		fillPath(g, createRectangleBounds(ingameX, ingameY, ingameSize, ingameRotation));
 	}
 
 	/**
 	 * Calculates the onscreen bounds of an ingame polygon.
 	 * 
 	 * @param ingamePoints the ingame positions of the points that build the polygon
-	 * @return the onscreen positions of the polygon as a new {@link Path2D.Double}
+	 * @return the onscreen positions of the polygon, only valid until the next call
 	 */
 	private Path2D.Double createPolygonBounds(Vector2D[] ingamePoints) {
 		final int pointCount = ingamePoints.length;
@@ -317,13 +828,16 @@ public class Camera implements Tickable {
 		if (pointCount < 3)
 			throw new IllegalArgumentException("Polygon must contain at least 3 points.");
 
-		final Path2D.Double p = new Path2D.Double();
-		p.moveTo(ingamePoints[pointCount - 1].getX(), ingamePoints[pointCount - 1].getY());
-		for (int i = 0; i < pointCount; i++)
-			p.lineTo(ingamePoints[i].getX(), ingamePoints[i].getY());
-		p.closePath();
+		polygon.reset();
+		toPositionOnScreen(ingamePoints[pointCount - 1], screenPosition);
+		polygon.moveTo(screenPosition.getX(), screenPosition.getY());
+		for (int i = 0; i < pointCount; i++) {
+			toPositionOnScreen(ingamePoints[i], screenPosition);
+			polygon.lineTo(screenPosition.getX(), screenPosition.getY());
+		}
+		polygon.closePath();
 
-		return p;
+		return polygon;
 	}
 
 	/**
@@ -335,12 +849,7 @@ public class Camera implements Tickable {
 	 * @param ingameLineWidth the ingame width of the boundary line
 	 */
 	public void drawPolygon(Graphics2D g, Vector2D[] ingamePoints, double ingameLineWidth) {
-		final Path2D.Double p = createPolygonBounds(ingamePoints);
-
-		if (p.intersects(SCREEN_BOUNDS)) {
-			g.setStroke(createLineStroke(ingameLineWidth));
-			g.draw(p);
-		}
+		drawPath(g, createPolygonBounds(ingamePoints), ingameLineWidth);
 	}
 
 	/**
@@ -351,10 +860,30 @@ public class Camera implements Tickable {
 	 * @param ingamePoints the points in the simulation that build the polygon
 	 */
 	public void fillPolygon(Graphics2D g, Vector2D[] ingamePoints) {
-		final Path2D.Double p = createPolygonBounds(ingamePoints);
+		fillPath(g, createPolygonBounds(ingamePoints));
+	}
 
+	/**
+	 * Renders the bounds of an onscreen path if it is visible.
+	 * 
+	 * @param g               the {@link Graphics2D} to draw on
+	 * @param p               the onscreen path
+	 * @param ingameLineWidth the ingame width of the boundary line
+	 */
+	private void drawPath(Graphics2D g, Path2D.Double p, double ingameLineWidth) {
 		if (p.intersects(SCREEN_BOUNDS))
-			g.fill(p);
+			draw(g, p, ingameLineWidth);
+	}
+
+	/**
+	 * Renders a filled onscreen path if it is visible.
+	 * 
+	 * @param g the {@link Graphics2D} to draw on
+	 * @param p the onscreen path
+	 */
+	private void fillPath(Graphics2D g, Path2D.Double p) {
+		if (p.intersects(SCREEN_BOUNDS))
+			fill(g, p);
 	}
 
 	/**
@@ -425,9 +954,8 @@ public class Camera implements Tickable {
 				ingameLineWidth);
 
 		if (al.intersects(SCREEN_BOUNDS) || at.intersects(SCREEN_BOUNDS)) {
-			g.setStroke(createLineStroke(ingameLineWidth));
-			g.draw(al);
-			g.draw(at);
+			draw(g, al, ingameLineWidth);
+			draw(g, at, ingameLineWidth);
 		}
 	}
 
@@ -447,9 +975,8 @@ public class Camera implements Tickable {
 				ingameLineWidth);
 
 		if (al.intersects(SCREEN_BOUNDS) || at.intersects(SCREEN_BOUNDS)) {
-			g.setStroke(createLineStroke(ingameLineWidth));
-			g.draw(al);
-			g.fill(at);
+			draw(g, al, ingameLineWidth);
+			fill(g, at);
 		}
 	}
 
@@ -464,15 +991,179 @@ public class Camera implements Tickable {
 	 */
 	public void drawImage(Graphics2D g, BufferedImage img, Vector2D ingameCenterPosition, Vector2D ingameSize,
 			double ingameRotation) {
-		final Vector2D ul = toPositionOnScreen(ingameCenterPosition);
-		final AffineTransform matrix = g.getTransform();
+		final Graphics2D target = raster != null ? raster.getGraphics() : g;
+
+		toPositionOnScreen(ingameCenterPosition, screenPosition);
+		final AffineTransform matrix = target.getTransform();
 
-		g.translate(ul.getX(), ul.getY());
-		g.rotate(ingameRotation - rotation);
-		g.translate(ingameSize.getX() * zoom * -0.5, ingameSize.getY() * zoom * -0.5);
-		g.scale(zoom * ingameSize.getX() / img.getWidth(), zoom * ingameSize.getY() / img.getHeight());
-		g.drawImage(img, matrix, null);
-		g.setTransform(matrix);
+		target.translate(screenPosition.getX(), screenPosition.getY());
+		target.rotate(ingameRotation - rotation);
+		target.translate(ingameSize.getX() * zoom * -0.5, ingameSize.getY() * zoom * -0.5);
+		target.scale(zoom * ingameSize.getX() / img.getWidth(), zoom * ingameSize.getY() / img.getHeight());
+		target.drawImage(img, matrix, null);
+		target.setTransform(matrix);
+	}
+
+	/**
+	 * Begins a layer whose shapes are collected in a {@link RenderBatch} and
+	 * drawn with one call per color and line width when the layer ends. The
+	 * shapes of different styles are drawn in a different order than they were
+	 * rendered, so only layers whose order does not matter should be batched,
+	 * like points or particles. Layers can be nested, the shapes are drawn when
+	 * the outermost layer ends. Must be called on the thread that renders.
+	 * 
+	 * Antialiased paths of many shapes are rasterized slower than the shapes one
+	 * by one, so the shapes are only collected if <code>g</code>, or the
+	 * graphics of the raster buffer, does not antialias when the outermost layer
+	 * begins. A particle layer can turn off
+	 * antialiasing for its small shapes to be batched.
+	 * 
+	 * @param g the {@link Graphics2D} to draw on
+	 */
+	public void beginBatch(Graphics2D g) {
+		if (batchDepth++ == 0) {
+			final Graphics2D target = raster != null ? raster.getGraphics() : g;
+			batching = target.getRenderingHint(RenderingHints.KEY_ANTIALIASING) != RenderingHints.VALUE_ANTIALIAS_ON;
+		}
+	}
+
+	/**
+	 * Ends a layer that was begun with {@link #beginBatch(Graphics2D)} and draws its
+	 * shapes if it is the outermost one. The paint and stroke of <code>g</code>
+	 * are restored afterwards.
+	 * 
+	 * @param g the {@link Graphics2D} to draw on
+	 */
+	public void endBatch(Graphics2D g) {
+		if (batchDepth == 0)
+			throw new IllegalStateException("No batch has begun.");
+
+		if (--batchDepth == 0 && batching) {
+			batching = false;
+			batch.flush(raster != null ? raster.getGraphics() : g);
+		}
+	}
+
+	/**
+	 * @return true if the shapes that are rendered now are collected in a batch
+	 */
+	public boolean isBatching() {
+		return batching;
+	}
+
+	/**
+	 * @return true if shapes are drawn into a {@link RasterBuffer} that is
+	 *         copied to the screen at the end of the frame
+	 */
+	public boolean isRasterRendering() {
+		return raster != null;
+	}
+
+	/**
+	 * Enables or disables raster rendering. With raster rendering, filled
+	 * circles and thin lines of a single color are written directly into the
+	 * pixels of a {@link RasterBuffer} of the size of the window, which is much
+	 * faster for many small objects. All other shapes and images are drawn into
+	 * the same buffer with its {@link Graphics2D}. The window clears the buffer
+	 * with the background color and draws it after the simulation has rendered.
+	 * Must be called on the thread that renders.
+	 * 
+	 * @param rasterRendering true to draw into a raster buffer, false to draw
+	 *                        on the {@link Graphics2D} of the window
+	 */
+	public void setRasterRendering(boolean rasterRendering) {
+		if (rasterRendering == (raster != null))
+			return;
+
+		if (raster != null)
+			raster.getGraphics().dispose();
+
+		raster = rasterRendering ? new RasterBuffer(Window.WIDTH, Window.HEIGHT) : null;
+	}
+
+	/**
+	 * @return the raster buffer of the current frame, or null if raster
+	 *         rendering is disabled
+	 */
+	public RasterBuffer getRaster() {
+		return raster;
+	}
+
+	/**
+	 * @return true if small objects are drawn with simplified shapes
+	 */
+	public boolean isLevelOfDetail() {
+		return levelOfDetail;
+	}
+
+	/**
+	 * Enables or disables the level of detail. With level of detail, filled
+	 * circles and rectangles of a single color are simplified by their size on
+	 * screen, which follows the zoom of the camera. Objects below the splat size
+	 * are accumulated in a {@link DensityMap} that is drawn over all other
+	 * shapes at the end of the frame, smaller objects are drawn as points, then
+	 * as squares of the same area. So the cost of an object stays small when
+	 * the camera zooms out. Must be called on the thread that renders.
+	 * 
+	 * @param levelOfDetail true to simplify small objects, false to draw all
+	 *                      objects with their exact shapes
+	 */
+	public void setLevelOfDetail(boolean levelOfDetail) {
+		this.levelOfDetail = levelOfDetail;
+
+		if (!levelOfDetail)
+			densityMap = null;
+	}
+
+	/**
+	 * @return the onscreen size in pixels below which objects are splatted into
+	 *         the density map
+	 */
+	public double getSplatSize() {
+		return splatSize;
+	}
+
+	/**
+	 * @return the onscreen size in pixels below which objects are drawn as
+	 *         points
+	 */
+	public double getPointSize() {
+		return pointSize;
+	}
+
+	/**
+	 * @return the onscreen size in pixels below which objects are drawn as
+	 *         squares
+	 */
+	public double getSquareSize() {
+		return squareSize;
+	}
+
+	/**
+	 * Sets the onscreen sizes of the levels of detail. Equal sizes skip a level.
+	 * 
+	 * @param splatSize  the size in pixels below which objects are splatted into
+	 *                   the density map
+	 * @param pointSize  the size in pixels below which objects are drawn as
+	 *                   points
+	 * @param squareSize the size in pixels below which objects are drawn as
+	 *                   squares
+	 */
+	public void setDetailSizes(double splatSize, double pointSize, double squareSize) {
+		if (!(splatSize >= 0.0 && splatSize <= pointSize && pointSize <= squareSize))
+			throw new IllegalArgumentException("Detail sizes must not be negative and must be in ascending order.");
+
+		this.splatSize = splatSize;
+		this.pointSize = pointSize;
+		this.squareSize = squareSize;
+	}
+
+	/**
+	 * @return the accumulation buffer for objects below the splat size, or null
+	 *         if nothing has been splatted yet
+	 */
+	public DensityMap getDensityMap() {
+		return densityMap;
 	}
 
 	/**
@@ -507,21 +1198,21 @@ public class Camera implements Tickable {
 	 * @return the current center position
 	 */
 	public Vector2D getPosition() {
-		return position;
+		return position.toVector2D();
 	}
 
 	/**
 	 * @param positionAim the new aimed camera center position
 	 */
 	public void setPositionAim(Vector2D positionAim) {
-		this.positionAim = positionAim;
+		this.positionAim.set(positionAim);
 	}
 
 	/**
 	 * @return the current aimed camera center position
 	 */
 	public Vector2D getPositionAim() {
-		return positionAim;
+		return positionAim.toVector2D();
 	}
 
 	/**
@@ -542,7 +1233,8 @@ public class Camera implements Tickable {
 	 * @param position the position to set
 	 */
 	public void setPosition(Vector2D position) {
-		this.position = position;
+		this.position.set(position);
+		updateTransform();
 	}
 
 	/**
@@ -550,6 +1242,7 @@ public class Camera implements Tickable {
 	 */
 	public void setZoom(double zoom) {
 		this.zoom = zoom;
+		updateTransform();
 	}
 
 	/**
@@ -557,6 +1250,96 @@ public class Camera implements Tickable {
 	 */
 	public void setRotation(double rotation) {
 		this.rotation = rotation;
+		updateTransform();
+	}
+
+	/**
+	 * @return the speed of the camera animations
+	 */
+	public double getAnimationSpeed() {
+		return animationSpeed;
+	}
+
+	/**
+	 * @param animationSpeed the new speed of the camera animations, the part of
+	 *                       the remaining way that the camera moves per tick
+	 */
+	public void setAnimationSpeed(double animationSpeed) {
+		if (!(animationSpeed > 0.0 && animationSpeed <= 1.0))
+			throw new IllegalArgumentException("Animation speed must be greater than 0 and at most 1.");
+
+		this.animationSpeed = animationSpeed;
+	}
+
+	/**
+	 * @return the speed of the camera zoom
+	 */
+	public double getZoomSpeed() {
+		return zoomSpeed;
+	}
+
+	/**
+	 * @param zoomSpeed the new speed of the camera zoom
+	 */
+	public void setZoomSpeed(double zoomSpeed) {
+		this.zoomSpeed = zoomSpeed;
+	}
+
+	/**
+	 * @return the minimum zoom factor
+	 */
+	public double getMinZoom() {
+		return minZoom;
+	}
+
+	/**
+	 * @return the maximum zoom factor
+	 */
+	public double getMaxZoom() {
+		return maxZoom;
+	}
+
+	/**
+	 * @param minZoom the new minimum zoom factor
+	 * @param maxZoom the new maximum zoom factor
+	 */
+	public void setZoomRange(double minZoom, double maxZoom) {
+		if (!(minZoom > 0.0 && minZoom <= maxZoom))
+			throw new IllegalArgumentException("Zoom range must be positive and must not be empty.");
+
+		this.minZoom = minZoom;
+		this.maxZoom = maxZoom;
+	}
+
+	/**
+	 * @return the number of different rotation angles
+	 */
+	public int getRotationSteps() {
+		return rotationSteps;
+	}
+
+	/**
+	 * @param rotationSteps the new number of different rotation angles
+	 */
+	public void setRotationSteps(int rotationSteps) {
+		if (rotationSteps < 1)
+			throw new IllegalArgumentException("Rotation steps must be positive.");
+
+		this.rotationSteps = rotationSteps;
+	}
+
+	/**
+	 * @return the WASD-Key camera speed
+	 */
+	public double getMovingSpeed() {
+		return movingSpeed;
+	}
+
+	/**
+	 * @param movingSpeed the new WASD-Key camera speed
+	 */
+	public void setMovingSpeed(double movingSpeed) {
+		this.movingSpeed = movingSpeed;
 	}
 
 }
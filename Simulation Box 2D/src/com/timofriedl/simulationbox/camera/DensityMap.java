@@ -0,0 +1,201 @@
+package com.timofriedl.simulationbox.camera;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * An onscreen accumulation buffer for objects that are smaller than a pixel.
+ * 
+ * Instead of drawing each tiny object on its own, its area and color are
+ * added to the pixel below its center, which costs the same for every object
+ * and does not depend on the antialiasing of the window. When the map is
+ * drawn, each pixel gets the average color of its objects and an opacity of
+ * 
+ * <pre>
+ * 1 - exp(-exposure * area)
+ * </pre>
+ * 
+ * which is the part of the pixel that randomly placed objects with this total
+ * area would cover. So sparse regions stay faint, dense regions become opaque,
+ * and the exposure can brighten the map like a heat map. Only the pixels
+ * inside the bounds of the splats of a frame are resolved and cleared.
+ * 
+ * @author Timo Friedl
+ */
+public class DensityMap {
+
+	/**
+	 * the image that the map is resolved into
+	 */
+	private final BufferedImage image;
+
+	/**
+	 * the pixels of the image, row by row
+	 */
+	private final int[] pixels;
+
+	/**
+	 * the size of the map in pixels
+	 */
+	private final int width, height;
+
+	/**
+	 * the covered area of each pixel, weighted by the alpha values of the
+	 * colors
+	 */
+	private final float[] area;
+
+	/**
+	 * the color channels of each pixel, weighted by the covered area
+	 */
+	private final float[] red, green, blue;
+
+	/**
+	 * the bounds of the pixels that were splatted since the last draw, empty if
+	 * the minimum is greater than the maximum
+	 */
+	private int minX, minY, maxX = -1, maxY = -1;
+
+	/**
+	 * the factor of the area in the opacity of a pixel
+	 */
+	private double exposure = 1.0;
+
+	/**
+	 * Creates a new empty density map.
+	 * 
+	 * @param width  the width in pixels
+	 * @param height the height in pixels
+	 */
+	public DensityMap(int width, int height) {
+		if (width < 1 || height < 1)
+			throw new IllegalArgumentException("Density map size must be positive.");
+
+		this.width = width;
+		this.height = height;
+		minX = width;
+		minY = height;
+
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		area = new float[width * height];
+		red = new float[width * height];
+		green = new float[width * height];
+		blue = new float[width * height];
+	}
+
+	/**
+	 * Adds an object to the pixel below its center. Does nothing outside of the
+	 * map.
+	 * 
+	 * @param x          the onscreen x position
+	 * @param y          the onscreen y position
+	 * @param screenArea the onscreen area of the object in pixels
+	 * @param argb       the color with its alpha value in the highest byte
+	 */
+	public void splat(double x, double y, double screenArea, int argb) {
+		if (!(x >= 0.0 && y >= 0.0 && x < width && y < height))
+			return;
+
+		final int px = (int) x, py = (int) y;
+		final int i = py * width + px;
+		final float a = (float) (screenArea * (argb >>> 24) / 255.0);
+
+		area[i] += a;
+		red[i] += a * (argb >> 16 & 0xFF);
+		green[i] += a * (argb >> 8 & 0xFF);
+		blue[i] += a * (argb & 0xFF);
+
+		minX = Math.min(minX, px);
+		minY = Math.min(minY, py);
+		maxX = Math.max(maxX, px);
+		maxY = Math.max(maxY, py);
+	}
+
+	/**
+	 * Draws all splats since the last draw and clears the map.
+	 * 
+	 * @param g the {@link Graphics2D} to draw on
+	 */
+	public void draw(Graphics2D g) {
+		if (isEmpty())
+			return;
+
+		for (int y = minY; y <= maxY; y++) {
+			for (int i = y * width + minX, end = y * width + maxX; i <= end; i++) {
+				final float a = area[i];
+				if (a == 0f)
+					continue;
+
+				final int alpha = (int) (255.0 * (1.0 - Math.exp(-exposure * a)) + 0.5);
+				final float inverse = 1f / a;
+				pixels[i] = alpha << 24 | Math.min(255, (int) (red[i] * inverse + 0.5f)) << 16
+						| Math.min(255, (int) (green[i] * inverse + 0.5f)) << 8
+						| Math.min(255, (int) (blue[i] * inverse + 0.5f));
+			}
+		}
+
+		g.drawImage(image, minX, minY, maxX + 1, maxY + 1, minX, minY, maxX + 1, maxY + 1, null);
+		clear();
+	}
+
+	/**
+	 * Removes all splats without drawing them.
+	 */
+	public void clear() {
+		for (int y = minY; y <= maxY; y++) {
+			final int from = y * width + minX, to = y * width + maxX + 1;
+			Arrays.fill(pixels, from, to, 0);
+			Arrays.fill(area, from, to, 0f);
+			Arrays.fill(red, from, to, 0f);
+			Arrays.fill(green, from, to, 0f);
+			Arrays.fill(blue, from, to, 0f);
+		}
+
+		minX = width;
+		minY = height;
+		maxX = maxY = -1;
+	}
+
+	/**
+	 * @return true if nothing was splatted since the last draw
+	 */
+	public boolean isEmpty() {
+		return maxX < 0;
+	}
+
+	/**
+	 * @return the width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the factor of the area in the opacity of a pixel
+	 */
+	public double getExposure() {
+		return exposure;
+	}
+
+	/**
+	 * @param exposure the new factor of the area in the opacity of a pixel,
+	 *                 greater values make sparse regions more visible
+	 */
+	public void setExposure(double exposure) {
+		if (!(exposure > 0.0))
+			throw new IllegalArgumentException("Exposure must be positive.");
+
+		this.exposure = exposure;
+	}
+
+}
@@ -0,0 +1,332 @@
+package com.timofriedl.simulationbox.camera;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import com.timofriedl.simulationbox.display.Window;
+
+/**
+ * An onscreen framebuffer that draws point-like shapes by writing the pixels
+ * of a {@link BufferedImage} directly.
+ * 
+ * Filling an antialiased {@link java.awt.geom.Ellipse2D} with
+ * {@link Graphics2D} costs several microseconds even if the ellipse is
+ * smaller than a pixel, so a million particles take seconds per frame. This
+ * buffer rasterizes circles, thin lines and points itself with a simple
+ * coverage estimate for the edges, which takes a few nanoseconds per covered
+ * pixel. Circles smaller than a pixel are spread over the four nearest pixels
+ * by their area, so they stay visible and move smoothly. The frame is copied
+ * to the screen with one image draw.
+ * 
+ * All other shapes are drawn with the {@link Graphics2D} of the image, so
+ * they still appear in the order they were drawn. They are always drawn over
+ * the pixels, regardless of the {@link BlendMode}.
+ * 
+ * @author Timo Friedl
+ */
+public class RasterBuffer {
+
+	/**
+	 * the image that holds the pixels
+	 */
+	private final BufferedImage image;
+
+	/**
+	 * the pixels of the image, row by row
+	 */
+	private final int[] pixels;
+
+	/**
+	 * the size of the image in pixels
+	 */
+	private final int width, height;
+
+	/**
+	 * the graphics for shapes without a fast path
+	 */
+	private final Graphics2D graphics;
+
+	/**
+	 * the way colors are combined with the pixels
+	 */
+	private BlendMode blendMode = BlendMode.OVER;
+
+	/**
+	 * Creates a new black raster buffer.
+	 * 
+	 * @param width  the width in pixels
+	 * @param height the height in pixels
+	 */
+	public RasterBuffer(int width, int height) {
+		if (width < 1 || height < 1)
+			throw new IllegalArgumentException("Raster size must be positive.");
+
+		this.width = width;
+		this.height = height;
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+		graphics = image.createGraphics();
+		Window.setupRenderingHints(graphics);
+	}
+
+	/**
+	 * Fills all pixels with one color.
+	 * 
+	 * @param color the background color
+	 */
+	public void clear(Color color) {
+		Arrays.fill(pixels, color.getRGB() & 0xFFFFFF);
+	}
+
+	/**
+	 * Fills a circle.
+	 * 
+	 * @param x        the onscreen center x position
+	 * @param y        the onscreen center y position
+	 * @param diameter the onscreen diameter
+	 * @param argb     the color with its alpha value in the highest byte
+	 */
+	public void fillCircle(double x, double y, double diameter, int argb) {
+		if (diameter < 1.0) {
+			plot(x, y, Math.PI * 0.25 * diameter * diameter, argb);
+			return;
+		}
+
+		final double r = diameter * 0.5;
+		final int minY = Math.max(0, (int) Math.floor(y - r - 0.5));
+		final int maxY = Math.min(height - 1, (int) Math.ceil(y + r + 0.5));
+		final double inner = (r - 0.5) * (r - 0.5), outer = (r + 0.5) * (r + 0.5);
+
+		for (int py = minY; py <= maxY; py++) {
+			final double dy = py + 0.5 - y;
+			final double dy2 = dy * dy;
+			if (dy2 >= outer)
+				continue;
+
+			final double outerHalf = Math.sqrt(outer - dy2);
+			final double innerHalf = r > 0.5 && dy2 < inner ? Math.sqrt(inner - dy2) : -1.0;
+			final int minX = Math.max(0, (int) Math.floor(x - outerHalf - 0.5));
+			final int maxX = Math.min(width - 1, (int) Math.ceil(x + outerHalf - 0.5));
+			final int row = py * width;
+
+			for (int px = minX; px <= maxX; px++) {
+				final double dx = px + 0.5 - x;
+
+				// pixels well inside the circle are covered fully, the others by their distance to the edge
+				if (dx > -innerHalf && dx < innerHalf) {
+					blend(row + px, argb, 1.0);
+				} else {
+					final double coverage = r + 0.5 - Math.sqrt(dx * dx + dy2);
+					if (coverage > 0.0)
+						blend(row + px, argb, Math.min(coverage, 1.0));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Draws a line that is at most one pixel wide. Each step along the line
+	 * covers the two nearest pixels across it by their distance.
+	 * 
+	 * @param x0        the onscreen start x position
+	 * @param y0        the onscreen start y position
+	 * @param x1        the onscreen end x position
+	 * @param y1        the onscreen end y position
+	 * @param lineWidth the onscreen width, from 0 to 1
+	 * @param argb      the color with its alpha value in the highest byte
+	 */
+	public void drawLine(double x0, double y0, double x1, double y1, double lineWidth, int argb) {
+		// clip the line to the image, so far away end points do not cost anything
+		double t0 = 0.0, t1 = 1.0;
+		final double dx = x1 - x0, dy = y1 - y0;
+		final double[] p = { -dx, dx, -dy, dy };
+		final double[] q = { x0 + 1.0, width - x0, y0 + 1.0, height - y0 };
+		for (int k = 0; k < 4; k++) {
+			if (p[k] == 0.0) {
+				if (q[k] < 0.0)
+					return;
+			} else {
+				final double t = q[k] / p[k];
+				if (p[k] < 0.0)
+					t0 = Math.max(t0, t);
+				else
+					t1 = Math.min(t1, t);
+			}
+		}
+		if (t0 > t1)
+			return;
+
+		final double ax = x0 + t0 * dx, ay = y0 + t0 * dy;
+		final double length = (t1 - t0) * Math.max(Math.abs(dx), Math.abs(dy));
+		final int steps = Math.max(1, (int) Math.ceil(length));
+		final double sx = (t1 - t0) * dx / steps, sy = (t1 - t0) * dy / steps;
+		// each step covers the width of the line times the length of the step
+		final double weight = Math.min(lineWidth, 1.0) * Math.hypot(sx, sy);
+		final boolean steep = Math.abs(dy) > Math.abs(dx);
+
+		for (int s = 0; s <= steps; s++) {
+			final double px = ax + s * sx, py = ay + s * sy;
+			final double w = s == 0 || s == steps ? 0.5 * weight : weight;
+
+			if (steep) {
+				final int iy = (int) Math.floor(py);
+				final double cx = px - 0.5;
+				final int ix = (int) Math.floor(cx);
+				final double f = cx - ix;
+				blendAt(ix, iy, argb, (1.0 - f) * w);
+				blendAt(ix + 1, iy, argb, f * w);
+			} else {
+				final int ix = (int) Math.floor(px);
+				final double cy = py - 0.5;
+				final int iy = (int) Math.floor(cy);
+				final double f = cy - iy;
+				blendAt(ix, iy, argb, (1.0 - f) * w);
+				blendAt(ix, iy + 1, argb, f * w);
+			}
+		}
+	}
+
+	/**
+	 * Draws a point and spreads it over the four nearest pixels.
+	 * 
+	 * @param x        the onscreen x position
+	 * @param y        the onscreen y position
+	 * @param coverage the covered area in pixels, at most 1
+	 * @param argb     the color with its alpha value in the highest byte
+	 */
+	public void plot(double x, double y, double coverage, int argb) {
+		final double cx = x - 0.5, cy = y - 0.5;
+		final int ix = (int) Math.floor(cx), iy = (int) Math.floor(cy);
+		final double fx = cx - ix, fy = cy - iy;
+		final double c = Math.min(coverage, 1.0);
+
+		blendAt(ix, iy, argb, (1.0 - fx) * (1.0 - fy) * c);
+		blendAt(ix + 1, iy, argb, fx * (1.0 - fy) * c);
+		blendAt(ix, iy + 1, argb, (1.0 - fx) * fy * c);
+		blendAt(ix + 1, iy + 1, argb, fx * fy * c);
+	}
+
+	/**
+	 * Fills a shape with the {@link Graphics2D} of the image.
+	 * 
+	 * @param paint the paint to fill the shape with
+	 * @param shape the onscreen shape
+	 */
+	public void fill(Paint paint, Shape shape) {
+		graphics.setPaint(paint);
+		graphics.fill(shape);
+	}
+
+	/**
+	 * Draws the outline of a shape with the {@link Graphics2D} of the image.
+	 * 
+	 * @param paint  the paint to draw the outline with
+	 * @param stroke the stroke of the outline
+	 * @param shape  the onscreen shape
+	 */
+	public void draw(Paint paint, Stroke stroke, Shape shape) {
+		graphics.setPaint(paint);
+		graphics.setStroke(stroke);
+		graphics.draw(shape);
+	}
+
+	/**
+	 * Blends a color into a pixel if it is inside the image.
+	 * 
+	 * @param x        the x position of the pixel
+	 * @param y        the y position of the pixel
+	 * @param argb     the color with its alpha value in the highest byte
+	 * @param coverage the covered part of the pixel, from 0 to 1
+	 */
+	private void blendAt(int x, int y, int argb, double coverage) {
+		if (x >= 0 && y >= 0 && x < width && y < height)
+			blend(y * width + x, argb, Math.min(coverage, 1.0));
+	}
+
+	/**
+	 * Blends a color into a pixel.
+	 * 
+	 * @param i        the index of the pixel
+	 * @param argb     the color with its alpha value in the highest byte
+	 * @param coverage the covered part of the pixel, from 0 to 1
+	 */
+	private void blend(int i, int argb, double coverage) {
+		// the weight from 0 to 256, so the channels can be scaled with a shift
+		final int a = (int) (coverage * (argb >>> 24) * (256.0 / 255.0) + 0.5);
+		if (a == 0)
+			return;
+
+		final int d = pixels[i];
+		final int dr = d >> 16 & 0xFF, dg = d >> 8 & 0xFF, db = d & 0xFF;
+		final int sr = argb >> 16 & 0xFF, sg = argb >> 8 & 0xFF, sb = argb & 0xFF;
+
+		if (blendMode == BlendMode.ADD)
+			pixels[i] = Math.min(255, dr + (sr * a >> 8)) << 16 | Math.min(255, dg + (sg * a >> 8)) << 8
+					| Math.min(255, db + (sb * a >> 8));
+		else
+			pixels[i] = dr + ((sr - dr) * a >> 8) << 16 | dg + ((sg - dg) * a >> 8) << 8 | db + ((sb - db) * a >> 8);
+	}
+
+	/**
+	 * Draws the buffer on a {@link Graphics2D}.
+	 * 
+	 * @param g the {@link Graphics2D} to draw on
+	 */
+	public void blit(Graphics2D g) {
+		g.drawImage(image, 0, 0, null);
+	}
+
+	/**
+	 * @return the image that holds the pixels
+	 */
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	/**
+	 * @return the {@link Graphics2D} of the image, for shapes without a fast
+	 *         path
+	 */
+	public Graphics2D getGraphics() {
+		return graphics;
+	}
+
+	/**
+	 * @return the width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the way colors are combined with the pixels
+	 */
+	public BlendMode getBlendMode() {
+		return blendMode;
+	}
+
+	/**
+	 * @param blendMode the new way colors are combined with the pixels
+	 */
+	public void setBlendMode(BlendMode blendMode) {
+		if (blendMode == null)
+			throw new IllegalArgumentException("Blend mode must not be null.");
+
+		this.blendMode = blendMode;
+	}
+
+}
@@ -0,0 +1,283 @@
+package com.timofriedl.simulationbox.camera;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Collects onscreen shapes with their paint and stroke and draws them with one
+ * call per distinct style.
+ * 
+ * Every change of the paint or stroke of a {@link Graphics2D} makes Java2D
+ * validate its pipeline again before the next drawing, which can cost more than
+ * drawing a small shape. The batch appends all shapes of the same style to one
+ * {@link Path2D}, sorts the styles by their color and line width and switches
+ * the style once per path, so a layer needs one switch per style instead of
+ * one per object.
+ * 
+ * The shapes of different styles are not drawn in the order they were added,
+ * so only layers whose draw order does not matter should be batched, like
+ * points, particles or grid lines. Overlapping filled shapes of one style are
+ * filled once, which makes a difference for translucent colors. A path is
+ * drawn as soon as it holds {@link #MAX_SHAPES_PER_PATH} shapes, because the
+ * rasterizer gets slower with huge paths that cover the whole screen. The
+ * paint and stroke of the {@link Graphics2D} are restored after each drawn
+ * path.
+ * 
+ * @author Timo Friedl
+ */
+class RenderBatch {
+
+	/**
+	 * the number of shapes after which a path is drawn before the flush
+	 */
+	static final int MAX_SHAPES_PER_PATH = 256;
+
+	/**
+	 * the order in which the styles are drawn: fills before outlines, then by
+	 * color and line width
+	 */
+	private static final Comparator<Bucket> STYLE_ORDER = Comparator
+			.comparingInt((Bucket b) -> b.style.stroke == null ? 0 : 1)
+			.thenComparingLong(b -> b.style.paint instanceof Color ? ((Color) b.style.paint).getRGB() & 0xFFFFFFFFL
+					: 1L << 32 | System.identityHashCode(b.style.paint))
+			.thenComparingDouble(b -> b.style.stroke instanceof BasicStroke
+					? ((BasicStroke) b.style.stroke).getLineWidth()
+					: Double.POSITIVE_INFINITY);
+
+	/**
+	 * the bucket of each style of the current batch and of the batch before
+	 */
+	private final HashMap<Style, Bucket> buckets = new HashMap<>();
+
+	/**
+	 * the reusable list of the buckets to draw in a flush
+	 */
+	private final ArrayList<Bucket> order = new ArrayList<>();
+
+	/**
+	 * the reusable key for looking up buckets
+	 */
+	private final Style probe = new Style();
+
+	/**
+	 * the bucket of the last shape, for consecutive shapes of the same style
+	 */
+	private Bucket last;
+
+	/**
+	 * Adds a filled shape to the batch.
+	 * 
+	 * @param g     the {@link Graphics2D} to draw on
+	 * @param paint the paint to fill the shape with
+	 * @param shape the onscreen shape, copied immediately so it can be reused
+	 */
+	void fill(Graphics2D g, Paint paint, Shape shape) {
+		add(g, bucket(paint, null), shape);
+	}
+
+	/**
+	 * Adds the outline of a shape to the batch.
+	 * 
+	 * @param g      the {@link Graphics2D} to draw on
+	 * @param paint  the paint to draw the outline with
+	 * @param stroke the stroke of the outline
+	 * @param shape  the onscreen shape, copied immediately so it can be reused
+	 */
+	void draw(Graphics2D g, Paint paint, Stroke stroke, Shape shape) {
+		if (stroke == null)
+			throw new IllegalArgumentException("Stroke must not be null.");
+
+		add(g, bucket(paint, stroke), shape);
+	}
+
+	/**
+	 * Adds a shape to a bucket and draws the bucket if it is full.
+	 * 
+	 * @param g      the {@link Graphics2D} to draw on
+	 * @param bucket the bucket of the style of the shape
+	 * @param shape  the onscreen shape
+	 */
+	private void add(Graphics2D g, Bucket bucket, Shape shape) {
+		bucket.path.append(shape, false);
+
+		if (++bucket.shapes == MAX_SHAPES_PER_PATH) {
+			final Paint paint = g.getPaint();
+			final Stroke stroke = g.getStroke();
+			draw(g, bucket);
+			g.setPaint(paint);
+			g.setStroke(stroke);
+		}
+	}
+
+	/**
+	 * Draws the shapes of a bucket and empties it.
+	 * 
+	 * @param g      the {@link Graphics2D} to draw on
+	 * @param bucket the bucket to draw
+	 */
+	private static void draw(Graphics2D g, Bucket bucket) {
+		g.setPaint(bucket.style.paint);
+
+		if (bucket.style.stroke == null) {
+			g.fill(bucket.path);
+		} else {
+			g.setStroke(bucket.style.stroke);
+			g.draw(bucket.path);
+		}
+
+		bucket.path.reset();
+		bucket.shapes = 0;
+	}
+
+	/**
+	 * Finds or creates the bucket of a style.
+	 * 
+	 * @param paint  the paint of the style
+	 * @param stroke the stroke of the style, or null for filled shapes
+	 * @return the bucket of the style
+	 */
+	private Bucket bucket(Paint paint, Stroke stroke) {
+		if (paint == null)
+			throw new IllegalArgumentException("Paint must not be null.");
+
+		if (last != null && last.style.matches(paint, stroke))
+			return last;
+
+		probe.paint = paint;
+		probe.stroke = stroke;
+		Bucket bucket = buckets.get(probe);
+		probe.paint = null;
+		probe.stroke = null;
+
+		if (bucket == null) {
+			final Style style = new Style();
+			style.paint = paint;
+			style.stroke = stroke;
+			bucket = new Bucket(style);
+			buckets.put(style, bucket);
+		}
+
+		bucket.used = true;
+		last = bucket;
+		return bucket;
+	}
+
+	/**
+	 * Draws all collected shapes, one call per style sorted by color and line
+	 * width, and clears the batch. The paint and stroke of <code>g</code> are
+	 * restored afterwards.
+	 * 
+	 * @param g the {@link Graphics2D} to draw on
+	 */
+	void flush(Graphics2D g) {
+		for (Iterator<Bucket> it = buckets.values().iterator(); it.hasNext();) {
+			final Bucket bucket = it.next();
+
+			// styles of earlier batches are forgotten, so the map does not grow forever
+			if (!bucket.used)
+				it.remove();
+			else if (bucket.shapes > 0)
+				order.add(bucket);
+
+			bucket.used = false;
+		}
+
+		if (!order.isEmpty()) {
+			order.sort(STYLE_ORDER);
+
+			final Paint paint = g.getPaint();
+			final Stroke stroke = g.getStroke();
+			for (int i = 0; i < order.size(); i++)
+				draw(g, order.get(i));
+			g.setPaint(paint);
+			g.setStroke(stroke);
+			order.clear();
+		}
+
+		last = null;
+	}
+
+	/**
+	 * The paint and stroke of a bucket.
+	 */
+	private static class Style {
+
+		/**
+		 * the paint of the shapes
+		 */
+		private Paint paint;
+
+		/**
+		 * the stroke of the outlines, or null for filled shapes
+		 */
+		private Stroke stroke;
+
+		/**
+		 * @param paint  a paint
+		 * @param stroke a stroke, or null for filled shapes
+		 * @return true if this style has the given paint and stroke
+		 */
+		private boolean matches(Paint paint, Stroke stroke) {
+			return (this.paint == paint || this.paint.equals(paint))
+					&& (this.stroke == stroke || this.stroke != null && this.stroke.equals(stroke));
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Style && ((Style) o).matches(paint, stroke);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * paint.hashCode() + Objects.hashCode(stroke);
+		}
+
+	}
+
+	/**
+	 * The shapes of one style.
+	 */
+	private static class Bucket {
+
+		/**
+		 * the style of the shapes
+		 */
+		private final Style style;
+
+		/**
+		 * the shapes that have not been drawn yet
+		 */
+		private final Path2D.Double path = new Path2D.Double();
+
+		/**
+		 * the number of shapes in the path
+		 */
+		private int shapes;
+
+		/**
+		 * true if the style was used in the current batch
+		 */
+		private boolean used;
+
+		/**
+		 * Creates a new empty bucket.
+		 * 
+		 * @param style the style of the shapes
+		 */
+		private Bucket(Style style) {
+			this.style = style;
+		}
+
+	}
+
+}
@@ -12,6 +12,7 @@ import java.awt.image.BufferStrategy;
 import javax.swing.JFrame;
 
 import com.timofriedl.simulationbox.Simulation;
+import com.timofriedl.simulationbox.camera.RasterBuffer;
 
 /**
  * The {@link JFrame} with a {@link Canvas} to render elements on. Screen mode
@@ -27,10 +28,12 @@ public class Window extends JFrame {
 	private static final long serialVersionUID = -4053271768132484720L;
 
 	/**
-	 * the {@link DisplayMode} instance of this (default) screen device
+	 * the {@link DisplayMode} instance of this (default) screen device, or an
+	 * empty mode with unknown refresh rate if there is no screen
 	 */
-	public static final DisplayMode MODE = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
-			.getDisplayMode();
+	public static final DisplayMode MODE = GraphicsEnvironment.isHeadless()
+			? new DisplayMode(0, 0, DisplayMode.BIT_DEPTH_MULTI, DisplayMode.REFRESH_RATE_UNKNOWN)
+			: GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode();
 
 	/**
 	 * the display width
@@ -118,6 +121,7 @@ public class Window extends JFrame {
 
 			renderBackground(g);
 			simulation.render(g);
+			simulation.getCamera().flush(g);
 
 			bs.show();
 			graphics.dispose();
@@ -142,11 +146,18 @@ public class Window extends JFrame {
 	}
 
 	/**
-	 * Draws a rectangle on the screen to create a background.
+	 * Draws a rectangle on the screen to create a background, or clears the
+	 * raster buffer of the camera with the background color.
 	 * 
 	 * @param g the graphics instance to draw on the canvas
 	 */
 	private void renderBackground(Graphics2D g) {
+		final RasterBuffer raster = simulation.getCamera().getRaster();
+		if (raster != null) {
+			raster.clear(bgColor);
+			return;
+		}
+
 		g.setColor(bgColor);
 		g.fillRect(0, 0, getWidth(), getHeight());
 	}
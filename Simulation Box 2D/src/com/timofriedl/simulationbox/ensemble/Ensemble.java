@@ -0,0 +1,117 @@
+package com.timofriedl.simulationbox.ensemble;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import com.timofriedl.simulationbox.Simulation;
+
+/**
+ * Runs many independent headless {@link Simulation}s, e.g. slightly perturbed
+ * versions of the same scene, and collects one result of each run.
+ * 
+ * Each run creates its own simulation with a factory that gets the index of
+ * the run, so it can derive its random seed or its perturbation from it. The
+ * experiment then runs the simulation, usually with
+ * {@link com.timofriedl.simulationbox.gameloop.GameLoop#runTicks(long)} or
+ * {@link com.timofriedl.simulationbox.gameloop.GameLoop#runUntil(java.util.function.Predicate)},
+ * and measures its result. The runs are submitted to an {@link Executor}, so
+ * a fixed pool with one thread per core keeps a machine busy with small runs,
+ * and a virtual thread executor can be used on Java 21 and later.
+ * 
+ * A run that throws an exception does not stop the others, its exception is
+ * recorded in the {@link EnsembleResult} instead.
+ * 
+ * @author Timo Friedl
+ * 
+ * @param <S> the type of the simulations
+ * @param <R> the type of the result of a run
+ */
+public class Ensemble<S extends Simulation, R> {
+
+	/**
+	 * creates the simulation of a run from its index
+	 */
+	private final IntFunction<? extends S> factory;
+
+	/**
+	 * runs a simulation and measures its result
+	 */
+	private final Function<? super S, ? extends R> experiment;
+
+	/**
+	 * Creates a new ensemble.
+	 * 
+	 * @param factory    creates the headless simulation of a run from its index
+	 * @param experiment runs a simulation and measures its result
+	 */
+	public Ensemble(IntFunction<? extends S> factory, Function<? super S, ? extends R> experiment) {
+		if (factory == null || experiment == null)
+			throw new IllegalArgumentException("Factory and experiment must not be null.");
+
+		this.factory = factory;
+		this.experiment = experiment;
+	}
+
+	/**
+	 * Runs the ensemble on the common {@link ForkJoinPool} and waits for all
+	 * runs to finish.
+	 * 
+	 * @param runs the number of runs
+	 * @return the results of all runs
+	 */
+	public EnsembleResult<R> run(int runs) {
+		return run(runs, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Runs the ensemble on an executor and waits for all runs to finish.
+	 * 
+	 * @param runs     the number of runs
+	 * @param executor the executor that runs the simulations
+	 * @return the results of all runs
+	 */
+	public EnsembleResult<R> run(int runs, Executor executor) {
+		return start(runs, executor).join();
+	}
+
+	/**
+	 * Submits all runs of the ensemble to an executor without waiting for them.
+	 * 
+	 * @param runs     the number of runs
+	 * @param executor the executor that runs the simulations
+	 * @return a future that completes with the results when all runs have
+	 *         finished
+	 */
+	public CompletableFuture<EnsembleResult<R>> start(int runs, Executor executor) {
+		if (runs < 0)
+			throw new IllegalArgumentException("Number of runs must not be negative.");
+		if (executor == null)
+			throw new IllegalArgumentException("Executor must not be null.");
+
+		final Object[] results = new Object[runs];
+		final Throwable[] failures = new Throwable[runs];
+		final CompletableFuture<?>[] futures = new CompletableFuture<?>[runs];
+
+		for (int i = 0; i < runs; i++) {
+			final int run = i;
+			futures[run] = CompletableFuture.supplyAsync(() -> experiment.apply(factory.apply(run)), executor)
+					.handle((result, failure) -> {
+						if (failure == null)
+							results[run] = result;
+						else
+							failures[run] = failure instanceof CompletionException && failure.getCause() != null
+									? failure.getCause()
+									: failure;
+						return null;
+					});
+		}
+
+		// the arrays are only read after all runs have written to them
+		return CompletableFuture.allOf(futures).thenApply(v -> new EnsembleResult<R>(results, failures));
+	}
+
+}
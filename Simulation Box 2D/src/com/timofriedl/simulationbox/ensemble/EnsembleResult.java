@@ -0,0 +1,137 @@
+package com.timofriedl.simulationbox.ensemble;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+
+/**
+ * The results of all runs of an {@link Ensemble}, in the order of the runs.
+ * 
+ * Each run either has a result or the exception that stopped it.
+ * 
+ * @author Timo Friedl
+ * 
+ * @param <R> the type of the result of a run
+ */
+public final class EnsembleResult<R> {
+
+	/**
+	 * the result of each run, null if it failed
+	 */
+	private final Object[] results;
+
+	/**
+	 * the exception that stopped each run, null if it succeeded
+	 */
+	private final Throwable[] failures;
+
+	/**
+	 * the results of the successful runs
+	 */
+	private final List<R> successful;
+
+	/**
+	 * Creates a new ensemble result.
+	 * 
+	 * @param results  the result of each run, null if it failed
+	 * @param failures the exception that stopped each run, null if it succeeded
+	 */
+	@SuppressWarnings("unchecked")
+	EnsembleResult(Object[] results, Throwable[] failures) {
+		this.results = results;
+		this.failures = failures;
+
+		final ArrayList<R> list = new ArrayList<>();
+		for (int run = 0; run < results.length; run++)
+			if (failures[run] == null)
+				list.add((R) results[run]);
+		successful = Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * Collects the results of all successful runs, in the order of the runs.
+	 * 
+	 * @param <A>       the type of the aggregate
+	 * @param collector the collector that aggregates the results, e.g. from
+	 *                  {@link java.util.stream.Collectors}
+	 * @return the aggregate of all successful results
+	 */
+	public <A> A collect(Collector<? super R, ?, A> collector) {
+		return successful.stream().collect(collector);
+	}
+
+	/**
+	 * Calculates the count, sum, minimum, average and maximum of a number that is
+	 * measured in each successful run.
+	 * 
+	 * @param measure extracts the number from the result of a run
+	 * @return the statistics of the number over all successful runs
+	 */
+	public DoubleSummaryStatistics summarize(ToDoubleFunction<? super R> measure) {
+		return successful.stream().mapToDouble(measure).summaryStatistics();
+	}
+
+	/**
+	 * @param run the index of the run
+	 * @return the result of the run, or null if it failed
+	 */
+	@SuppressWarnings("unchecked")
+	public R getResult(int run) {
+		return (R) results[run];
+	}
+
+	/**
+	 * @param run the index of the run
+	 * @return the exception that stopped the run, or null if it succeeded
+	 */
+	public Throwable getFailure(int run) {
+		return failures[run];
+	}
+
+	/**
+	 * @param run the index of the run
+	 * @return true if the run finished without an exception
+	 */
+	public boolean isSuccessful(int run) {
+		return failures[run] == null;
+	}
+
+	/**
+	 * @return the results of all successful runs, in the order of the runs
+	 */
+	public List<R> getResults() {
+		return successful;
+	}
+
+	/**
+	 * @return the exceptions of all failed runs by the index of the run
+	 */
+	public Map<Integer, Throwable> getFailures() {
+		final TreeMap<Integer, Throwable> map = new TreeMap<>();
+		for (int run = 0; run < failures.length; run++)
+			if (failures[run] != null)
+				map.put(run, failures[run]);
+
+		return Collections.unmodifiableMap(map);
+	}
+
+	/**
+	 * @return the number of runs
+	 */
+	public int getRuns() {
+		return results.length;
+	}
+
+	/**
+	 * @return the number of runs that finished without an exception
+	 */
+	public int getSuccessCount() {
+		return successful.size();
+	}
+
+}
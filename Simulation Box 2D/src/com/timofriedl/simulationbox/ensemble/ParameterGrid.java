@@ -0,0 +1,103 @@
+package com.timofriedl.simulationbox.ensemble;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A grid of parameters, each with a list of values, that describes all
+ * combinations of these values.
+ * 
+ * The combinations are numbered so that the last parameter changes fastest,
+ * so the same grid always gives the same combination for the same index.
+ * 
+ * @author Timo Friedl
+ */
+public class ParameterGrid {
+
+	/**
+	 * the names of the parameters
+	 */
+	private final ArrayList<String> names = new ArrayList<>();
+
+	/**
+	 * the values of each parameter
+	 */
+	private final ArrayList<double[]> values = new ArrayList<>();
+
+	/**
+	 * Adds a parameter to this grid.
+	 * 
+	 * @param name   the name of the parameter
+	 * @param values the values of the parameter
+	 */
+	public void add(String name, double... values) {
+		if (name == null || name.isEmpty())
+			throw new IllegalArgumentException("Parameter name must not be empty.");
+		if (names.contains(name))
+			throw new IllegalArgumentException("Parameter " + name + " already exists.");
+		if (values == null || values.length == 0)
+			throw new IllegalArgumentException("Parameter must have at least one value.");
+		if (Long.MAX_VALUE / values.length < size())
+			throw new IllegalArgumentException("Grid has too many combinations.");
+
+		names.add(name);
+		this.values.add(values.clone());
+	}
+
+	/**
+	 * Adds a parameter with evenly spaced values to this grid.
+	 * 
+	 * @param name  the name of the parameter
+	 * @param from  the first value
+	 * @param to    the last value
+	 * @param count the number of values, at least 2
+	 */
+	public void addRange(String name, double from, double to, int count) {
+		if (count < 2)
+			throw new IllegalArgumentException("Range must have at least two values.");
+
+		final double[] range = new double[count];
+		for (int i = 0; i < count; i++)
+			range[i] = from + (to - from) * i / (count - 1);
+		add(name, range);
+	}
+
+	/**
+	 * @param index the index of a combination
+	 * @return the values of the combination
+	 */
+	public Parameters get(long index) {
+		if (index < 0 || index >= size())
+			throw new IllegalArgumentException("Combination index out of range.");
+
+		final double[] combination = new double[names.size()];
+		long rest = index;
+		for (int i = names.size() - 1; i >= 0; i--) {
+			final double[] v = values.get(i);
+			combination[i] = v[(int) (rest % v.length)];
+			rest /= v.length;
+		}
+
+		return new Parameters(index, names.toArray(new String[names.size()]), combination);
+	}
+
+	/**
+	 * @return the number of combinations
+	 */
+	public long size() {
+		long size = 1;
+		for (double[] v : values)
+			size *= v.length;
+
+		return size;
+	}
+
+	/**
+	 * @return the names of the parameters in the order they were added
+	 */
+	public List<String> getNames() {
+		return Collections.unmodifiableList(names);
+	}
+
+}
@@ -0,0 +1,312 @@
+package com.timofriedl.simulationbox.ensemble;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.timofriedl.simulationbox.Simulation;
+
+/**
+ * Runs a headless {@link Simulation} for every combination of a
+ * {@link ParameterGrid} on a bounded pool of threads and writes one line per
+ * run to a CSV file as soon as the run has finished.
+ * 
+ * The CSV file is also the checkpoint of the sweep. Each line starts with the
+ * index of its combination, so a sweep that is started again with the same
+ * file skips the combinations that are already in it and appends the missing
+ * ones. An incomplete last line of an interrupted sweep is removed first, and
+ * runs that were still running when the sweep was interrupted are repeated.
+ * 
+ * Each line holds the index, the parameter values, the measured values and an
+ * error column that is empty unless the run threw an exception. Runs that
+ * failed are not repeated when the sweep resumes.
+ * 
+ * @author Timo Friedl
+ * 
+ * @param <S> the type of the simulations
+ */
+public class ParameterSweep<S extends Simulation> {
+
+	/**
+	 * the parameters to sweep
+	 */
+	private final ParameterGrid grid;
+
+	/**
+	 * creates the headless simulation of a combination
+	 */
+	private final Function<? super Parameters, ? extends S> factory;
+
+	/**
+	 * the names of the measured values
+	 */
+	private final String[] columns;
+
+	/**
+	 * runs a simulation and measures one value for each column
+	 */
+	private final Function<? super S, ?> experiment;
+
+	/**
+	 * Creates a new parameter sweep.
+	 * 
+	 * @param grid       the parameters to sweep
+	 * @param factory    creates the headless simulation of a combination, e.g.
+	 *                   by setting its gravity constant to one of the values
+	 * @param columns    the names of the measured values
+	 * @param experiment runs a simulation, e.g. with
+	 *                   {@link com.timofriedl.simulationbox.gameloop.GameLoop#runTicks(long)},
+	 *                   and returns the measured values as an
+	 *                   <code>Object[]</code>, a <code>double[]</code> or a
+	 *                   single value
+	 */
+	public ParameterSweep(ParameterGrid grid, Function<? super Parameters, ? extends S> factory, String[] columns,
+			Function<? super S, ?> experiment) {
+		if (grid == null || factory == null || columns == null || experiment == null)
+			throw new IllegalArgumentException("Grid, factory, columns and experiment must not be null.");
+
+		this.grid = grid;
+		this.factory = factory;
+		this.columns = columns.clone();
+		this.experiment = experiment;
+	}
+
+	/**
+	 * Runs all combinations that are not in the output file yet and waits for
+	 * them to finish. If the calling thread is interrupted, the running
+	 * simulations are interrupted as well and the finished ones stay in the
+	 * file. Experiments that run their simulation with
+	 * {@link com.timofriedl.simulationbox.gameloop.GameLoop#runUntil(java.util.function.Predicate)}
+	 * or {@link com.timofriedl.simulationbox.gameloop.GameLoop#runTicks(long)}
+	 * stop after their current tick, other experiments should check the
+	 * interrupt flag of their thread. The file is closed when all of them have
+	 * stopped.
+	 * 
+	 * @param output  the CSV file to write to and to resume from
+	 * @param threads the number of simulations that run at the same time
+	 * @return the number of combinations that were run by this call
+	 * @throws IOException          if the file cannot be read or written
+	 * @throws InterruptedException if the calling thread was interrupted
+	 */
+	public long run(Path output, int threads) throws IOException, InterruptedException {
+		if (threads < 1)
+			throw new IllegalArgumentException("Number of threads must be positive.");
+
+		final long size = grid.size();
+		if (size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Grid has too many combinations for one sweep.");
+
+		final String header = header();
+		final BitSet done = resume(output, header);
+
+		final BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		final ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			if (done == null) {
+				writer.write(header);
+				writer.newLine();
+				writer.flush();
+			}
+
+			final CompletableFuture<?>[] futures = new CompletableFuture<?>[(int) size];
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				if (done != null && done.get(i))
+					continue;
+
+				final Parameters parameters = grid.get(i);
+				futures[count++] = CompletableFuture.runAsync(() -> {
+					String line;
+					try {
+						line = line(parameters, experiment.apply(factory.apply(parameters)), null);
+					} catch (RuntimeException e) {
+						// a run that was stopped by the sweep is repeated when it resumes
+						if (Thread.currentThread().isInterrupted())
+							return;
+						line = line(parameters, null, e);
+					}
+
+					write(writer, line);
+				}, pool);
+			}
+
+			CompletableFuture.allOf(Arrays.copyOf(futures, count)).get();
+			return count;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UncheckedIOException)
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			throw new IllegalStateException("Sweep failed.", e.getCause());
+		} finally {
+			shutdown(pool);
+			writer.close();
+		}
+	}
+
+	/**
+	 * Interrupts the running simulations and waits for them to stop, so none of
+	 * them writes to the output file after it is closed. Stops waiting if the
+	 * calling thread is interrupted again and keeps its interrupt flag.
+	 * 
+	 * @param pool the pool that runs the simulations
+	 */
+	private static void shutdown(ExecutorService pool) {
+		pool.shutdownNow();
+
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Reads the combinations that are already in an output file and removes an
+	 * incomplete last line.
+	 * 
+	 * @param output the CSV file to resume from
+	 * @param header the expected first line of the file
+	 * @return the indices of the finished combinations, or null if the file is
+	 *         new and needs a header
+	 * @throws IOException if the file cannot be read
+	 */
+	private BitSet resume(Path output, String header) throws IOException {
+		if (!Files.exists(output) || Files.size(output) == 0L)
+			return null;
+
+		// a line is only complete with its line break
+		try (FileChannel channel = FileChannel.open(output, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final byte[] content = Files.readAllBytes(output);
+			int end = content.length;
+			while (end > 0 && content[end - 1] != '\n')
+				end--;
+			channel.truncate(end);
+		}
+
+		if (Files.size(output) == 0L)
+			return null;
+
+		final BitSet done = new BitSet();
+		try (BufferedReader reader = Files.newBufferedReader(output, StandardCharsets.UTF_8)) {
+			if (!header.equals(reader.readLine()))
+				throw new IllegalArgumentException("Output file belongs to a different sweep.");
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final int comma = line.indexOf(',');
+				try {
+					done.set(Integer.parseInt(comma < 0 ? line : line.substring(0, comma)));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Output file contains an invalid line.");
+				}
+			}
+		}
+
+		return done;
+	}
+
+	/**
+	 * Appends a line to the output file and flushes it, so it survives an
+	 * interruption of the sweep.
+	 * 
+	 * @param writer the writer of the output file
+	 * @param line   the line to append
+	 */
+	private static void write(BufferedWriter writer, String line) {
+		synchronized (writer) {
+			try {
+				writer.write(line);
+				writer.newLine();
+				writer.flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * @return the first line of the output file
+	 */
+	private String header() {
+		final StringBuilder sb = new StringBuilder("index");
+		for (String name : grid.getNames())
+			sb.append(',').append(escape(name));
+		for (String column : columns)
+			sb.append(',').append(escape(column));
+
+		return sb.append(",error").toString();
+	}
+
+	/**
+	 * Formats the line of one run.
+	 * 
+	 * @param parameters the parameters of the run
+	 * @param result     the measured values of the run
+	 * @param failure    the exception that stopped the run, or null
+	 * @return the line for the output file
+	 */
+	private String line(Parameters parameters, Object result, RuntimeException failure) {
+		final StringBuilder sb = new StringBuilder().append(parameters.getIndex());
+		for (int i = 0; i < parameters.size(); i++)
+			sb.append(',').append(parameters.get(i));
+
+		final Object[] values = failure == null ? values(result) : new Object[0];
+		if (failure == null && values.length != columns.length)
+			failure = new IllegalStateException(
+					"Experiment returned " + values.length + " values for " + columns.length + " columns.");
+
+		for (int i = 0; i < columns.length; i++)
+			sb.append(',').append(failure == null ? escape(String.valueOf(values[i])) : "");
+
+		return sb.append(',').append(failure == null ? "" : escape(failure.toString())).toString();
+	}
+
+	/**
+	 * @param result the result of an experiment
+	 * @return the measured values of the result
+	 */
+	private static Object[] values(Object result) {
+		if (result instanceof Object[])
+			return (Object[]) result;
+
+		if (result instanceof double[]) {
+			final double[] array = (double[]) result;
+			final Object[] values = new Object[array.length];
+			for (int i = 0; i < array.length; i++)
+				values[i] = array[i];
+			return values;
+		}
+
+		return new Object[] { result };
+	}
+
+	/**
+	 * Quotes a CSV value if it contains commas or quotes. Line breaks are
+	 * replaced by spaces, so every run stays on one line.
+	 * 
+	 * @param value the value
+	 * @return the value for a CSV file
+	 */
+	private static String escape(String value) {
+		final String singleLine = value.replace('\r', ' ').replace('\n', ' ');
+		if (singleLine.indexOf(',') < 0 && singleLine.indexOf('"') < 0)
+			return singleLine;
+
+		return '"' + singleLine.replace("\"", "\"\"") + '"';
+	}
+
+}
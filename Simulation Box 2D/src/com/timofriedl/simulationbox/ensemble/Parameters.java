@@ -0,0 +1,81 @@
+package com.timofriedl.simulationbox.ensemble;
+
+/**
+ * One combination of the values of a {@link ParameterGrid}.
+ * 
+ * @author Timo Friedl
+ */
+public final class Parameters {
+
+	/**
+	 * the index of this combination in its grid
+	 */
+	private final long index;
+
+	/**
+	 * the names of the parameters
+	 */
+	private final String[] names;
+
+	/**
+	 * the value of each parameter
+	 */
+	private final double[] values;
+
+	/**
+	 * Creates a new combination of parameter values.
+	 * 
+	 * @param index  the index of this combination in its grid
+	 * @param names  the names of the parameters
+	 * @param values the value of each parameter
+	 */
+	Parameters(long index, String[] names, double[] values) {
+		this.index = index;
+		this.names = names;
+		this.values = values;
+	}
+
+	/**
+	 * @param name the name of a parameter
+	 * @return the value of the parameter
+	 */
+	public double get(String name) {
+		for (int i = 0; i < names.length; i++)
+			if (names[i].equals(name))
+				return values[i];
+
+		throw new IllegalArgumentException("Unknown parameter " + name + ".");
+	}
+
+	/**
+	 * @param i the position of a parameter in its grid
+	 * @return the value of the parameter
+	 */
+	public double get(int i) {
+		return values[i];
+	}
+
+	/**
+	 * @return the index of this combination in its grid
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the number of parameters
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("#").append(index).append(" {");
+		for (int i = 0; i < names.length; i++)
+			sb.append(i == 0 ? "" : ", ").append(names[i]).append('=').append(values[i]);
+
+		return sb.append('}').toString();
+	}
+
+}
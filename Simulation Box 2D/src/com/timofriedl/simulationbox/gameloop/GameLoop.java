@@ -1,28 +1,189 @@
 package com.timofriedl.simulationbox.gameloop;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
 import com.timofriedl.simulationbox.Simulation;
+import com.timofriedl.simulationbox.display.Window;
 
 /**
  * The tick-render-loop
  * 
+ * By default, the loop parks its thread while it waits for the next tick and
+ * only polls the clock during a short spin tail, so an idle simulation does not
+ * keep a core busy. The spin tail bounds the tick jitter as long as the system
+ * wakes parked threads up in time.
+ * 
+ * Each loop tick calls {@link Simulation#tick()} once per sub-step. If the
+ * loop falls behind, it catches up with at most {@link #getMaxCatchUpTicks()}
+ * ticks at a time and drops the rest of the missed time, so an overloaded
+ * simulation runs slower than real time instead of never rendering again. The
+ * camera always moves at {@link #CAMERA_TPS} ticks per second.
+ * 
+ * In decoupled mode, the simulation ticks on the loop thread while a second
+ * thread ticks the camera and renders, so a slow frame does not delay the
+ * physics and heavy physics does not drop frames. Objects publish an immutable
+ * {@link com.timofriedl.simulationbox.object.RenderState} after each tick, and
+ * the renderer draws them one tick behind, interpolated by
+ * {@link #getRenderTime()}. The render methods of the simulation must then only
+ * read data that is safe to read while the simulation ticks, for example
+ * thread-safe collections of objects.
+ * 
+ * Headless simulations are not started, but run on the calling thread with
+ * {@link #runTicks(long)} or {@link #runUntil(Predicate)}, which calculate the
+ * ticks as fast as possible without rendering.
+ * 
  * @author Timo Friedl
  */
 public class GameLoop implements Runnable {
 
 	/**
-	 * the number of ticks in one second
+	 * the default number of ticks in one second
+	 */
+	public static final int DEFAULT_TPS = 60;
+
+	/**
+	 * the number of camera ticks in one second
 	 */
-	public static final int TPS = 60;
+	public static final int CAMERA_TPS = 60;
 
 	/**
-	 * the number of nanoseconds in one simulation tick
+	 * the default maximum number of ticks that the loop calculates to catch up
+	 * before it renders again
 	 */
-	private final long NANOS_PER_TICK = 1_000_000_000 / TPS;
+	public static final int DEFAULT_MAX_CATCH_UP_TICKS = 5;
+
+	/**
+	 * the frame rate limit that is used if the display refresh rate is unknown
+	 */
+	public static final int DEFAULT_MAX_FPS = 60;
+
+	/**
+	 * the default time before a tick in which the loop polls the clock instead
+	 * of parking
+	 */
+	public static final long DEFAULT_SPIN_NANOS = 1_000_000L;
+
+	/**
+	 * the number of nanoseconds in one camera tick
+	 */
+	private static final long NANOS_PER_CAMERA_TICK = 1_000_000_000L / CAMERA_TPS;
+
+	/**
+	 * the number of nanoseconds after which the loop statistics are updated
+	 */
+	private static final long STATS_INTERVAL = 1_000_000_000L;
 
 	/**
 	 * the current number of rendered frames per second
 	 */
-	private float fps;
+	private volatile float fps;
+
+	/**
+	 * the number of ticks in one second
+	 */
+	private volatile int tps = DEFAULT_TPS;
+
+	/**
+	 * the number of nanoseconds in one tick
+	 */
+	private volatile long nanosPerTick = 1_000_000_000L / DEFAULT_TPS;
+
+	/**
+	 * the number of {@link Simulation#tick()} calls in one tick
+	 */
+	private volatile int substeps = 1;
+
+	/**
+	 * the maximum number of ticks that the loop calculates to catch up before it
+	 * renders again
+	 */
+	private volatile int maxCatchUpTicks = DEFAULT_MAX_CATCH_UP_TICKS;
+
+	/**
+	 * the time at which the last tick was due
+	 */
+	private volatile long lastTickTime;
+
+	/**
+	 * the time at which the last camera tick was due
+	 */
+	private long lastCameraTick;
+
+	/**
+	 * the number of calculated ticks
+	 */
+	private volatile long tickCount;
+
+	/**
+	 * a counter that is odd while {@link #tickCount} and {@link #lastTickTime}
+	 * are advanced, so the render thread can read both of the same tick
+	 */
+	private volatile int tickSequence;
+
+	/**
+	 * the number of ticks that were skipped because the loop fell behind
+	 */
+	private volatile long droppedTicks;
+
+	/**
+	 * the simulation time of the current frame in ticks
+	 */
+	private volatile double renderTime;
+
+	/**
+	 * true if the simulation has been initialized
+	 */
+	private boolean initialized;
+
+	/**
+	 * true if the loop thread has been started
+	 */
+	private volatile boolean running;
+
+	/**
+	 * true if the simulation ticks and renders on separate threads
+	 */
+	private volatile boolean decoupled;
+
+	/**
+	 * the maximum number of rendered frames per second in decoupled mode
+	 */
+	private volatile int maxFps = Window.MODE.getRefreshRate() > 0 ? Window.MODE.getRefreshRate()
+			: DEFAULT_MAX_FPS;
+
+	/**
+	 * the average and maximum tick lateness of the last statistics interval in
+	 * milliseconds
+	 */
+	private volatile float tickJitter, maxTickJitter;
+
+	/**
+	 * the part of the last statistics interval that the loop spent waiting
+	 */
+	private volatile float idleRatio;
+
+	/**
+	 * the way the loop waits for the next tick
+	 */
+	private volatile PacingMode pacingMode = PacingMode.PARK;
+
+	/**
+	 * the time before a tick in which the loop polls the clock instead of
+	 * parking
+	 */
+	private volatile long spinNanos = DEFAULT_SPIN_NANOS;
+
+	/**
+	 * the sums of the current statistics interval
+	 */
+	private long statsStart, lateSum, lateMax, idleSum;
+
+	/**
+	 * the number of waits in the current statistics interval
+	 */
+	private int waitCount;
 
 	/**
 	 * the reference to the main simulation instance
@@ -39,33 +200,280 @@ public class GameLoop implements Runnable {
 	}
 
 	/**
-	 * Starts the game loop in a new {@link Thread}.
+	 * Starts the game loop in a new {@link Thread}, in the mode set by
+	 * {@link #setDecoupled(boolean)}.
 	 */
 	public void start() {
+		start(decoupled);
+	}
+
+	/**
+	 * Starts the game loop in a new {@link Thread}. The mode cannot be changed
+	 * afterwards.
+	 * 
+	 * @param decoupled true to tick and render on separate threads, false to do
+	 *                  both on the loop thread
+	 */
+	public synchronized void start(boolean decoupled) {
+		if (simulation.isHeadless())
+			throw new IllegalStateException("Headless simulations must be run with runTicks or runUntil.");
+		if (running)
+			throw new IllegalStateException("Game loop is already running.");
+
+		this.decoupled = decoupled;
+		running = true;
 		new Thread(this).start();
 	}
 
 	@Override
 	public void run() {
-		long lastTickTime = System.nanoTime();
+		lastTickTime = System.nanoTime();
+		lastCameraTick = lastTickTime;
+		statsStart = lastTickTime;
+
+		initialize();
+
+		if (decoupled) {
+			final Thread renderThread = new Thread(this::runRenderLoop, "Render Loop");
+			renderThread.setDaemon(true);
+			renderThread.start();
+		}
+
 		long lastRenderTime = lastTickTime;
 
-		for (simulation.init();;) {
-			if (System.nanoTime() - lastTickTime < NANOS_PER_TICK)
-				continue;
+		for (;;) {
+			waitUntil(lastTickTime + nanosPerTick);
+			catchUp();
+
+			final long now = System.nanoTime();
+			if (!decoupled) {
+				tickCamera(now);
+				renderTime = tickCount;
+				simulation.getWindow().render();
+
+				fps = 1_000_000_000f / (now - lastRenderTime);
+				lastRenderTime = now;
+			}
+
+			if (now - statsStart >= STATS_INTERVAL)
+				publishStats(now);
+		}
+	}
+
+	/**
+	 * Calculates all due ticks, but at most {@link #maxCatchUpTicks}, and drops
+	 * the time of the remaining ones.
+	 */
+	private void catchUp() {
+		final long tickNanos = nanosPerTick;
 
-			while (System.nanoTime() - lastTickTime >= NANOS_PER_TICK) {
-				simulation.getCamera().tick();
-				simulation.tick();
-				lastTickTime += NANOS_PER_TICK;
+		for (int ticks = 0; System.nanoTime() - lastTickTime >= tickNanos; ticks++) {
+			if (ticks == maxCatchUpTicks) {
+				final long behind = (System.nanoTime() - lastTickTime) / tickNanos;
+				droppedTicks += behind;
+				advance(0L, behind * tickNanos);
+				return;
 			}
 
+			tick();
+			advance(1L, tickNanos);
+		}
+	}
+
+	/**
+	 * Calculates one tick with all of its sub-steps. The tick is counted by
+	 * {@link #advance(long, long)} afterwards.
+	 */
+	private void tick() {
+		for (int i = substeps; i > 0; i--)
+			simulation.tick();
+	}
+
+	/**
+	 * Counts calculated ticks and moves the time at which the last tick was due,
+	 * so the render thread never sees the new count with the old time.
+	 * 
+	 * @param ticks the number of calculated ticks
+	 * @param nanos the time to add to the last tick time
+	 */
+	private void advance(long ticks, long nanos) {
+		// only the tick thread writes, so the increments need no lock
+		tickSequence++;
+		tickCount += ticks;
+		lastTickTime += nanos;
+		tickSequence++;
+	}
+
+	/**
+	 * Calculates all due camera ticks.
+	 * 
+	 * @param now the current {@link System#nanoTime()}
+	 */
+	private void tickCamera(long now) {
+		if (now - lastCameraTick >= NANOS_PER_CAMERA_TICK * maxCatchUpTicks)
+			lastCameraTick = now - NANOS_PER_CAMERA_TICK;
+
+		for (; now - lastCameraTick >= NANOS_PER_CAMERA_TICK; lastCameraTick += NANOS_PER_CAMERA_TICK)
+			simulation.getCamera().tick();
+	}
+
+	/**
+	 * Ticks the camera and renders the simulation at up to {@link #maxFps} frames
+	 * per second, independent of the simulation ticks.
+	 */
+	private void runRenderLoop() {
+		long lastRenderTime = System.nanoTime();
+		long nextFrame = lastRenderTime;
+
+		for (;;) {
+			long now = System.nanoTime();
+			tickCamera(now);
+
+			// read the count and the time of the same tick, retrying while the tick thread advances them
+			long ticks, tickTime;
+			int sequence;
+			do {
+				sequence = tickSequence;
+				ticks = tickCount;
+				tickTime = lastTickTime;
+			} while ((sequence & 1) != 0 || sequence != tickSequence);
+
+			// one tick behind the wall clock, but never ahead of the last finished tick
+			final double time = ticks - 1.0 + (double) (now - tickTime) / nanosPerTick;
+			renderTime = Math.min(Math.max(time, ticks - 1.0), ticks);
+
 			simulation.getWindow().render();
 
-			final long now = System.nanoTime();
+			now = System.nanoTime();
 			fps = 1_000_000_000f / (now - lastRenderTime);
 			lastRenderTime = now;
+
+			nextFrame += 1_000_000_000L / maxFps;
+			if (nextFrame - now < 0)
+				nextFrame = now;
+			pause(nextFrame);
+		}
+	}
+
+	/**
+	 * Calculates a given number of ticks as fast as possible on the calling
+	 * thread, without rendering. Initializes the simulation first if this has
+	 * not happened yet.
+	 * 
+	 * @param ticks the number of ticks to calculate
+	 * @throws CancellationException if the calling thread is interrupted, see
+	 *                               {@link #runUntil(Predicate)}
+	 */
+	public void runTicks(long ticks) {
+		if (ticks < 0L)
+			throw new IllegalArgumentException("Tick count must not be negative.");
+
+		final long end = tickCount + ticks;
+		runUntil(s -> tickCount >= end);
+	}
+
+	/**
+	 * Calculates ticks as fast as possible on the calling thread, without
+	 * rendering, until a condition holds. The condition is tested before each
+	 * tick. Initializes the simulation first if this has not happened yet.
+	 * 
+	 * The run stops after the current tick if the calling thread is interrupted,
+	 * e.g. by {@link java.util.concurrent.ExecutorService#shutdownNow()}. The
+	 * simulation then stays at that tick and the interrupt flag stays set.
+	 * 
+	 * @param condition the condition that stops the simulation
+	 * @return the number of calculated ticks
+	 * @throws CancellationException if the calling thread is interrupted
+	 */
+	public long runUntil(Predicate<? super Simulation> condition) {
+		if (running)
+			throw new IllegalStateException("Game loop is already running.");
+
+		initialize();
+
+		final long start = tickCount;
+		try {
+			while (!condition.test(simulation)) {
+				if (Thread.currentThread().isInterrupted())
+					throw new CancellationException(
+							"Simulation was interrupted after " + (tickCount - start) + " ticks.");
+
+				tick();
+				advance(1L, 0L);
+			}
+		} finally {
+			renderTime = tickCount;
+		}
+
+		return tickCount - start;
+	}
+
+	/**
+	 * Initializes the simulation unless this has already happened.
+	 */
+	private void initialize() {
+		if (!initialized) {
+			initialized = true;
+			simulation.init();
+		}
+	}
+
+	/**
+	 * Waits until a given time, either by polling the clock or by parking and
+	 * polling for the spin tail, and records the lateness and idle time.
+	 * 
+	 * @param deadline the {@link System#nanoTime()} to wait for
+	 */
+	private void waitUntil(long deadline) {
+		final long start = System.nanoTime();
+
+		// a deadline that has already passed counts with its full lateness and no idle time
+		final long now = deadline - start > 0 ? pause(deadline) : start;
+
+		final long late = now - deadline;
+		lateSum += late;
+		lateMax = Math.max(lateMax, late);
+		idleSum += now - start;
+		waitCount++;
+	}
+
+	/**
+	 * Waits until a given time according to the {@link PacingMode}.
+	 * 
+	 * @param deadline the {@link System#nanoTime()} to wait for
+	 * @return the time after waiting
+	 */
+	private long pause(long deadline) {
+		if (pacingMode == PacingMode.PARK) {
+			final long spin = spinNanos;
+
+			for (long remaining = deadline - System.nanoTime(); remaining > spin; remaining = deadline
+					- System.nanoTime())
+				LockSupport.parkNanos(remaining - spin);
 		}
+
+		long now = System.nanoTime();
+		while (now - deadline < 0)
+			now = System.nanoTime();
+
+		return now;
+	}
+
+	/**
+	 * Publishes the statistics of the current interval and starts a new one.
+	 * 
+	 * @param now the current {@link System#nanoTime()}
+	 */
+	private void publishStats(long now) {
+		tickJitter = waitCount > 0 ? lateSum / (waitCount * 1_000_000f) : 0f;
+		maxTickJitter = lateMax / 1_000_000f;
+		idleRatio = (float) idleSum / (now - statsStart);
+
+		statsStart = now;
+		lateSum = 0L;
+		lateMax = 0L;
+		idleSum = 0L;
+		waitCount = 0;
 	}
 
 	/**
@@ -74,4 +482,196 @@ public class GameLoop implements Runnable {
 	public float getFps() {
 		return fps;
 	}
+
+	/**
+	 * @return the number of calculated ticks
+	 */
+	public long getTickCount() {
+		return tickCount;
+	}
+
+	/**
+	 * @return the number of ticks that were skipped because the loop fell behind
+	 *         by more than {@link #getMaxCatchUpTicks()} ticks
+	 */
+	public long getDroppedTicks() {
+		return droppedTicks;
+	}
+
+	/**
+	 * @return the number of ticks in one second
+	 */
+	public int getTps() {
+		return tps;
+	}
+
+	/**
+	 * @param tps the new number of ticks in one second
+	 */
+	public void setTps(int tps) {
+		if (tps < 1)
+			throw new IllegalArgumentException("Ticks per second must be at least 1.");
+
+		this.tps = tps;
+		nanosPerTick = 1_000_000_000L / tps;
+	}
+
+	/**
+	 * @return the number of {@link Simulation#tick()} calls in one tick
+	 */
+	public int getSubsteps() {
+		return substeps;
+	}
+
+	/**
+	 * Sets the number of sub-steps. The simulation calculates
+	 * <code>tps * substeps</code> of its own ticks per second, but objects only
+	 * publish their render state once per tick.
+	 * 
+	 * @param substeps the new number of {@link Simulation#tick()} calls in one
+	 *                 tick
+	 */
+	public void setSubsteps(int substeps) {
+		if (substeps < 1)
+			throw new IllegalArgumentException("Substeps must be at least 1.");
+
+		this.substeps = substeps;
+	}
+
+	/**
+	 * @return the maximum number of ticks that the loop calculates to catch up
+	 *         before it renders again
+	 */
+	public int getMaxCatchUpTicks() {
+		return maxCatchUpTicks;
+	}
+
+	/**
+	 * @param maxCatchUpTicks the new maximum number of ticks that the loop
+	 *                        calculates to catch up before it renders again
+	 */
+	public void setMaxCatchUpTicks(int maxCatchUpTicks) {
+		if (maxCatchUpTicks < 1)
+			throw new IllegalArgumentException("Maximum catch-up ticks must be at least 1.");
+
+		this.maxCatchUpTicks = maxCatchUpTicks;
+	}
+
+	/**
+	 * Returns the simulation time of the current frame in ticks, for the
+	 * interpolation of {@link com.timofriedl.simulationbox.object.RenderState}s.
+	 * It is the number of calculated ticks in the combined mode and lies between
+	 * the last two ticks in decoupled mode.
+	 * 
+	 * @return the simulation time of the current frame
+	 */
+	public double getRenderTime() {
+		return renderTime;
+	}
+
+	/**
+	 * @return true if the simulation ticks and renders on separate threads
+	 */
+	public boolean isDecoupled() {
+		return decoupled;
+	}
+
+	/**
+	 * Moves the camera ticks and the rendering to a separate thread. Must be
+	 * called before the loop starts. Simulations with a window start their loop
+	 * in their constructor, so they choose the mode with
+	 * {@link com.timofriedl.simulationbox.Simulation#Simulation(String, java.awt.Color, boolean)}
+	 * instead.
+	 * 
+	 * @param decoupled true to tick and render on separate threads, false to do
+	 *                  both on the loop thread
+	 */
+	public synchronized void setDecoupled(boolean decoupled) {
+		if (running)
+			throw new IllegalStateException("Mode cannot be changed while the game loop is running.");
+
+		this.decoupled = decoupled;
+	}
+
+	/**
+	 * @return the maximum number of rendered frames per second in decoupled mode
+	 */
+	public int getMaxFps() {
+		return maxFps;
+	}
+
+	/**
+	 * @param maxFps the new maximum number of rendered frames per second in
+	 *               decoupled mode
+	 */
+	public void setMaxFps(int maxFps) {
+		if (maxFps < 1)
+			throw new IllegalArgumentException("Maximum fps must be at least 1.");
+
+		this.maxFps = maxFps;
+	}
+
+	/**
+	 * @return the average time in milliseconds by which ticks started too late
+	 *         during the last second
+	 */
+	public float getTickJitter() {
+		return tickJitter;
+	}
+
+	/**
+	 * @return the maximum time in milliseconds by which a tick started too late
+	 *         during the last second
+	 */
+	public float getMaxTickJitter() {
+		return maxTickJitter;
+	}
+
+	/**
+	 * @return the part of the last second that the loop spent waiting, from 0 to
+	 *         1
+	 */
+	public float getIdleRatio() {
+		return idleRatio;
+	}
+
+	/**
+	 * @return the way the loop waits for the next tick
+	 */
+	public PacingMode getPacingMode() {
+		return pacingMode;
+	}
+
+	/**
+	 * @param pacingMode the new way the loop waits for the next tick
+	 */
+	public void setPacingMode(PacingMode pacingMode) {
+		if (pacingMode == null)
+			throw new IllegalArgumentException("Pacing mode must not be null.");
+
+		this.pacingMode = pacingMode;
+	}
+
+	/**
+	 * @return the time in nanoseconds before a tick in which the loop polls the
+	 *         clock instead of parking
+	 */
+	public long getSpinNanos() {
+		return spinNanos;
+	}
+
+	/**
+	 * Sets the spin tail of the {@link PacingMode#PARK} mode. A longer tail
+	 * lowers the jitter on systems that wake parked threads up late, a shorter
+	 * one saves CPU time.
+	 * 
+	 * @param spinNanos the new time in nanoseconds before a tick in which the
+	 *                  loop polls the clock instead of parking
+	 */
+	public void setSpinNanos(long spinNanos) {
+		if (spinNanos < 0L)
+			throw new IllegalArgumentException("Spin time must not be negative.");
+
+		this.spinNanos = spinNanos;
+	}
 }
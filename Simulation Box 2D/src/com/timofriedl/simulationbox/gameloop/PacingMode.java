@@ -0,0 +1,22 @@
+package com.timofriedl.simulationbox.gameloop;
+
+/**
+ * The ways a {@link GameLoop} can wait for the next tick.
+ * 
+ * @author Timo Friedl
+ */
+public enum PacingMode {
+
+	/**
+	 * Polls the clock until the next tick is due. Most accurate, but keeps one
+	 * core busy all the time.
+	 */
+	SPIN,
+
+	/**
+	 * Parks the loop thread for most of the remaining time and only polls the
+	 * clock for a short tail before the next tick.
+	 */
+	PARK
+
+}
@@ -1,6 +1,7 @@
 package com.timofriedl.simulationbox.object;
 
 import com.timofriedl.simulationbox.Simulation;
+import com.timofriedl.simulationbox.physics.collision.ShapeType;
 import com.timofriedl.simulationbox.vector.Vector2D;
 
 /**
@@ -9,9 +10,9 @@ import com.timofriedl.simulationbox.vector.Vector2D;
 public abstract class MassObject extends MovingObject {
 
 	/**
-	 * the (non-final) gravity constant in cube-units per (massUnit * square tick)
+	 * the default gravity constant in cube-units per (massUnit * square tick)
 	 */
-	public static double G = 6.67408E-11 * 0.001;
+	public static final double DEFAULT_G = 6.67408E-11 * 0.001;
 
 	/**
 	 * the mass of this object
@@ -41,7 +42,10 @@ public abstract class MassObject extends MovingObject {
 	/**
 	 * Calculates the gravity acceleration two another {@link MassObject}s.
 	 * 
-	 * Does nothing if this is <code>o</code>.
+	 * Uses the gravity constant of the simulation and does nothing if this is
+	 * <code>o</code>. Use a
+	 * {@link com.timofriedl.simulationbox.physics.gravity.GravitySolver} to
+	 * calculate the gravity between many objects at once.
 	 * 
 	 * @param o the object that this {@link MassObject} will be attracted to
 	 */
@@ -49,10 +53,19 @@ public abstract class MassObject extends MovingObject {
 		if (o == this)
 			return;
 
-		final Vector2D dis = o.position.subtract(position);
-		final Vector2D acc = dis.scale(G * o.mass / Math.pow(dis.length(), 3));
+		final double dx = o.position.getX() - position.getX();
+		final double dy = o.position.getY() - position.getY();
+		final double squareDistance = dx * dx + dy * dy;
+		final double f = simulation.getGravityConstant() * o.mass / (squareDistance * Math.sqrt(squareDistance));
 
-		speed = speed.add(acc);
+		speed = new Vector2D(speed.getX() + f * dx, speed.getY() + f * dy);
+	}
+
+	/**
+	 * @return the collision shape of this {@link MassObject}
+	 */
+	public ShapeType getShapeType() {
+		return ShapeType.BOX;
 	}
 
 	/**
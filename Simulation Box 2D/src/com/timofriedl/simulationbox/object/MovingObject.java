@@ -20,6 +20,21 @@ public abstract class MovingObject extends SimulationObject {
 	 */
 	protected double rotationSpeed;
 
+	/**
+	 * true if this object is at rest and is neither moved nor pushed
+	 */
+	private boolean sleeping;
+
+	/**
+	 * true if this object may fall asleep when it comes to rest
+	 */
+	private boolean sleepAllowed = true;
+
+	/**
+	 * the number of ticks this object has been almost at rest
+	 */
+	private int restTicks;
+
 	/**
 	 * Creates a new moving simulation object with given {@link SimulationObject}
 	 * attributes and a given speed and rotation speed.
@@ -42,17 +57,76 @@ public abstract class MovingObject extends SimulationObject {
 
 	@Override
 	public void tick() {
-		move();
+		if (!sleeping)
+			move();
+
+		publishRenderState(simulation.getGameLoop().getTickCount() + 1);
 	}
 
 	/**
 	 * Moves this object according to its current speed and rotation speed.
 	 */
 	private void move() {
-		position = position.add(speed);
+		if (speed.getX() != 0.0 || speed.getY() != 0.0)
+			position = position.add(speed);
 		rotation += rotationSpeed;
 	}
 
+	/**
+	 * Sets the position and wakes this object up if it is asleep and the
+	 * position changes. The rest counter of an awake object is kept, so
+	 * writing back an unchanged pose every tick does not keep it awake.
+	 * 
+	 * @param position the new object position
+	 */
+	@Override
+	public void setPosition(Vector2D position) {
+		if (sleeping && !sameVector(this.position, position))
+			wakeUp();
+
+		super.setPosition(position);
+	}
+
+	/**
+	 * Sets the size and wakes this object up if it is asleep and the size
+	 * changes.
+	 * 
+	 * @param size the new object size
+	 */
+	@Override
+	public void setSize(Vector2D size) {
+		if (sleeping && !sameVector(this.size, size))
+			wakeUp();
+
+		super.setSize(size);
+	}
+
+	/**
+	 * Sets the rotation and wakes this object up if it is asleep and the
+	 * rotation changes.
+	 * 
+	 * @param rotation the new rotation in radians
+	 */
+	@Override
+	public void setRotation(double rotation) {
+		if (sleeping && this.rotation != rotation)
+			wakeUp();
+
+		super.setRotation(rotation);
+	}
+
+	/**
+	 * @param a a vector, or null
+	 * @param b another vector, or null
+	 * @return true if both vectors have the same components
+	 */
+	private static boolean sameVector(Vector2D a, Vector2D b) {
+		if (a == b)
+			return true;
+
+		return a != null && b != null && a.getX() == b.getX() && a.getY() == b.getY();
+	}
+
 	/**
 	 * @return the object speed
 	 */
@@ -61,10 +135,15 @@ public abstract class MovingObject extends SimulationObject {
 	}
 
 	/**
+	 * Sets the speed and wakes this object up if the speed is not zero.
+	 * 
 	 * @param speed the new object speed
 	 */
 	public void setSpeed(Vector2D speed) {
 		this.speed = speed;
+
+		if (sleeping && (speed.getX() != 0.0 || speed.getY() != 0.0))
+			wakeUp();
 	}
 
 	/**
@@ -75,10 +154,74 @@ public abstract class MovingObject extends SimulationObject {
 	}
 
 	/**
+	 * Sets the rotation speed and wakes this object up if it is not zero.
+	 * 
 	 * @param rotationSpeed the new rotation speed
 	 */
 	public void setRotationSpeed(double rotationSpeed) {
 		this.rotationSpeed = rotationSpeed;
+
+		if (sleeping && rotationSpeed != 0.0)
+			wakeUp();
+	}
+
+	/**
+	 * Puts this object to sleep and stops it. Sleeping objects are not moved
+	 * until they are woken up.
+	 */
+	public void sleep() {
+		if (speed.getX() != 0.0 || speed.getY() != 0.0)
+			speed = Vector2D.ZERO;
+		rotationSpeed = 0.0;
+		sleeping = true;
+	}
+
+	/**
+	 * Wakes this object up and resets its rest counter.
+	 */
+	public void wakeUp() {
+		sleeping = false;
+		restTicks = 0;
+	}
+
+	/**
+	 * @return true if this object is asleep
+	 */
+	public boolean isSleeping() {
+		return sleeping;
+	}
+
+	/**
+	 * @return true if this object may fall asleep when it comes to rest
+	 */
+	public boolean isSleepAllowed() {
+		return sleepAllowed;
+	}
+
+	/**
+	 * @param sleepAllowed true if this object may fall asleep when it comes to
+	 *                     rest, false to keep it awake
+	 */
+	public void setSleepAllowed(boolean sleepAllowed) {
+		this.sleepAllowed = sleepAllowed;
+
+		if (!sleepAllowed)
+			wakeUp();
+	}
+
+	/**
+	 * @return the number of ticks this object has been almost at rest
+	 */
+	public int getRestTicks() {
+		return restTicks;
+	}
+
+	/**
+	 * @param restTicks the new number of ticks this object has been almost at
+	 *                  rest
+	 */
+	public void setRestTicks(int restTicks) {
+		this.restTicks = restTicks;
 	}
 
 }
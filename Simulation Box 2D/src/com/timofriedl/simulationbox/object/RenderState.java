@@ -0,0 +1,166 @@
+package com.timofriedl.simulationbox.object;
+
+/**
+ * A snapshot of the position and rotation of a {@link SimulationObject}
+ * before and after one simulation tick.
+ * 
+ * The tick thread publishes a new snapshot after each tick and the render
+ * thread interpolates between its two poses, so objects move smoothly even if
+ * the frame rate differs from the tick rate. A simulation object reuses three
+ * snapshots, so the states it publishes should be read right away and not
+ * kept for later frames.
+ * 
+ * @author Timo Friedl
+ */
+public final class RenderState {
+
+	/**
+	 * the number of the tick after which this state was taken
+	 */
+	private long tick;
+
+	/**
+	 * the pose before the tick
+	 */
+	private double previousX, previousY, previousRotation;
+
+	/**
+	 * the pose after the tick
+	 */
+	private double x, y, rotation;
+
+	/**
+	 * Creates a new render state.
+	 * 
+	 * @param tick             the number of the tick after which this state was
+	 *                         taken
+	 * @param previousX        the x position before the tick
+	 * @param previousY        the y position before the tick
+	 * @param previousRotation the rotation before the tick in radians
+	 * @param x                the x position after the tick
+	 * @param y                the y position after the tick
+	 * @param rotation         the rotation after the tick in radians
+	 */
+	public RenderState(long tick, double previousX, double previousY, double previousRotation, double x, double y,
+			double rotation) {
+		set(tick, previousX, previousY, previousRotation, x, y, rotation);
+	}
+
+	/**
+	 * Overwrites this state for reuse. Only called on states that are not
+	 * published at the moment.
+	 * 
+	 * @param tick             the number of the tick after which this state was
+	 *                         taken
+	 * @param previousX        the x position before the tick
+	 * @param previousY        the y position before the tick
+	 * @param previousRotation the rotation before the tick in radians
+	 * @param x                the x position after the tick
+	 * @param y                the y position after the tick
+	 * @param rotation         the rotation after the tick in radians
+	 */
+	void set(long tick, double previousX, double previousY, double previousRotation, double x, double y,
+			double rotation) {
+		this.tick = tick;
+		this.previousX = previousX;
+		this.previousY = previousY;
+		this.previousRotation = previousRotation;
+		this.x = x;
+		this.y = y;
+		this.rotation = rotation;
+	}
+
+	/**
+	 * Calculates how far the given render time lies inside the tick of this
+	 * state. Render times before the tick show the previous pose, render times
+	 * after it show the new pose.
+	 * 
+	 * @param time the render time in ticks, see
+	 *             {@link com.timofriedl.simulationbox.gameloop.GameLoop#getRenderTime()}
+	 * @return the interpolation factor from 0 to 1
+	 */
+	public double getAlpha(double time) {
+		return Math.min(Math.max(time - (tick - 1), 0.0), 1.0);
+	}
+
+	/**
+	 * @param time the render time in ticks
+	 * @return the interpolated x position
+	 */
+	public double getX(double time) {
+		return previousX + (x - previousX) * getAlpha(time);
+	}
+
+	/**
+	 * @param time the render time in ticks
+	 * @return the interpolated y position
+	 */
+	public double getY(double time) {
+		return previousY + (y - previousY) * getAlpha(time);
+	}
+
+	/**
+	 * @param time the render time in ticks
+	 * @return the interpolated rotation in radians
+	 */
+	public double getRotation(double time) {
+		return previousRotation + (rotation - previousRotation) * getAlpha(time);
+	}
+
+	/**
+	 * @return true if the pose did not change during the tick
+	 */
+	public boolean isStill() {
+		return previousX == x && previousY == y && previousRotation == rotation;
+	}
+
+	/**
+	 * @return the number of the tick after which this state was taken
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * @return the x position before the tick
+	 */
+	public double getPreviousX() {
+		return previousX;
+	}
+
+	/**
+	 * @return the y position before the tick
+	 */
+	public double getPreviousY() {
+		return previousY;
+	}
+
+	/**
+	 * @return the rotation before the tick in radians
+	 */
+	public double getPreviousRotation() {
+		return previousRotation;
+	}
+
+	/**
+	 * @return the x position after the tick
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * @return the y position after the tick
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * @return the rotation after the tick in radians
+	 */
+	public double getRotation() {
+		return rotation;
+	}
+
+}
@@ -33,6 +33,17 @@ public abstract class SimulationObject implements Tickable, Renderable {
 	 */
 	protected double rotation;
 
+	/**
+	 * the last two poses published for the render thread, or null if there are
+	 * none
+	 */
+	private volatile RenderState renderState, previousRenderState;
+
+	/**
+	 * the reused render states, created on the first publication
+	 */
+	private RenderState[] renderStates;
+
 	/**
 	 * Creates a new simulation object with a given position and size in the
 	 * simulation.
@@ -91,4 +102,126 @@ public abstract class SimulationObject implements Tickable, Renderable {
 		this.rotation = rotation;
 	}
 
+	/**
+	 * Publishes the current position and rotation for rendering. Does not
+	 * publish a new state if the object has not moved during the last two ticks.
+	 * If the tick has already been published by an earlier sub-step, the new
+	 * state still starts at the pose before the tick.
+	 * 
+	 * The states are taken from three reused instances, and the one that is
+	 * written is never one of the two published ones, so publishing does not
+	 * allocate. A render thread that keeps a state while two more states are
+	 * published may read a mixed pose for one frame.
+	 * 
+	 * @param tick the number of the tick that has just been calculated
+	 */
+	protected void publishRenderState(long tick) {
+		final RenderState state = renderState, older = previousRenderState;
+		final double x = position.getX(), y = position.getY();
+
+		if (state == null) {
+			renderStates = new RenderState[] { new RenderState(tick, x, y, rotation, x, y, rotation),
+					new RenderState(tick, x, y, rotation, x, y, rotation),
+					new RenderState(tick, x, y, rotation, x, y, rotation) };
+			renderState = renderStates[0];
+		} else if (state.getTick() == tick) {
+			final RenderState next = freeRenderState(state, older);
+			next.set(tick, state.getPreviousX(), state.getPreviousY(), state.getPreviousRotation(), x, y, rotation);
+			renderState = next;
+		} else if (!state.isStill() || state.getX() != x || state.getY() != y || state.getRotation() != rotation) {
+			final RenderState next = freeRenderState(state, older);
+			next.set(tick, state.getX(), state.getY(), state.getRotation(), x, y, rotation);
+
+			// the older state must be visible before the new one for getRenderState()
+			previousRenderState = state;
+			renderState = next;
+		}
+	}
+
+	/**
+	 * @param state the published render state
+	 * @param older the published state before it, or null
+	 * @return the reused render state that is not published
+	 */
+	private RenderState freeRenderState(RenderState state, RenderState older) {
+		for (RenderState s : renderStates)
+			if (s != state && s != older)
+				return s;
+
+		throw new IllegalStateException("No free render state.");
+	}
+
+	/**
+	 * Calculates a bounding box of all poses that {@link #getRenderState()} can
+	 * return until the next tick is published, which are the two poses of the
+	 * last published state and of the state before it. Objects that never
+	 * published a pose are bounded at their current one. Call from the tick
+	 * thread.
+	 * 
+	 * @param bounds the array to store the min x, min y, max x and max y
+	 *               position in
+	 * @param offset the index of the min x position in the array
+	 */
+	public void getRenderBounds(double[] bounds, int offset) {
+		final RenderState state = renderState, older = previousRenderState;
+		double minX = position.getX(), minY = position.getY(), maxX = minX, maxY = minY;
+		double minRotation = rotation, maxRotation = rotation;
+
+		if (state != null) {
+			minX = Math.min(state.getPreviousX(), state.getX());
+			minY = Math.min(state.getPreviousY(), state.getY());
+			maxX = Math.max(state.getPreviousX(), state.getX());
+			maxY = Math.max(state.getPreviousY(), state.getY());
+			minRotation = Math.min(state.getPreviousRotation(), state.getRotation());
+			maxRotation = Math.max(state.getPreviousRotation(), state.getRotation());
+		}
+
+		if (older != null) {
+			minX = Math.min(minX, Math.min(older.getPreviousX(), older.getX()));
+			minY = Math.min(minY, Math.min(older.getPreviousY(), older.getY()));
+			maxX = Math.max(maxX, Math.max(older.getPreviousX(), older.getX()));
+			maxY = Math.max(maxY, Math.max(older.getPreviousY(), older.getY()));
+			minRotation = Math.min(minRotation, Math.min(older.getPreviousRotation(), older.getRotation()));
+			maxRotation = Math.max(maxRotation, Math.max(older.getPreviousRotation(), older.getRotation()));
+		}
+
+		// a turning object is bounded by the circle around all of its rotations
+		double halfWidth, halfHeight;
+		if (minRotation == maxRotation) {
+			final double cos = minRotation == 0.0 ? 1.0 : Math.abs(Math.cos(minRotation));
+			final double sin = minRotation == 0.0 ? 0.0 : Math.abs(Math.sin(minRotation));
+			halfWidth = (cos * size.getX() + sin * size.getY()) * 0.5;
+			halfHeight = (sin * size.getX() + cos * size.getY()) * 0.5;
+		} else
+			halfWidth = halfHeight = Math.hypot(size.getX(), size.getY()) * 0.5;
+
+		bounds[offset] = minX - halfWidth;
+		bounds[offset + 1] = minY - halfHeight;
+		bounds[offset + 2] = maxX + halfWidth;
+		bounds[offset + 3] = maxY + halfHeight;
+	}
+
+	/**
+	 * Returns the published pose of this object for the current frame. If the
+	 * object has already published the tick that is being calculated, the pose
+	 * of the tick before is returned, so all objects of a frame show the same
+	 * tick. Objects that never published a pose return their current one. Safe to
+	 * call from the render thread while the simulation ticks.
+	 * 
+	 * @return the pose to render
+	 */
+	public RenderState getRenderState() {
+		final RenderState state = renderState;
+		if (state != null) {
+			final RenderState older = previousRenderState;
+			if (older != null && state.getTick() - 1 > simulation.getGameLoop().getRenderTime())
+				return older;
+
+			return state;
+		}
+
+		final double x = position.getX(), y = position.getY();
+		return new RenderState(0L, x, y, rotation, x, y, rotation);
+	}
+
 }
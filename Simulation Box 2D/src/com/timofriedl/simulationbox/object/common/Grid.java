@@ -35,9 +35,14 @@ public class Grid extends SimulationObject {
 	protected final int gridSize;
 
 	/**
-	 * the lines to render
+	 * the start and end coordinates (x1, y1, x2, y2) of the lines to render
 	 */
-	protected Vector2D[][] lines;
+	protected final double[] lines;
+
+	/**
+	 * the position and size that the current lines were calculated for
+	 */
+	private Vector2D linesPosition, linesSize;
 
 	/**
 	 * Creates a new square grid for better map orientation.
@@ -54,32 +59,56 @@ public class Grid extends SimulationObject {
 		this.color = color;
 		this.squareSize = squareSize;
 		this.gridSize = gridSize;
+
+		lines = new double[(gridSize * 2 + 2) * 4];
 	}
 
 	@Override
 	public void tick() {
-		lines = new Vector2D[gridSize * 2 + 2][2];
+		if (position == linesPosition && size == linesSize)
+			return;
 
-		final Vector2D ul = position.subtract(size).scale(0.5);
+		final double ulx = (position.getX() - size.getX()) * 0.5;
+		final double uly = (position.getY() - size.getY()) * 0.5;
 
 		for (int x = 0; x < gridSize + 1; x++) {
-			final double px = ul.getX() + x * squareSize;
-			lines[x][0] = new Vector2D(px, position.getY() - size.getY() * 0.5);
-			lines[x][1] = new Vector2D(px, position.getY() + size.getY() * 0.5);
+			final double px = ulx + x * squareSize;
+			setLine(x, px, position.getY() - size.getY() * 0.5, px, position.getY() + size.getY() * 0.5);
 		}
 
 		for (int y = 0; y < gridSize + 1; y++) {
-			final double py = ul.getY() + y * squareSize;
-			lines[gridSize + 1 + y][0] = new Vector2D(position.getX() - size.getX() * 0.5, py);
-			lines[gridSize + 1 + y][1] = new Vector2D(position.getX() + size.getX() * 0.5, py);
+			final double py = uly + y * squareSize;
+			setLine(gridSize + 1 + y, position.getX() - size.getX() * 0.5, py, position.getX() + size.getX() * 0.5, py);
 		}
+
+		linesPosition = position;
+		linesSize = size;
+	}
+
+	/**
+	 * Stores the coordinates of one grid line.
+	 * 
+	 * @param i  the index of the line
+	 * @param x1 the x coordinate of the start point
+	 * @param y1 the y coordinate of the start point
+	 * @param x2 the x coordinate of the end point
+	 * @param y2 the y coordinate of the end point
+	 */
+	private void setLine(int i, double x1, double y1, double x2, double y2) {
+		lines[i * 4] = x1;
+		lines[i * 4 + 1] = y1;
+		lines[i * 4 + 2] = x2;
+		lines[i * 4 + 3] = y2;
 	}
 
 	@Override
 	public void render(Graphics2D g) {
+		if (linesPosition == null)
+			return;
+
 		g.setColor(color);
-		for (Vector2D[] line : lines)
-			simulation.getCamera().drawLine(g, line[0], line[1], lineWidth);
+		for (int i = 0; i < lines.length; i += 4)
+			simulation.getCamera().drawLine(g, lines[i], lines[i + 1], lines[i + 2], lines[i + 3], lineWidth);
 	}
 
 	/**
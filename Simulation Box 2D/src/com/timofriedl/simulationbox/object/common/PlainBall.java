@@ -5,6 +5,8 @@ import java.awt.Graphics2D;
 
 import com.timofriedl.simulationbox.Simulation;
 import com.timofriedl.simulationbox.object.MassObject;
+import com.timofriedl.simulationbox.object.RenderState;
+import com.timofriedl.simulationbox.physics.collision.ShapeType;
 import com.timofriedl.simulationbox.vector.Vector2D;
 
 /**
@@ -37,8 +39,16 @@ public class PlainBall extends MassObject {
 
 	@Override
 	public void render(Graphics2D g) {
+		final RenderState state = getRenderState();
+		final double time = simulation.getGameLoop().getRenderTime();
+
 		g.setColor(color);
-		simulation.getCamera().fillCircle(g, position, size.getX());
+		simulation.getCamera().fillCircle(g, state.getX(time), state.getY(time), size.getX());
+	}
+
+	@Override
+	public ShapeType getShapeType() {
+		return ShapeType.CIRCLE;
 	}
 
 }
@@ -7,6 +7,7 @@ import javax.swing.Box;
 
 import com.timofriedl.simulationbox.Simulation;
 import com.timofriedl.simulationbox.object.MassObject;
+import com.timofriedl.simulationbox.object.RenderState;
 import com.timofriedl.simulationbox.object.SimulationObject;
 import com.timofriedl.simulationbox.vector.Vector2D;
 
@@ -41,8 +42,11 @@ public class PlainBox extends MassObject {
 
 	@Override
 	public void render(Graphics2D g) {
+		final RenderState state = getRenderState();
+		final double time = simulation.getGameLoop().getRenderTime();
+
 		g.setColor(color);
-		simulation.getCamera().fillRectangle(g, position, size, rotation);
+		simulation.getCamera().fillRectangle(g, state.getX(time), state.getY(time), size, state.getRotation(time));
 	}
 
 	/**
@@ -0,0 +1,19 @@
+package com.timofriedl.simulationbox.parallel;
+
+/**
+ * An action on a range of indices, e.g. of bodies or objects, that
+ * {@link RangeTask} can split across threads.
+ * 
+ * @author Timo Friedl
+ */
+public interface RangeAction {
+
+	/**
+	 * Runs this action for a range of indices.
+	 * 
+	 * @param from the first index
+	 * @param to   the index after the last index
+	 */
+	public void run(int from, int to);
+
+}
@@ -0,0 +1,81 @@
+package com.timofriedl.simulationbox.parallel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a {@link RangeAction} for a range of indices on a {@link ForkJoinPool},
+ * splitting the range in halves while both halves keep at least a minimum
+ * number of indices.
+ * 
+ * @author Timo Friedl
+ */
+public class RangeTask extends RecursiveAction {
+
+	/**
+	 * SVUID
+	 */
+	private static final long serialVersionUID = 5218377460291843816L;
+
+	/**
+	 * the action to run
+	 */
+	private final RangeAction action;
+
+	/**
+	 * the range of indices
+	 */
+	private final int from, to;
+
+	/**
+	 * the minimum number of indices that one task processes
+	 */
+	private final int minPerTask;
+
+	/**
+	 * Creates a new task for a range of indices.
+	 * 
+	 * @param action     the action to run
+	 * @param from       the first index
+	 * @param to         the index after the last index
+	 * @param minPerTask the minimum number of indices that one task processes
+	 */
+	private RangeTask(RangeAction action, int from, int to, int minPerTask) {
+		this.action = action;
+		this.from = from;
+		this.to = to;
+		this.minPerTask = minPerTask;
+	}
+
+	/**
+	 * Runs an action for a range of indices, in parallel if there is a pool and
+	 * the range is big enough to be split.
+	 * 
+	 * @param pool       the pool for parallel calculations, or null
+	 * @param from       the first index
+	 * @param to         the index after the last index
+	 * @param minPerTask the minimum number of indices that one task processes
+	 * @param action     the action to run for ranges of indices
+	 */
+	public static void run(ForkJoinPool pool, int from, int to, int minPerTask, RangeAction action) {
+		if (minPerTask < 1)
+			throw new IllegalArgumentException("Minimum range size must be positive.");
+
+		if (pool == null || to - from < 2 * minPerTask)
+			action.run(from, to);
+		else
+			pool.invoke(new RangeTask(action, from, to, minPerTask));
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from < 2 * minPerTask) {
+			action.run(from, to);
+			return;
+		}
+
+		final int mid = (from + to) >>> 1;
+		invokeAll(new RangeTask(action, from, mid, minPerTask), new RangeTask(action, mid, to, minPerTask));
+	}
+
+}
@@ -0,0 +1,378 @@
+package com.timofriedl.simulationbox.physics;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.timofriedl.simulationbox.object.MassObject;
+import com.timofriedl.simulationbox.object.MovingObject;
+import com.timofriedl.simulationbox.physics.gravity.GravitySolver;
+import com.timofriedl.simulationbox.physics.integration.ForceField;
+import com.timofriedl.simulationbox.vector.Vector2D;
+
+/**
+ * Stores the physical state of many bodies in primitive arrays, one array per
+ * attribute.
+ * 
+ * Bodies are addressed by their index. Ticking the bodies in this store does
+ * not create any objects, so it is suited for scenes with far more bodies than
+ * single {@link MovingObject}s could handle. Existing objects can be copied in
+ * and out with {@link #load(List)} and {@link #store(List)}.
+ * 
+ * The bodies can be moved with an explicit time step by an
+ * {@link com.timofriedl.simulationbox.physics.integration.Integrator}. The
+ * accelerations of the last force calculation are kept until the positions or
+ * the bodies change, so integrators can reuse them in the next step.
+ * 
+ * @author Timo Friedl
+ */
+public class BodyStore {
+
+	/**
+	 * the initial capacity of a new store
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * the number of bodies in this store
+	 */
+	private int size;
+
+	/**
+	 * the positions of the bodies
+	 */
+	private double[] x, y;
+
+	/**
+	 * the speeds of the bodies in units per tick
+	 */
+	private double[] vx, vy;
+
+	/**
+	 * the masses of the bodies
+	 */
+	private double[] mass;
+
+	/**
+	 * the rotations of the bodies in radians
+	 */
+	private double[] rotation;
+
+	/**
+	 * the rotation speeds of the bodies in radians per tick
+	 */
+	private double[] rotationSpeed;
+
+	/**
+	 * the accelerations of the last force calculation
+	 */
+	private double[] ax, ay;
+
+	/**
+	 * true if the accelerations belong to the current positions
+	 */
+	private boolean accelerationsValid;
+
+	/**
+	 * Creates a new empty body store.
+	 */
+	public BodyStore() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Creates a new empty body store with a given initial capacity.
+	 * 
+	 * @param capacity the number of bodies that fit in without growing
+	 */
+	public BodyStore(int capacity) {
+		capacity = Math.max(1, capacity);
+
+		x = new double[capacity];
+		y = new double[capacity];
+		vx = new double[capacity];
+		vy = new double[capacity];
+		mass = new double[capacity];
+		rotation = new double[capacity];
+		rotationSpeed = new double[capacity];
+		ax = new double[capacity];
+		ay = new double[capacity];
+	}
+
+	/**
+	 * Adds a new body to this store.
+	 * 
+	 * @param x             the x position of the body
+	 * @param y             the y position of the body
+	 * @param vx            the x speed of the body in units per tick
+	 * @param vy            the y speed of the body in units per tick
+	 * @param mass          the mass of the body
+	 * @param rotation      the rotation of the body in radians
+	 * @param rotationSpeed the rotation speed of the body in radians per tick
+	 * @return the index of the new body
+	 */
+	public int add(double x, double y, double vx, double vy, double mass, double rotation, double rotationSpeed) {
+		ensureCapacity(size + 1);
+
+		final int i = size++;
+		this.x[i] = x;
+		this.y[i] = y;
+		this.vx[i] = vx;
+		this.vy[i] = vy;
+		this.mass[i] = mass;
+		this.rotation[i] = rotation;
+		this.rotationSpeed[i] = rotationSpeed;
+		this.ax[i] = 0.0;
+		this.ay[i] = 0.0;
+		accelerationsValid = false;
+
+		return i;
+	}
+
+	/**
+	 * Removes a body from this store. The last body takes over the index of the
+	 * removed one.
+	 * 
+	 * @param i the index of the body to remove
+	 */
+	public void remove(int i) {
+		if (i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Body index " + i + " out of range for size " + size + ".");
+
+		final int last = --size;
+		x[i] = x[last];
+		y[i] = y[last];
+		vx[i] = vx[last];
+		vy[i] = vy[last];
+		mass[i] = mass[last];
+		rotation[i] = rotation[last];
+		rotationSpeed[i] = rotationSpeed[last];
+		ax[i] = ax[last];
+		ay[i] = ay[last];
+		accelerationsValid = false;
+	}
+
+	/**
+	 * Removes all bodies from this store.
+	 */
+	public void clear() {
+		size = 0;
+		accelerationsValid = false;
+	}
+
+	/**
+	 * Moves all bodies according to their current speeds and rotation speeds.
+	 */
+	public void move() {
+		move(1.0);
+	}
+
+	/**
+	 * Moves all bodies according to their current speeds and rotation speeds
+	 * for a given time.
+	 * 
+	 * @param dt the time step in ticks
+	 */
+	public void move(double dt) {
+		for (int i = 0; i < size; i++) {
+			x[i] += vx[i] * dt;
+			y[i] += vy[i] * dt;
+			rotation[i] += rotationSpeed[i] * dt;
+		}
+
+		accelerationsValid = false;
+	}
+
+	/**
+	 * Adds the accelerations of the last force calculation to the speeds of all
+	 * bodies for a given time.
+	 * 
+	 * @param dt the time step in ticks
+	 */
+	public void kick(double dt) {
+		for (int i = 0; i < size; i++) {
+			vx[i] += ax[i] * dt;
+			vy[i] += ay[i] * dt;
+		}
+	}
+
+	/**
+	 * Calculates the accelerations of all bodies at their current positions.
+	 * 
+	 * @param field the forces that accelerate the bodies
+	 */
+	public void computeAccelerations(ForceField field) {
+		field.computeAccelerations(size, size, x, y, mass, ax, ay);
+		accelerationsValid = true;
+	}
+
+	/**
+	 * Calculates the gravity between all bodies and adds the resulting
+	 * accelerations to their speeds.
+	 * 
+	 * @param solver the solver that calculates the accelerations
+	 * @param g      the gravity constant
+	 */
+	public void applyGravity(GravitySolver solver, double g) {
+		solver.computeAccelerations(g, size, x, y, mass, ax, ay);
+		accelerationsValid = true;
+
+		kick(1.0);
+	}
+
+	/**
+	 * Replaces the content of this store with the state of some objects. The
+	 * objects keep their list indices. Objects that are no {@link MassObject}s
+	 * get a mass of zero.
+	 * 
+	 * @param objects the objects to copy the state from
+	 */
+	public void load(List<? extends MovingObject> objects) {
+		final int n = objects.size();
+		ensureCapacity(n);
+		size = n;
+
+		for (int i = 0; i < n; i++) {
+			final MovingObject o = objects.get(i);
+			x[i] = o.getPosition().getX();
+			y[i] = o.getPosition().getY();
+			vx[i] = o.getSpeed().getX();
+			vy[i] = o.getSpeed().getY();
+			mass[i] = o instanceof MassObject ? ((MassObject) o).getMass() : 0.0;
+			rotation[i] = o.getRotation();
+			rotationSpeed[i] = o.getRotationSpeed();
+			ax[i] = 0.0;
+			ay[i] = 0.0;
+		}
+
+		accelerationsValid = false;
+	}
+
+	/**
+	 * Copies the positions, speeds and rotations of this store back to the
+	 * objects that were loaded with {@link #load(List)}.
+	 * 
+	 * @param objects the objects to copy the state to
+	 */
+	public void store(List<? extends MovingObject> objects) {
+		if (objects.size() != size)
+			throw new IllegalArgumentException("Object count does not match the number of bodies.");
+
+		for (int i = 0; i < size; i++) {
+			final MovingObject o = objects.get(i);
+			o.setPosition(new Vector2D(x[i], y[i]));
+			o.setSpeed(new Vector2D(vx[i], vy[i]));
+			o.setRotation(rotation[i]);
+			o.setRotationSpeed(rotationSpeed[i]);
+		}
+	}
+
+	/**
+	 * Grows all arrays to hold at least <code>n</code> bodies.
+	 * 
+	 * @param n the required number of bodies
+	 */
+	public void ensureCapacity(int n) {
+		if (x.length >= n)
+			return;
+
+		final int capacity = Math.max(n, x.length * 2);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		vx = Arrays.copyOf(vx, capacity);
+		vy = Arrays.copyOf(vy, capacity);
+		mass = Arrays.copyOf(mass, capacity);
+		rotation = Arrays.copyOf(rotation, capacity);
+		rotationSpeed = Arrays.copyOf(rotationSpeed, capacity);
+		ax = Arrays.copyOf(ax, capacity);
+		ay = Arrays.copyOf(ay, capacity);
+	}
+
+	/**
+	 * @return true if the accelerations were calculated for the current
+	 *         positions
+	 */
+	public boolean areAccelerationsValid() {
+		return accelerationsValid;
+	}
+
+	/**
+	 * Marks the accelerations as outdated, e.g. after the positions or masses
+	 * were changed through their arrays.
+	 */
+	public void invalidateAccelerations() {
+		accelerationsValid = false;
+	}
+
+	/**
+	 * @return the number of bodies in this store
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the x positions, valid up to {@link #size()}
+	 */
+	public double[] getX() {
+		return x;
+	}
+
+	/**
+	 * @return the y positions, valid up to {@link #size()}
+	 */
+	public double[] getY() {
+		return y;
+	}
+
+	/**
+	 * @return the x speeds, valid up to {@link #size()}
+	 */
+	public double[] getSpeedX() {
+		return vx;
+	}
+
+	/**
+	 * @return the y speeds, valid up to {@link #size()}
+	 */
+	public double[] getSpeedY() {
+		return vy;
+	}
+
+	/**
+	 * @return the masses, valid up to {@link #size()}
+	 */
+	public double[] getMass() {
+		return mass;
+	}
+
+	/**
+	 * @return the rotations in radians, valid up to {@link #size()}
+	 */
+	public double[] getRotation() {
+		return rotation;
+	}
+
+	/**
+	 * @return the rotation speeds in radians per tick, valid up to {@link #size()}
+	 */
+	public double[] getRotationSpeed() {
+		return rotationSpeed;
+	}
+
+	/**
+	 * @return the x accelerations of the last force calculation, valid up to
+	 *         {@link #size()}
+	 */
+	public double[] getAccelerationX() {
+		return ax;
+	}
+
+	/**
+	 * @return the y accelerations of the last force calculation, valid up to
+	 *         {@link #size()}
+	 */
+	public double[] getAccelerationY() {
+		return ay;
+	}
+
+}
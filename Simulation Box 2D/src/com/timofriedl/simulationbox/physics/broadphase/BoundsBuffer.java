@@ -0,0 +1,150 @@
+package com.timofriedl.simulationbox.physics.broadphase;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.timofriedl.simulationbox.object.MovingObject;
+import com.timofriedl.simulationbox.object.SimulationObject;
+
+/**
+ * Stores the axis-aligned bounding boxes of a list of
+ * {@link SimulationObject}s in primitive arrays.
+ * 
+ * The box of an object encloses the rectangle that is described by its
+ * position, size and rotation. Boxes of sleeping {@link MovingObject}s are
+ * kept from the last update as long as the object keeps its index.
+ * 
+ * @author Timo Friedl
+ */
+public class BoundsBuffer {
+
+	/**
+	 * the number of boxes
+	 */
+	private int size;
+
+	/**
+	 * the box borders of each object
+	 */
+	private double[] minX = new double[0], minY = new double[0], maxX = new double[0], maxY = new double[0];
+
+	/**
+	 * the object that each box was calculated for
+	 */
+	private SimulationObject[] owners = new SimulationObject[0];
+
+	/**
+	 * Recalculates the bounding boxes of all given objects.
+	 * 
+	 * @param objects the objects to calculate the boxes for
+	 */
+	public void update(List<? extends SimulationObject> objects) {
+		final int n = objects.size();
+		ensureCapacity(n);
+		if (n < size)
+			Arrays.fill(owners, n, size, null);
+		size = n;
+
+		for (int i = 0; i < n; i++) {
+			final SimulationObject o = objects.get(i);
+			if (owners[i] != o || !(o instanceof MovingObject) || !((MovingObject) o).isSleeping())
+				update(i, o);
+		}
+	}
+
+	/**
+	 * Recalculates the bounding box of one object.
+	 * 
+	 * @param i the index of the box
+	 * @param o the object to calculate the box for
+	 */
+	public void update(int i, SimulationObject o) {
+		final double w = o.getSize().getX();
+		final double h = o.getSize().getY();
+		final double rotation = o.getRotation();
+
+		double halfWidth = w * 0.5, halfHeight = h * 0.5;
+		if (rotation != 0.0) {
+			final double cos = Math.abs(Math.cos(rotation));
+			final double sin = Math.abs(Math.sin(rotation));
+			halfWidth = (cos * w + sin * h) * 0.5;
+			halfHeight = (sin * w + cos * h) * 0.5;
+		}
+
+		final double x = o.getPosition().getX();
+		final double y = o.getPosition().getY();
+		minX[i] = x - halfWidth;
+		minY[i] = y - halfHeight;
+		maxX[i] = x + halfWidth;
+		maxY[i] = y + halfHeight;
+		owners[i] = o;
+	}
+
+	/**
+	 * Checks if the boxes of two objects overlap. Touching boxes overlap.
+	 * 
+	 * @param a the index of one box
+	 * @param b the index of the other box
+	 * @return true if the boxes overlap, false else
+	 */
+	public boolean overlap(int a, int b) {
+		return minX[a] <= maxX[b] && minX[b] <= maxX[a] && minY[a] <= maxY[b] && minY[b] <= maxY[a];
+	}
+
+	/**
+	 * Grows the arrays to hold at least <code>n</code> boxes.
+	 * 
+	 * @param n the required number of boxes
+	 */
+	public void ensureCapacity(int n) {
+		if (minX.length >= n)
+			return;
+
+		final int capacity = Math.max(n, minX.length * 2);
+		minX = Arrays.copyOf(minX, capacity);
+		minY = Arrays.copyOf(minY, capacity);
+		maxX = Arrays.copyOf(maxX, capacity);
+		maxY = Arrays.copyOf(maxY, capacity);
+		owners = Arrays.copyOf(owners, capacity);
+	}
+
+	/**
+	 * @return the number of boxes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param i the index of a box
+	 * @return the left border of the box
+	 */
+	public double getMinX(int i) {
+		return minX[i];
+	}
+
+	/**
+	 * @param i the index of a box
+	 * @return the upper border of the box
+	 */
+	public double getMinY(int i) {
+		return minY[i];
+	}
+
+	/**
+	 * @param i the index of a box
+	 * @return the right border of the box
+	 */
+	public double getMaxX(int i) {
+		return maxX[i];
+	}
+
+	/**
+	 * @param i the index of a box
+	 * @return the lower border of the box
+	 */
+	public double getMaxY(int i) {
+		return maxY[i];
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.timofriedl.simulationbox.physics.broadphase;
+
+import java.util.List;
+
+import com.timofriedl.simulationbox.object.SimulationObject;
+
+/**
+ * Finds the pairs of {@link SimulationObject}s that might collide, i.e. whose
+ * axis-aligned bounding boxes overlap.
+ * 
+ * Objects are identified by their index in the given list. Implementations may
+ * keep state between calls, so one instance should always be used with the
+ * same list of objects.
+ * 
+ * @author Timo Friedl
+ */
+public interface Broadphase {
+
+	/**
+	 * Finds all pairs of objects whose bounding boxes overlap.
+	 * 
+	 * @param objects the objects to test
+	 * @param pairs   the buffer to write the pairs of object indices to, will be
+	 *                cleared first
+	 */
+	public void findPairs(List<? extends SimulationObject> objects, PairBuffer pairs);
+
+}
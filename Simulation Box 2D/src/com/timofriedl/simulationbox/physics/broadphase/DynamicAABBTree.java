@@ -0,0 +1,972 @@
+package com.timofriedl.simulationbox.physics.broadphase;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.timofriedl.simulationbox.object.MovingObject;
+import com.timofriedl.simulationbox.object.SimulationObject;
+
+/**
+ * A {@link Broadphase} that keeps the bounding boxes of all objects in a
+ * balanced binary tree of nested boxes.
+ * 
+ * Each leaf (proxy) holds a fattened box that is a bit bigger than its object,
+ * so the tree only changes if an object leaves its fattened box. Inserting,
+ * removing and moving proxies costs O(log n) because the tree is kept balanced
+ * by rotations. Unlike a uniform grid, the tree does not depend on the object
+ * sizes, so it suits scenes with huge and tiny objects side by side.
+ * 
+ * Proxies can be managed by hand, or the tree can be used as a broadphase, in
+ * which case the data of each proxy is the list index of its object. Point,
+ * box and ray queries are exposed for user code in both cases.
+ * 
+ * @author Timo Friedl
+ */
+public class DynamicAABBTree implements Broadphase {
+
+	/**
+	 * the index of a missing node
+	 */
+	public static final int NULL = -1;
+
+	/**
+	 * the default fattening of each box, relative to its bigger side
+	 */
+	public static final double DEFAULT_MARGIN = 0.1;
+
+	/**
+	 * the factor by which boxes are stretched in the direction of the object
+	 * speed
+	 */
+	private static final double DISPLACEMENT_MULTIPLIER = 2.0;
+
+	/**
+	 * the box borders of each node, stored as min x, min y, max x and max y next
+	 * to each other, so a node test reads one cache line
+	 */
+	private double[] box;
+
+	/**
+	 * the parent and children of each node, or the next free node for free nodes
+	 */
+	private int[] parent, child1, child2;
+
+	/**
+	 * the height of each node, zero for leaves and -1 for free nodes
+	 */
+	private int[] height;
+
+	/**
+	 * the user data of each leaf
+	 */
+	private int[] data;
+
+	/**
+	 * the root node
+	 */
+	private int root = NULL;
+
+	/**
+	 * the first free node
+	 */
+	private int freeList = NULL;
+
+	/**
+	 * the number of used nodes
+	 */
+	private int nodeCount;
+
+	/**
+	 * the number of nodes with storage
+	 */
+	private int capacity;
+
+	/**
+	 * the fattening of each box, relative to its bigger side
+	 */
+	private double margin = DEFAULT_MARGIN;
+
+	/**
+	 * the stack for tree traversals
+	 */
+	private int[] stack = new int[64];
+
+	/**
+	 * the exact bounding boxes of the objects of the last broadphase call
+	 */
+	private final BoundsBuffer bounds = new BoundsBuffer();
+
+	/**
+	 * the proxy of each object index of the last broadphase call
+	 */
+	private int[] proxies = new int[0];
+
+	/**
+	 * the number of objects of the last broadphase call
+	 */
+	private int objectCount;
+
+	/**
+	 * Creates a new empty tree.
+	 */
+	public DynamicAABBTree() {
+		allocate(16);
+	}
+
+	/**
+	 * Adds a proxy for a box.
+	 * 
+	 * @param minX the left border of the box
+	 * @param minY the upper border of the box
+	 * @param maxX the right border of the box
+	 * @param maxY the lower border of the box
+	 * @param data the user data of the proxy, e.g. an object index
+	 * @return the id of the new proxy
+	 */
+	public int insert(double minX, double minY, double maxX, double maxY, int data) {
+		final int proxy = allocateNode();
+		setFatBox(proxy, minX, minY, maxX, maxY, 0.0, 0.0);
+		this.data[proxy] = data;
+		height[proxy] = 0;
+
+		insertLeaf(proxy);
+		return proxy;
+	}
+
+	/**
+	 * Adds a proxy for the bounding box of an object.
+	 * 
+	 * @param o    the object
+	 * @param data the user data of the proxy, e.g. an object index
+	 * @return the id of the new proxy
+	 */
+	public int insert(SimulationObject o, int data) {
+		final double halfWidth = halfWidth(o), halfHeight = halfHeight(o);
+		final double x = o.getPosition().getX(), y = o.getPosition().getY();
+		return insert(x - halfWidth, y - halfHeight, x + halfWidth, y + halfHeight, data);
+	}
+
+	/**
+	 * Removes a proxy.
+	 * 
+	 * @param proxy the id of the proxy
+	 */
+	public void remove(int proxy) {
+		checkProxy(proxy);
+
+		removeLeaf(proxy);
+		freeNode(proxy);
+	}
+
+	/**
+	 * Updates the box of a proxy. The tree only changes if the new box is not
+	 * inside the fattened box of the proxy.
+	 * 
+	 * @param proxy         the id of the proxy
+	 * @param minX          the new left border of the box
+	 * @param minY          the new upper border of the box
+	 * @param maxX          the new right border of the box
+	 * @param maxY          the new lower border of the box
+	 * @param displacementX the expected x movement until the next update
+	 * @param displacementY the expected y movement until the next update
+	 * @return true if the proxy was moved in the tree, false if it still fits
+	 */
+	public boolean move(int proxy, double minX, double minY, double maxX, double maxY, double displacementX,
+			double displacementY) {
+		checkProxy(proxy);
+
+		if (box[4 * proxy] <= minX && box[4 * proxy + 1] <= minY && maxX <= box[4 * proxy + 2]
+				&& maxY <= box[4 * proxy + 3])
+			return false;
+
+		removeLeaf(proxy);
+		setFatBox(proxy, minX, minY, maxX, maxY, displacementX, displacementY);
+		insertLeaf(proxy);
+		return true;
+	}
+
+	/**
+	 * Updates the box of a proxy to the bounding box of an object.
+	 * 
+	 * @param proxy the id of the proxy
+	 * @param o     the object
+	 * @return true if the proxy was moved in the tree, false if it still fits
+	 */
+	public boolean move(int proxy, SimulationObject o) {
+		final double halfWidth = halfWidth(o), halfHeight = halfHeight(o);
+		final double x = o.getPosition().getX(), y = o.getPosition().getY();
+		double dx = 0.0, dy = 0.0;
+		if (o instanceof MovingObject) {
+			dx = ((MovingObject) o).getSpeed().getX();
+			dy = ((MovingObject) o).getSpeed().getY();
+		}
+
+		return move(proxy, x - halfWidth, y - halfHeight, x + halfWidth, y + halfHeight, dx, dy);
+	}
+
+	/**
+	 * Finds all proxies whose fattened box overlaps a given box.
+	 * 
+	 * @param minX     the left border of the box
+	 * @param minY     the upper border of the box
+	 * @param maxX     the right border of the box
+	 * @param maxY     the lower border of the box
+	 * @param callback the callback that receives the found proxies
+	 */
+	public void query(double minX, double minY, double maxX, double maxY, TreeQueryCallback callback) {
+		if (root == NULL)
+			return;
+
+		int top = 0;
+		stack[top++] = root;
+
+		while (top > 0) {
+			final int node = stack[--top];
+			if (box[4 * node] > maxX || minX > box[4 * node + 2] || box[4 * node + 1] > maxY
+					|| minY > box[4 * node + 3])
+				continue;
+
+			if (height[node] == 0) {
+				if (!callback.found(node))
+					return;
+			} else {
+				top = push(top, child1[node], child2[node]);
+			}
+		}
+	}
+
+	/**
+	 * Finds all proxies whose fattened box overlaps the bounding box of an
+	 * object.
+	 * 
+	 * @param o        the object
+	 * @param callback the callback that receives the found proxies
+	 */
+	public void query(SimulationObject o, TreeQueryCallback callback) {
+		final double halfWidth = halfWidth(o), halfHeight = halfHeight(o);
+		final double x = o.getPosition().getX(), y = o.getPosition().getY();
+		query(x - halfWidth, y - halfHeight, x + halfWidth, y + halfHeight, callback);
+	}
+
+	/**
+	 * Finds all proxies whose fattened box contains a point.
+	 * 
+	 * @param x        the ingame x position of the point
+	 * @param y        the ingame y position of the point
+	 * @param callback the callback that receives the found proxies
+	 */
+	public void queryPoint(double x, double y, TreeQueryCallback callback) {
+		query(x, y, x, y, callback);
+	}
+
+	/**
+	 * Finds all proxies whose fattened box is hit by a line segment, in no
+	 * particular order.
+	 * 
+	 * @param x1       the ingame x position of the segment start
+	 * @param y1       the ingame y position of the segment start
+	 * @param x2       the ingame x position of the segment end
+	 * @param y2       the ingame y position of the segment end
+	 * @param callback the callback that receives the found proxies
+	 */
+	public void rayCast(double x1, double y1, double x2, double y2, TreeQueryCallback callback) {
+		if (root == NULL)
+			return;
+
+		final double dx = x2 - x1, dy = y2 - y1;
+		final double inverseX = 1.0 / dx, inverseY = 1.0 / dy;
+
+		int top = 0;
+		stack[top++] = root;
+
+		while (top > 0) {
+			final int node = stack[--top];
+			if (!hitsSegment(node, x1, y1, dx, dy, inverseX, inverseY))
+				continue;
+
+			if (height[node] == 0) {
+				if (!callback.found(node))
+					return;
+			} else {
+				top = push(top, child1[node], child2[node]);
+			}
+		}
+	}
+
+	@Override
+	public void findPairs(List<? extends SimulationObject> objects, PairBuffer pairs) {
+		pairs.clear();
+
+		final int n = objects.size();
+		bounds.update(objects);
+		syncProxies(objects, n);
+
+		if (root == NULL)
+			return;
+
+		// descend into all pairs of overlapping nodes, a pair of equal nodes
+		// stands for the pairs inside one subtree
+		int top = push(0, root, root);
+
+		while (top > 0) {
+			final int b = stack[--top];
+			final int a = stack[--top];
+
+			if (a == b) {
+				if (height[a] > 0) {
+					top = push(top, child1[a], child1[a]);
+					top = push(top, child2[a], child2[a]);
+					top = push(top, child1[a], child2[a]);
+				}
+				continue;
+			}
+
+			if (box[4 * a] > box[4 * b + 2] || box[4 * b] > box[4 * a + 2] || box[4 * a + 1] > box[4 * b + 3]
+					|| box[4 * b + 1] > box[4 * a + 3])
+				continue;
+
+			if (height[a] == 0 && height[b] == 0) {
+				if (bounds.overlap(data[a], data[b]))
+					pairs.add(data[a], data[b]);
+			} else if (height[b] == 0 || height[a] > 0 && perimeter(a) >= perimeter(b)) {
+				top = push(top, child1[a], b);
+				top = push(top, child2[a], b);
+			} else {
+				top = push(top, a, child1[b]);
+				top = push(top, a, child2[b]);
+			}
+		}
+	}
+
+	/**
+	 * Creates, moves and removes the proxies of the broadphase objects, so there
+	 * is exactly one proxy per list index.
+	 * 
+	 * @param objects the objects of the current call
+	 * @param n       the number of objects
+	 */
+	private void syncProxies(List<? extends SimulationObject> objects, int n) {
+		for (int i = n; i < objectCount; i++)
+			remove(proxies[i]);
+
+		if (proxies.length < n)
+			proxies = Arrays.copyOf(proxies, Math.max(n, proxies.length * 2));
+
+		for (int i = 0; i < n; i++) {
+			final SimulationObject o = objects.get(i);
+
+			if (i >= objectCount) {
+				proxies[i] = insert(bounds.getMinX(i), bounds.getMinY(i), bounds.getMaxX(i), bounds.getMaxY(i), i);
+				continue;
+			}
+
+			double dx = 0.0, dy = 0.0;
+			if (o instanceof MovingObject) {
+				dx = ((MovingObject) o).getSpeed().getX();
+				dy = ((MovingObject) o).getSpeed().getY();
+			}
+			move(proxies[i], bounds.getMinX(i), bounds.getMinY(i), bounds.getMaxX(i), bounds.getMaxY(i), dx, dy);
+		}
+
+		objectCount = n;
+	}
+
+	/**
+	 * @param proxy the id of a broadphase proxy
+	 * @return the list index of its object in the last broadphase call, or the
+	 *         user data of a proxy that was inserted by hand
+	 */
+	public int getData(int proxy) {
+		checkProxy(proxy);
+		return data[proxy];
+	}
+
+	/**
+	 * @param index the list index of an object of the last broadphase call
+	 * @return the id of its proxy
+	 */
+	public int getProxy(int index) {
+		if (index < 0 || index >= objectCount)
+			throw new IndexOutOfBoundsException("Object index " + index + " out of range.");
+
+		return proxies[index];
+	}
+
+	/**
+	 * @param proxy the id of a proxy
+	 * @return the left border of its fattened box
+	 */
+	public double getMinX(int proxy) {
+		return box[4 * proxy];
+	}
+
+	/**
+	 * @param proxy the id of a proxy
+	 * @return the upper border of its fattened box
+	 */
+	public double getMinY(int proxy) {
+		return box[4 * proxy + 1];
+	}
+
+	/**
+	 * @param proxy the id of a proxy
+	 * @return the right border of its fattened box
+	 */
+	public double getMaxX(int proxy) {
+		return box[4 * proxy + 2];
+	}
+
+	/**
+	 * @param proxy the id of a proxy
+	 * @return the lower border of its fattened box
+	 */
+	public double getMaxY(int proxy) {
+		return box[4 * proxy + 3];
+	}
+
+	/**
+	 * @return the height of the tree, zero for an empty tree or a single leaf
+	 */
+	public int getHeight() {
+		return root == NULL ? 0 : height[root];
+	}
+
+	/**
+	 * @return the number of used nodes, including inner nodes
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @return the fattening of each box, relative to its bigger side
+	 */
+	public double getMargin() {
+		return margin;
+	}
+
+	/**
+	 * @param margin the new fattening of each box, relative to its bigger side
+	 */
+	public void setMargin(double margin) {
+		if (!(margin >= 0.0))
+			throw new IllegalArgumentException("Margin must not be negative.");
+
+		this.margin = margin;
+	}
+
+	/**
+	 * Inserts a leaf next to the sibling that enlarges the tree the least.
+	 * 
+	 * @param leaf the leaf node
+	 */
+	private void insertLeaf(int leaf) {
+		if (root == NULL) {
+			root = leaf;
+			parent[leaf] = NULL;
+			return;
+		}
+
+		final int sibling = findBestSibling(leaf);
+		final int oldParent = parent[sibling];
+		final int newParent = allocateNode();
+		parent[newParent] = oldParent;
+		data[newParent] = NULL;
+		child1[newParent] = sibling;
+		child2[newParent] = leaf;
+		parent[sibling] = newParent;
+		parent[leaf] = newParent;
+		refit(newParent);
+
+		if (oldParent == NULL)
+			root = newParent;
+		else if (child1[oldParent] == sibling)
+			child1[oldParent] = newParent;
+		else
+			child2[oldParent] = newParent;
+
+		fixUpwards(parent[leaf]);
+	}
+
+	/**
+	 * Removes a leaf and its parent node from the tree.
+	 * 
+	 * @param leaf the leaf node
+	 */
+	private void removeLeaf(int leaf) {
+		if (leaf == root) {
+			root = NULL;
+			return;
+		}
+
+		final int oldParent = parent[leaf];
+		final int grandParent = parent[oldParent];
+		final int sibling = child1[oldParent] == leaf ? child2[oldParent] : child1[oldParent];
+
+		if (grandParent == NULL) {
+			root = sibling;
+			parent[sibling] = NULL;
+		} else {
+			if (child1[grandParent] == oldParent)
+				child1[grandParent] = sibling;
+			else
+				child2[grandParent] = sibling;
+			parent[sibling] = grandParent;
+
+			fixUpwards(grandParent);
+		}
+
+		freeNode(oldParent);
+	}
+
+	/**
+	 * Balances and refits all nodes from the given node up to the root.
+	 * 
+	 * @param node the first node to fix
+	 */
+	private void fixUpwards(int node) {
+		while (node != NULL) {
+			refit(node);
+
+			final int balanced = balance(node);
+			if (balanced == node)
+				improve(node);
+
+			node = parent[balanced];
+		}
+	}
+
+	/**
+	 * Rotates the taller grandchild up if the children of a node differ in
+	 * height by more than one.
+	 * 
+	 * @param a the node to balance
+	 * @return the node that took the place of <code>a</code>
+	 */
+	private int balance(int a) {
+		if (height[a] < 2)
+			return a;
+
+		final int b = child1[a], c = child2[a];
+		final int difference = height[c] - height[b];
+
+		if (difference > 1)
+			return rotate(a, c, false);
+		if (difference < -1)
+			return rotate(a, b, true);
+
+		return a;
+	}
+
+	/**
+	 * Rotates a child up to the place of its parent.
+	 * 
+	 * @param a     the parent node
+	 * @param up    the child node to rotate up
+	 * @param first true if <code>up</code> is the first child of <code>a</code>
+	 * @return the rotated child
+	 */
+	private int rotate(int a, int up, boolean first) {
+		final int f = child1[up], g = child2[up];
+
+		child1[up] = a;
+		parent[up] = parent[a];
+		parent[a] = up;
+
+		if (parent[up] == NULL)
+			root = up;
+		else if (child1[parent[up]] == a)
+			child1[parent[up]] = up;
+		else
+			child2[parent[up]] = up;
+
+		// the taller grandchild stays below the rotated node
+		final int keep = height[f] > height[g] ? f : g;
+		final int give = keep == f ? g : f;
+
+		child2[up] = keep;
+		if (first)
+			child1[a] = give;
+		else
+			child2[a] = give;
+		parent[give] = a;
+
+		refit(a);
+		refit(up);
+		return up;
+	}
+
+	/**
+	 * Swaps a child with a grandchild, or two grandchildren, if that makes the
+	 * boxes of the children of a node smaller.
+	 * 
+	 * @param a the node to improve
+	 */
+	private void improve(int a) {
+		if (height[a] < 2)
+			return;
+
+		final int b = child1[a], c = child2[a];
+		final double perimeterB = perimeter(b), perimeterC = perimeter(c);
+		double bestGain = 0.0;
+		int swapX = NULL, swapY = NULL;
+
+		if (height[c] > 0) {
+			final int f = child1[c], g = child2[c];
+
+			final double gainF = perimeterC - unionPerimeter(b, g);
+			if (gainF > bestGain) {
+				bestGain = gainF;
+				swapX = b;
+				swapY = f;
+			}
+
+			final double gainG = perimeterC - unionPerimeter(b, f);
+			if (gainG > bestGain) {
+				bestGain = gainG;
+				swapX = b;
+				swapY = g;
+			}
+		}
+
+		if (height[b] > 0) {
+			final int d = child1[b], e = child2[b];
+
+			final double gainD = perimeterB - unionPerimeter(c, e);
+			if (gainD > bestGain) {
+				bestGain = gainD;
+				swapX = c;
+				swapY = d;
+			}
+
+			final double gainE = perimeterB - unionPerimeter(c, d);
+			if (gainE > bestGain) {
+				bestGain = gainE;
+				swapX = c;
+				swapY = e;
+			}
+
+			if (height[c] > 0) {
+				final int f = child1[c], g = child2[c];
+
+				final double gainDF = perimeterB + perimeterC - unionPerimeter(f, e) - unionPerimeter(d, g);
+				if (gainDF > bestGain) {
+					bestGain = gainDF;
+					swapX = d;
+					swapY = f;
+				}
+
+				final double gainDG = perimeterB + perimeterC - unionPerimeter(g, e) - unionPerimeter(f, d);
+				if (gainDG > bestGain) {
+					bestGain = gainDG;
+					swapX = d;
+					swapY = g;
+				}
+			}
+		}
+
+		if (swapX == NULL)
+			return;
+
+		final int parentX = parent[swapX], parentY = parent[swapY];
+		replaceChild(parentX, swapX, swapY);
+		replaceChild(parentY, swapY, swapX);
+
+		if (parentX != a)
+			refit(parentX);
+		if (parentY != a)
+			refit(parentY);
+		refit(a);
+	}
+
+	/**
+	 * Replaces a child of a node.
+	 * 
+	 * @param node     the parent node
+	 * @param oldChild the child to replace
+	 * @param newChild the new child
+	 */
+	private void replaceChild(int node, int oldChild, int newChild) {
+		if (child1[node] == oldChild)
+			child1[node] = newChild;
+		else
+			child2[node] = newChild;
+		parent[newChild] = node;
+	}
+
+	/**
+	 * Recalculates the box and height of an inner node from its children.
+	 * 
+	 * @param node the node
+	 */
+	private void refit(int node) {
+		if (child1[node] == NULL)
+			return;
+
+		final int c1 = child1[node], c2 = child2[node];
+		box[4 * node] = Math.min(box[4 * c1], box[4 * c2]);
+		box[4 * node + 1] = Math.min(box[4 * c1 + 1], box[4 * c2 + 1]);
+		box[4 * node + 2] = Math.max(box[4 * c1 + 2], box[4 * c2 + 2]);
+		box[4 * node + 3] = Math.max(box[4 * c1 + 3], box[4 * c2 + 3]);
+		height[node] = 1 + Math.max(height[c1], height[c2]);
+	}
+
+	/**
+	 * Sets the fattened box of a leaf.
+	 * 
+	 * @param leaf          the leaf node
+	 * @param minX          the left border of the exact box
+	 * @param minY          the upper border of the exact box
+	 * @param maxX          the right border of the exact box
+	 * @param maxY          the lower border of the exact box
+	 * @param displacementX the expected x movement until the next update
+	 * @param displacementY the expected y movement until the next update
+	 */
+	private void setFatBox(int leaf, double minX, double minY, double maxX, double maxY, double displacementX,
+			double displacementY) {
+		final double fat = margin * Math.max(maxX - minX, maxY - minY);
+		final double dx = DISPLACEMENT_MULTIPLIER * displacementX, dy = DISPLACEMENT_MULTIPLIER * displacementY;
+
+		box[4 * leaf] = minX - fat + Math.min(dx, 0.0);
+		box[4 * leaf + 1] = minY - fat + Math.min(dy, 0.0);
+		box[4 * leaf + 2] = maxX + fat + Math.max(dx, 0.0);
+		box[4 * leaf + 3] = maxY + fat + Math.max(dy, 0.0);
+	}
+
+	/**
+	 * @param node the node
+	 * @return the perimeter of its box
+	 */
+	private double perimeter(int node) {
+		return 2.0 * (box[4 * node + 2] - box[4 * node] + box[4 * node + 3] - box[4 * node + 1]);
+	}
+
+	/**
+	 * @param a one node
+	 * @param b another node
+	 * @return the perimeter of the box that encloses both boxes
+	 */
+	private double unionPerimeter(int a, int b) {
+		final double width = Math.max(box[4 * a + 2], box[4 * b + 2]) - Math.min(box[4 * a], box[4 * b]);
+		final double height = Math.max(box[4 * a + 3], box[4 * b + 3]) - Math.min(box[4 * a + 1], box[4 * b + 1]);
+		return 2.0 * (width + height);
+	}
+
+	/**
+	 * Finds the node that enlarges the tree the least if a leaf is inserted next
+	 * to it. The cost of a sibling is the perimeter of the new parent plus the
+	 * perimeter growth of all its ancestors. Subtrees are skipped if a lower
+	 * bound of their cost is not better than the best sibling so far, so huge
+	 * leaves do not attract small ones.
+	 * 
+	 * @param leaf the leaf to insert
+	 * @return the best sibling
+	 */
+	private int findBestSibling(int leaf) {
+		final double leafPerimeter = perimeter(leaf);
+		double perimeter = perimeter(root);
+		double direct = unionPerimeter(root, leaf);
+		double inherited = 0.0;
+		double bestCost = direct;
+		int best = root;
+		int index = root;
+
+		while (height[index] > 0) {
+			final double cost = direct + inherited;
+			if (cost < bestCost) {
+				bestCost = cost;
+				best = index;
+			}
+			inherited += direct - perimeter;
+
+			final int c1 = child1[index], c2 = child2[index];
+			final boolean leaf1 = height[c1] == 0, leaf2 = height[c2] == 0;
+			final double direct1 = unionPerimeter(c1, leaf), direct2 = unionPerimeter(c2, leaf);
+			final double perimeter1 = perimeter(c1), perimeter2 = perimeter(c2);
+			double lowerCost1 = Double.MAX_VALUE, lowerCost2 = Double.MAX_VALUE;
+
+			if (leaf1) {
+				if (direct1 + inherited < bestCost) {
+					bestCost = direct1 + inherited;
+					best = c1;
+				}
+			} else
+				lowerCost1 = inherited + direct1 + Math.min(leafPerimeter - perimeter1, 0.0);
+
+			if (leaf2) {
+				if (direct2 + inherited < bestCost) {
+					bestCost = direct2 + inherited;
+					best = c2;
+				}
+			} else
+				lowerCost2 = inherited + direct2 + Math.min(leafPerimeter - perimeter2, 0.0);
+
+			if (leaf1 && leaf2 || bestCost <= lowerCost1 && bestCost <= lowerCost2)
+				break;
+
+			if (lowerCost1 == lowerCost2 && !leaf1) {
+				// both children contain the leaf, take the closer one
+				lowerCost1 = centerDistance(c1, leaf);
+				lowerCost2 = centerDistance(c2, leaf);
+			}
+
+			if (lowerCost1 < lowerCost2 && !leaf1) {
+				index = c1;
+				perimeter = perimeter1;
+				direct = direct1;
+			} else {
+				index = c2;
+				perimeter = perimeter2;
+				direct = direct2;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * @param a one node
+	 * @param b another node
+	 * @return the square distance of the box centers, times four
+	 */
+	private double centerDistance(int a, int b) {
+		final double dx = box[4 * a] + box[4 * a + 2] - box[4 * b] - box[4 * b + 2];
+		final double dy = box[4 * a + 1] + box[4 * a + 3] - box[4 * b + 1] - box[4 * b + 3];
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Tests if a line segment hits the box of a node.
+	 * 
+	 * @param node     the node
+	 * @param x1       the x position of the segment start
+	 * @param y1       the y position of the segment start
+	 * @param dx       the x extent of the segment
+	 * @param dy       the y extent of the segment
+	 * @param inverseX 1 / dx
+	 * @param inverseY 1 / dy
+	 * @return true if the segment hits the box
+	 */
+	private boolean hitsSegment(int node, double x1, double y1, double dx, double dy, double inverseX,
+			double inverseY) {
+		double tMin = 0.0, tMax = 1.0;
+
+		if (dx == 0.0) {
+			if (x1 < box[4 * node] || x1 > box[4 * node + 2])
+				return false;
+		} else {
+			final double t1 = (box[4 * node] - x1) * inverseX, t2 = (box[4 * node + 2] - x1) * inverseX;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+
+		if (dy == 0.0) {
+			if (y1 < box[4 * node + 1] || y1 > box[4 * node + 3])
+				return false;
+		} else {
+			final double t1 = (box[4 * node + 1] - y1) * inverseY, t2 = (box[4 * node + 3] - y1) * inverseY;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+
+		return tMin <= tMax;
+	}
+
+	/**
+	 * Pushes two nodes onto the traversal stack, growing it if needed.
+	 * 
+	 * @param top the current stack size
+	 * @param a   the first node
+	 * @param b   the second node
+	 * @return the new stack size
+	 */
+	private int push(int top, int a, int b) {
+		if (top + 2 > stack.length)
+			stack = Arrays.copyOf(stack, stack.length * 2);
+
+		stack[top] = a;
+		stack[top + 1] = b;
+		return top + 2;
+	}
+
+	/**
+	 * Takes a node from the free list, growing the node storage if needed.
+	 * 
+	 * @return the new node
+	 */
+	private int allocateNode() {
+		if (freeList == NULL)
+			allocate(capacity * 2);
+
+		final int node = freeList;
+		freeList = parent[node];
+		parent[node] = NULL;
+		child1[node] = NULL;
+		child2[node] = NULL;
+		height[node] = 0;
+		nodeCount++;
+		return node;
+	}
+
+	/**
+	 * Puts a node back onto the free list.
+	 * 
+	 * @param node the node
+	 */
+	private void freeNode(int node) {
+		parent[node] = freeList;
+		height[node] = -1;
+		freeList = node;
+		nodeCount--;
+	}
+
+	/**
+	 * Grows the node storage and adds the new nodes to the free list.
+	 * 
+	 * @param newCapacity the new number of nodes with storage
+	 */
+	private void allocate(int newCapacity) {
+		box = box == null ? new double[4 * newCapacity] : Arrays.copyOf(box, 4 * newCapacity);
+		parent = parent == null ? new int[newCapacity] : Arrays.copyOf(parent, newCapacity);
+		child1 = child1 == null ? new int[newCapacity] : Arrays.copyOf(child1, newCapacity);
+		child2 = child2 == null ? new int[newCapacity] : Arrays.copyOf(child2, newCapacity);
+		height = height == null ? new int[newCapacity] : Arrays.copyOf(height, newCapacity);
+		data = data == null ? new int[newCapacity] : Arrays.copyOf(data, newCapacity);
+
+		for (int i = newCapacity - 1; i >= capacity; i--) {
+			parent[i] = freeList;
+			height[i] = -1;
+			freeList = i;
+		}
+		capacity = newCapacity;
+	}
+
+	/**
+	 * Throws an exception if an id is not a used leaf.
+	 * 
+	 * @param proxy the id of a proxy
+	 */
+	private void checkProxy(int proxy) {
+		if (proxy < 0 || proxy >= capacity || height[proxy] != 0)
+			throw new IllegalArgumentException("Invalid proxy " + proxy + ".");
+	}
+
+	/**
+	 * @param o an object
+	 * @return the half width of its bounding box
+	 */
+	private static double halfWidth(SimulationObject o) {
+		final double cos = Math.abs(Math.cos(o.getRotation())), sin = Math.abs(Math.sin(o.getRotation()));
+		return (cos * o.getSize().getX() + sin * o.getSize().getY()) * 0.5;
+	}
+
+	/**
+	 * @param o an object
+	 * @return the half height of its bounding box
+	 */
+	private static double halfHeight(SimulationObject o) {
+		final double cos = Math.abs(Math.cos(o.getRotation())), sin = Math.abs(Math.sin(o.getRotation()));
+		return (sin * o.getSize().getX() + cos * o.getSize().getY()) * 0.5;
+	}
+
+}
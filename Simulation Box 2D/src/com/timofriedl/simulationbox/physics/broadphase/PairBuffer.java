@@ -0,0 +1,67 @@
+package com.timofriedl.simulationbox.physics.broadphase;
+
+import java.util.Arrays;
+
+/**
+ * A reusable list of index pairs.
+ * 
+ * @author Timo Friedl
+ */
+public class PairBuffer {
+
+	/**
+	 * the first and second index of each pair, stored alternately
+	 */
+	private int[] pairs = new int[64];
+
+	/**
+	 * the number of pairs in this buffer
+	 */
+	private int size;
+
+	/**
+	 * Adds a pair to this buffer. The smaller index is stored first.
+	 * 
+	 * @param a the index of one object
+	 * @param b the index of the other object
+	 */
+	public void add(int a, int b) {
+		if (size * 2 == pairs.length)
+			pairs = Arrays.copyOf(pairs, pairs.length * 2);
+
+		pairs[size * 2] = Math.min(a, b);
+		pairs[size * 2 + 1] = Math.max(a, b);
+		size++;
+	}
+
+	/**
+	 * Removes all pairs from this buffer.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return the number of pairs in this buffer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param i the index of a pair
+	 * @return the smaller object index of the pair
+	 */
+	public int getFirst(int i) {
+		return pairs[i * 2];
+	}
+
+	/**
+	 * @param i the index of a pair
+	 * @return the greater object index of the pair
+	 */
+	public int getSecond(int i) {
+		return pairs[i * 2 + 1];
+	}
+
+}
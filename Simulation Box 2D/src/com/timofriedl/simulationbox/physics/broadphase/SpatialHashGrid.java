@@ -0,0 +1,269 @@
+package com.timofriedl.simulationbox.physics.broadphase;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.timofriedl.simulationbox.object.SimulationObject;
+
+/**
+ * A {@link Broadphase} that sorts all objects into the cells of a uniform grid
+ * and only tests objects that share a cell.
+ * 
+ * The cells are hashed into a fixed number of buckets, so the grid has no
+ * bounds. All buckets are rebuilt on every call by counting sort into reused
+ * arrays, which costs O(n) for objects of similar size. Objects that would
+ * cover more than {@link #MAX_CELLS_PER_OBJECT} cells are tested against all
+ * other objects instead.
+ * 
+ * @author Timo Friedl
+ */
+public class SpatialHashGrid implements Broadphase {
+
+	/**
+	 * the maximum number of cells one object is sorted into
+	 */
+	public static final int MAX_CELLS_PER_OBJECT = 64;
+
+	/**
+	 * the bounding boxes of the current objects
+	 */
+	private final BoundsBuffer bounds = new BoundsBuffer();
+
+	/**
+	 * the fixed cell size, or zero to choose it from the object sizes
+	 */
+	private double cellSize;
+
+	/**
+	 * the cell size of the last call
+	 */
+	private double currentCellSize;
+
+	/**
+	 * the first entry of each bucket, followed by the entry count
+	 */
+	private int[] bucketStart = new int[0];
+
+	/**
+	 * the next free entry of each bucket while filling
+	 */
+	private int[] bucketCursor = new int[0];
+
+	/**
+	 * the object index and cell coordinates of each entry
+	 */
+	private int[] entryObject = new int[0], entryCellX = new int[0], entryCellY = new int[0];
+
+	/**
+	 * the indices of objects that are too big for the grid
+	 */
+	private int[] largeObjects = new int[0];
+
+	/**
+	 * Creates a new grid that chooses its cell size from the object sizes.
+	 */
+	public SpatialHashGrid() {
+		this(0.0);
+	}
+
+	/**
+	 * Creates a new grid with a fixed cell size.
+	 * 
+	 * @param cellSize the width and height of one cell, or zero to choose it from
+	 *                 the object sizes on every call
+	 */
+	public SpatialHashGrid(double cellSize) {
+		setCellSize(cellSize);
+	}
+
+	@Override
+	public void findPairs(List<? extends SimulationObject> objects, PairBuffer pairs) {
+		pairs.clear();
+
+		final int n = objects.size();
+		bounds.update(objects);
+
+		currentCellSize = cellSize > 0.0 ? cellSize : chooseCellSize(n);
+		final double inverseCellSize = 1.0 / currentCellSize;
+
+		int buckets = 16;
+		while (buckets < n * 2)
+			buckets <<= 1;
+		final int mask = buckets - 1;
+
+		if (bucketStart.length < buckets + 1) {
+			bucketStart = new int[buckets + 1];
+			bucketCursor = new int[buckets];
+		}
+		if (largeObjects.length < n)
+			largeObjects = new int[Math.max(n, largeObjects.length * 2)];
+		Arrays.fill(bucketStart, 0, buckets + 1, 0);
+
+		// count the entries of each bucket
+		int entries = 0, largeCount = 0;
+		for (int i = 0; i < n; i++) {
+			final int x0 = cell(bounds.getMinX(i), inverseCellSize), x1 = cell(bounds.getMaxX(i), inverseCellSize);
+			final int y0 = cell(bounds.getMinY(i), inverseCellSize), y1 = cell(bounds.getMaxY(i), inverseCellSize);
+
+			if (((long) x1 - x0 + 1) * ((long) y1 - y0 + 1) > MAX_CELLS_PER_OBJECT) {
+				largeObjects[largeCount++] = i;
+				continue;
+			}
+
+			for (int cy = y0; cy <= y1; cy++)
+				for (int cx = x0; cx <= x1; cx++) {
+					bucketStart[(hash(cx, cy) & mask) + 1]++;
+					entries++;
+				}
+		}
+
+		for (int b = 0; b < buckets; b++) {
+			bucketStart[b + 1] += bucketStart[b];
+			bucketCursor[b] = bucketStart[b];
+		}
+
+		if (entryObject.length < entries) {
+			final int capacity = Math.max(entries, entryObject.length * 2);
+			entryObject = new int[capacity];
+			entryCellX = new int[capacity];
+			entryCellY = new int[capacity];
+		}
+
+		// sort the entries into their buckets
+		for (int i = 0, l = 0; i < n; i++) {
+			if (l < largeCount && largeObjects[l] == i) {
+				l++;
+				continue;
+			}
+
+			final int x0 = cell(bounds.getMinX(i), inverseCellSize), x1 = cell(bounds.getMaxX(i), inverseCellSize);
+			final int y0 = cell(bounds.getMinY(i), inverseCellSize), y1 = cell(bounds.getMaxY(i), inverseCellSize);
+
+			for (int cy = y0; cy <= y1; cy++)
+				for (int cx = x0; cx <= x1; cx++) {
+					final int e = bucketCursor[hash(cx, cy) & mask]++;
+					entryObject[e] = i;
+					entryCellX[e] = cx;
+					entryCellY[e] = cy;
+				}
+		}
+
+		// test the objects in each cell
+		for (int b = 0; b < buckets; b++)
+			for (int e1 = bucketStart[b]; e1 < bucketStart[b + 1]; e1++)
+				for (int e2 = e1 + 1; e2 < bucketStart[b + 1]; e2++)
+					testCellPair(e1, e2, inverseCellSize, pairs);
+
+		// test the large objects against all others
+		for (int l = 0; l < largeCount; l++) {
+			final int i = largeObjects[l];
+
+			for (int j = 0, k = 0; j < n; j++) {
+				if (k < largeCount && largeObjects[k] == j) {
+					k++;
+					if (k - 1 <= l)
+						continue;
+				}
+
+				if (j != i && bounds.overlap(i, j))
+					pairs.add(i, j);
+			}
+		}
+	}
+
+	/**
+	 * Tests two entries of the same bucket and adds their objects as a pair if
+	 * they share a cell and their boxes overlap.
+	 * 
+	 * Objects that share more than one cell are only added for the cell that
+	 * contains the upper left corner of their box intersection.
+	 * 
+	 * @param e1              the index of the first entry
+	 * @param e2              the index of the second entry
+	 * @param inverseCellSize the inverse of the cell size
+	 * @param pairs           the buffer to add the pair to
+	 */
+	private void testCellPair(int e1, int e2, double inverseCellSize, PairBuffer pairs) {
+		final int cx = entryCellX[e1];
+		final int cy = entryCellY[e1];
+		if (cx != entryCellX[e2] || cy != entryCellY[e2])
+			return;
+
+		final int a = entryObject[e1];
+		final int b = entryObject[e2];
+		if (!bounds.overlap(a, b))
+			return;
+
+		final double cornerX = Math.max(bounds.getMinX(a), bounds.getMinX(b));
+		final double cornerY = Math.max(bounds.getMinY(a), bounds.getMinY(b));
+		if (cell(cornerX, inverseCellSize) == cx && cell(cornerY, inverseCellSize) == cy)
+			pairs.add(a, b);
+	}
+
+	/**
+	 * Chooses a cell size that is twice the average bounding box side of the
+	 * current objects.
+	 * 
+	 * @param n the number of objects
+	 * @return the new cell size
+	 */
+	private double chooseCellSize(int n) {
+		double sum = 0.0;
+		int count = 0;
+
+		for (int i = 0; i < n; i++) {
+			final double side = Math.max(bounds.getMaxX(i) - bounds.getMinX(i), bounds.getMaxY(i) - bounds.getMinY(i));
+			if (side > 0.0 && side < Double.POSITIVE_INFINITY) {
+				sum += side;
+				count++;
+			}
+		}
+
+		return count > 0 ? 2.0 * sum / count : 1.0;
+	}
+
+	/**
+	 * @param coordinate      an ingame coordinate
+	 * @param inverseCellSize the inverse of the cell size
+	 * @return the index of the cell row or column that contains the coordinate
+	 */
+	private static int cell(double coordinate, double inverseCellSize) {
+		return (int) Math.floor(coordinate * inverseCellSize);
+	}
+
+	/**
+	 * @param cx the cell column
+	 * @param cy the cell row
+	 * @return the hash of the cell
+	 */
+	private static int hash(int cx, int cy) {
+		final int h = cx * 0x8da6b343 ^ cy * 0xd8163841;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @return the fixed cell size, or zero if it is chosen from the object sizes
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * @param cellSize the new fixed cell size, or zero to choose it from the
+	 *                 object sizes on every call
+	 */
+	public void setCellSize(double cellSize) {
+		if (cellSize < 0.0)
+			throw new IllegalArgumentException("Cell size must not be negative.");
+
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * @return the cell size that was used in the last call
+	 */
+	public double getCurrentCellSize() {
+		return currentCellSize;
+	}
+
+}
@@ -0,0 +1,248 @@
+package com.timofriedl.simulationbox.physics.broadphase;
+
+import java.util.List;
+
+import com.timofriedl.simulationbox.object.SimulationObject;
+
+/**
+ * A {@link Broadphase} that sorts all bounding boxes along one axis and only
+ * tests boxes whose intervals on that axis overlap.
+ * 
+ * The sorted order is kept between calls and repaired with insertion sort,
+ * which is close to O(n) if the objects move little between ticks, e.g. for
+ * stacked boxes or slow orbits. The order is sorted from scratch if the number
+ * of objects or the sweep axis changes, or if the repair gets too expensive.
+ * 
+ * @author Timo Friedl
+ */
+public class SweepAndPrune implements Broadphase {
+
+	/**
+	 * the average number of swaps per object after which the insertion sort is
+	 * replaced by a full sort
+	 */
+	private static final int MAX_SWAPS_PER_OBJECT = 32;
+
+	/**
+	 * the bounding boxes of the current objects
+	 */
+	private final BoundsBuffer bounds = new BoundsBuffer();
+
+	/**
+	 * the object indices sorted by the lower border of their box on the sweep
+	 * axis
+	 */
+	private int[] order = new int[0];
+
+	/**
+	 * the buffer for full sorts
+	 */
+	private int[] buffer = new int[0];
+
+	/**
+	 * the number of objects in the current order
+	 */
+	private int size = -1;
+
+	/**
+	 * true if the objects are swept along the y axis, false for the x axis
+	 */
+	private boolean sweepY;
+
+	/**
+	 * true if the current order is sorted along the y axis
+	 */
+	private boolean orderY;
+
+	/**
+	 * true if the sweep axis is chosen automatically by the spread of the objects
+	 */
+	private boolean automaticAxis = true;
+
+	@Override
+	public void findPairs(List<? extends SimulationObject> objects, PairBuffer pairs) {
+		pairs.clear();
+
+		final int n = objects.size();
+		bounds.update(objects);
+
+		if (automaticAxis)
+			chooseAxis(n);
+
+		if (n != size || sweepY != orderY) {
+			resetOrder(n);
+			fullSort(n);
+		} else if (!insertionSort(n))
+			fullSort(n);
+
+		for (int p = 0; p < n; p++) {
+			final int i = order[p];
+			final double max = max(i);
+
+			for (int q = p + 1; q < n; q++) {
+				final int j = order[q];
+				if (min(j) > max)
+					break;
+
+				if (sweepY ? bounds.getMinX(i) <= bounds.getMaxX(j) && bounds.getMinX(j) <= bounds.getMaxX(i)
+						: bounds.getMinY(i) <= bounds.getMaxY(j) && bounds.getMinY(j) <= bounds.getMaxY(i))
+					pairs.add(i, j);
+			}
+		}
+	}
+
+	/**
+	 * Chooses the axis along which the box centers are spread more. The axis is
+	 * only switched if the other one is clearly better, so it does not flip back
+	 * and forth.
+	 * 
+	 * @param n the number of objects
+	 */
+	private void chooseAxis(int n) {
+		double sumX = 0.0, sumY = 0.0, squareSumX = 0.0, squareSumY = 0.0;
+
+		for (int i = 0; i < n; i++) {
+			final double x = bounds.getMinX(i) + bounds.getMaxX(i);
+			final double y = bounds.getMinY(i) + bounds.getMaxY(i);
+			sumX += x;
+			sumY += y;
+			squareSumX += x * x;
+			squareSumY += y * y;
+		}
+
+		final double varianceX = squareSumX - sumX * sumX / Math.max(1, n);
+		final double varianceY = squareSumY - sumY * sumY / Math.max(1, n);
+
+		if (sweepY ? varianceX > 1.5 * varianceY : varianceY > 1.5 * varianceX)
+			sweepY = !sweepY;
+	}
+
+	/**
+	 * Resets the order to the object indices.
+	 * 
+	 * @param n the number of objects
+	 */
+	private void resetOrder(int n) {
+		if (order.length < n) {
+			order = new int[Math.max(n, order.length * 2)];
+			buffer = new int[order.length];
+		}
+
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+
+		size = n;
+		orderY = sweepY;
+	}
+
+	/**
+	 * Repairs the order of the last call with insertion sort.
+	 * 
+	 * @param n the number of objects
+	 * @return true if the order is sorted, false if the repair was aborted
+	 */
+	private boolean insertionSort(int n) {
+		long swaps = 0;
+		final long maxSwaps = (long) n * MAX_SWAPS_PER_OBJECT;
+
+		for (int p = 1; p < n; p++) {
+			final int i = order[p];
+			final double key = min(i);
+
+			int q = p - 1;
+			while (q >= 0 && min(order[q]) > key) {
+				order[q + 1] = order[q];
+				q--;
+
+				if (++swaps > maxSwaps) {
+					order[q + 1] = i;
+					return false;
+				}
+			}
+			order[q + 1] = i;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Sorts the order from scratch with a stable merge sort.
+	 * 
+	 * @param n the number of objects
+	 */
+	private void fullSort(int n) {
+		int[] from = order, to = buffer;
+
+		for (int width = 1; width < n; width *= 2) {
+			for (int lo = 0; lo < n; lo += 2 * width) {
+				final int mid = Math.min(lo + width, n);
+				final int hi = Math.min(lo + 2 * width, n);
+
+				int a = lo, b = mid, k = lo;
+				while (a < mid && b < hi)
+					to[k++] = min(from[b]) < min(from[a]) ? from[b++] : from[a++];
+				while (a < mid)
+					to[k++] = from[a++];
+				while (b < hi)
+					to[k++] = from[b++];
+			}
+
+			final int[] swap = from;
+			from = to;
+			to = swap;
+		}
+
+		order = from;
+		buffer = to;
+	}
+
+	/**
+	 * @param i the index of an object
+	 * @return the lower border of its box on the sweep axis
+	 */
+	private double min(int i) {
+		return sweepY ? bounds.getMinY(i) : bounds.getMinX(i);
+	}
+
+	/**
+	 * @param i the index of an object
+	 * @return the upper border of its box on the sweep axis
+	 */
+	private double max(int i) {
+		return sweepY ? bounds.getMaxY(i) : bounds.getMaxX(i);
+	}
+
+	/**
+	 * @return true if the objects are currently swept along the y axis, false for
+	 *         the x axis
+	 */
+	public boolean isSweepY() {
+		return sweepY;
+	}
+
+	/**
+	 * Sets a fixed sweep axis.
+	 * 
+	 * @param sweepY true to sweep along the y axis, false for the x axis
+	 */
+	public void setSweepY(boolean sweepY) {
+		this.sweepY = sweepY;
+		automaticAxis = false;
+	}
+
+	/**
+	 * @return true if the sweep axis is chosen by the spread of the objects
+	 */
+	public boolean isAutomaticAxis() {
+		return automaticAxis;
+	}
+
+	/**
+	 * @param automaticAxis true to choose the sweep axis by the spread of the
+	 *                      objects, false to keep the current one
+	 */
+	public void setAutomaticAxis(boolean automaticAxis) {
+		this.automaticAxis = automaticAxis;
+	}
+
+}
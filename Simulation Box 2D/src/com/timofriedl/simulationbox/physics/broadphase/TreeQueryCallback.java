@@ -0,0 +1,20 @@
+package com.timofriedl.simulationbox.physics.broadphase;
+
+/**
+ * Receives the proxies that a {@link DynamicAABBTree} query finds. The tree
+ * must not be changed or queried again while a query is running.
+ * 
+ * @author Timo Friedl
+ */
+public interface TreeQueryCallback {
+
+	/**
+	 * Called for each proxy whose fattened box matches the query.
+	 * 
+	 * @param proxy the id of the found proxy, see
+	 *              {@link DynamicAABBTree#getData(int)}
+	 * @return true to continue the query, false to stop it
+	 */
+	public boolean found(int proxy);
+
+}
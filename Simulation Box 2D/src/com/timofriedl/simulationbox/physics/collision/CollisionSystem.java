@@ -0,0 +1,545 @@
+package com.timofriedl.simulationbox.physics.collision;
+
+import java.util.List;
+
+import com.timofriedl.simulationbox.object.MassObject;
+import com.timofriedl.simulationbox.physics.broadphase.Broadphase;
+import com.timofriedl.simulationbox.physics.broadphase.PairBuffer;
+import com.timofriedl.simulationbox.vector.Vector2D;
+
+/**
+ * Finds all contacts between {@link MassObject}s and resolves them with
+ * sequential impulses that change the speeds and rotation speeds of the
+ * objects.
+ * 
+ * Candidate pairs come from a {@link Broadphase} and are tested by the
+ * {@link Narrowphase}. The contact manifolds are reused between ticks, and
+ * contacts that already existed in the last tick start with their last
+ * impulses, so stacks come to rest within few solver iterations.
+ * 
+ * Call {@link #step(List)} once per tick after all forces have been applied
+ * and before the objects are moved. Objects with a mass that is zero,
+ * negative, infinite or NaN are treated as static and are never pushed.
+ * Contacts between sleeping or static objects are skipped, a sleeping object
+ * that is pushed by an awake one wakes up.
+ * 
+ * @author Timo Friedl
+ */
+public class CollisionSystem {
+
+	/**
+	 * the default number of solver iterations per tick
+	 */
+	public static final int DEFAULT_ITERATIONS = 10;
+
+	/**
+	 * the broadphase that finds the candidate pairs
+	 */
+	private Broadphase broadphase;
+
+	/**
+	 * the candidate pairs of the current tick
+	 */
+	private final PairBuffer pairs = new PairBuffer();
+
+	/**
+	 * the manifolds of the current and the last tick
+	 */
+	private ContactManifold[] manifolds = new ContactManifold[0], oldManifolds = new ContactManifold[0];
+
+	/**
+	 * the number of manifolds of the current and the last tick
+	 */
+	private int manifoldCount, oldManifoldCount;
+
+	/**
+	 * the manifold indices of the object pairs of the current and the last tick
+	 */
+	private PairMap manifoldIndices = new PairMap(), oldManifoldIndices = new PairMap();
+
+	/**
+	 * the speeds and rotation speeds of the objects while solving
+	 */
+	private double[] vx = new double[0], vy = new double[0], w = new double[0];
+
+	/**
+	 * the inverse masses and inverse moments of inertia of the objects
+	 */
+	private double[] inverseMass = new double[0], inverseInertia = new double[0];
+
+	/**
+	 * the number of solver iterations per tick
+	 */
+	private int iterations = DEFAULT_ITERATIONS;
+
+	/**
+	 * the friction coefficient of all contacts
+	 */
+	private double friction = 0.4;
+
+	/**
+	 * the restitution (bounciness) of all contacts, from 0 to 1
+	 */
+	private double restitution = 0.2;
+
+	/**
+	 * the relative speed below which contacts do not bounce
+	 */
+	private double restitutionThreshold = 1.0;
+
+	/**
+	 * the part of the penetration that is resolved per tick
+	 */
+	private double biasFactor = 0.1;
+
+	/**
+	 * the penetration depth that is tolerated to keep contacts stable
+	 */
+	private double allowedPenetration = 0.01;
+
+	/**
+	 * true if contacts start with the impulses of the last tick
+	 */
+	private boolean warmStarting = true;
+
+	/**
+	 * Creates a new collision system.
+	 * 
+	 * @param broadphase the broadphase that finds the candidate pairs
+	 */
+	public CollisionSystem(Broadphase broadphase) {
+		setBroadphase(broadphase);
+	}
+
+	/**
+	 * Finds and resolves all contacts between the given objects.
+	 * 
+	 * The object list may change between ticks, but contacts are only warm
+	 * started if both objects keep their list index.
+	 * 
+	 * @param objects the objects to collide
+	 */
+	public void step(List<? extends MassObject> objects) {
+		final int n = objects.size();
+		findContacts(objects);
+		loadBodies(objects, n);
+
+		for (int k = 0; k < manifoldCount; k++)
+			prepare(manifolds[k]);
+
+		for (int iteration = 0; iteration < iterations; iteration++)
+			for (int k = 0; k < manifoldCount; k++)
+				solve(manifolds[k]);
+
+		storeBodies();
+	}
+
+	/**
+	 * Fills the manifolds of the current tick and takes over the impulses of
+	 * the last tick.
+	 * 
+	 * @param objects the objects to collide
+	 */
+	private void findContacts(List<? extends MassObject> objects) {
+		broadphase.findPairs(objects, pairs);
+
+		final ContactManifold[] swapManifolds = oldManifolds;
+		oldManifolds = manifolds;
+		manifolds = swapManifolds;
+		oldManifoldCount = manifoldCount;
+		manifoldCount = 0;
+
+		final PairMap swapIndices = oldManifoldIndices;
+		oldManifoldIndices = manifoldIndices;
+		manifoldIndices = swapIndices;
+		manifoldIndices.clear();
+
+		if (manifolds.length < oldManifolds.length) {
+			final ContactManifold[] grown = new ContactManifold[oldManifolds.length];
+			System.arraycopy(manifolds, 0, grown, 0, manifolds.length);
+			manifolds = grown;
+		}
+
+		for (int p = 0; p < pairs.size(); p++) {
+			final int i = pairs.getFirst(p), j = pairs.getSecond(p);
+			final MassObject a = objects.get(i), b = objects.get(j);
+			if (!isActive(a) && !isActive(b))
+				continue;
+
+			if (manifoldCount == manifolds.length) {
+				final ContactManifold[] grown = new ContactManifold[Math.max(16, manifolds.length * 2)];
+				System.arraycopy(manifolds, 0, grown, 0, manifolds.length);
+				manifolds = grown;
+			}
+			if (manifolds[manifoldCount] == null)
+				manifolds[manifoldCount] = new ContactManifold();
+
+			final ContactManifold m = manifolds[manifoldCount];
+			if (!Narrowphase.collide(a, b, m))
+				continue;
+
+			m.a = a;
+			m.b = b;
+			m.indexA = i;
+			m.indexB = j;
+
+			final long key = PairMap.key(i, j);
+			if (warmStarting) {
+				final int old = oldManifoldIndices.get(key);
+				if (old >= 0 && old < oldManifoldCount && oldManifolds[old].a == a && oldManifolds[old].b == b)
+					m.warmStartFrom(oldManifolds[old]);
+			}
+
+			manifoldIndices.put(key, manifoldCount++);
+		}
+	}
+
+	/**
+	 * Copies the speeds and mass properties of all objects into the solver
+	 * arrays.
+	 * 
+	 * @param objects the objects to collide
+	 * @param n       the number of objects
+	 */
+	private void loadBodies(List<? extends MassObject> objects, int n) {
+		if (vx.length < n) {
+			final int capacity = Math.max(n, vx.length * 2);
+			vx = new double[capacity];
+			vy = new double[capacity];
+			w = new double[capacity];
+			inverseMass = new double[capacity];
+			inverseInertia = new double[capacity];
+		}
+
+		for (int k = 0; k < manifoldCount; k++) {
+			loadBody(manifolds[k].a, manifolds[k].indexA);
+			loadBody(manifolds[k].b, manifolds[k].indexB);
+		}
+	}
+
+	/**
+	 * Copies the speed and mass properties of one object into the solver arrays.
+	 * 
+	 * @param o the object
+	 * @param i the list index of the object
+	 */
+	private void loadBody(MassObject o, int i) {
+		vx[i] = o.getSpeed().getX();
+		vy[i] = o.getSpeed().getY();
+		w[i] = o.getRotationSpeed();
+
+		if (isStatic(o)) {
+			inverseMass[i] = 0.0;
+			inverseInertia[i] = 0.0;
+			return;
+		}
+
+		final double m = o.getMass();
+		final double width = o.getSize().getX(), height = o.getSize().getY();
+		final double inertia = o.getShapeType() == ShapeType.CIRCLE ? m * width * width / 8.0
+				: m * (width * width + height * height) / 12.0;
+
+		inverseMass[i] = 1.0 / m;
+		inverseInertia[i] = inertia > 0.0 ? 1.0 / inertia : 0.0;
+	}
+
+	/**
+	 * Writes the solved speeds back to all objects that have a contact.
+	 */
+	private void storeBodies() {
+		for (int k = 0; k < manifoldCount; k++) {
+			storeBody(manifolds[k].a, manifolds[k].indexA);
+			storeBody(manifolds[k].b, manifolds[k].indexB);
+		}
+	}
+
+	/**
+	 * Writes the solved speed back to one object, if it is not static.
+	 * 
+	 * @param o the object
+	 * @param i the list index of the object
+	 */
+	private void storeBody(MassObject o, int i) {
+		if (inverseMass[i] == 0.0)
+			return;
+
+		final Vector2D speed = o.getSpeed();
+		if (speed.getX() != vx[i] || speed.getY() != vy[i])
+			o.setSpeed(new Vector2D(vx[i], vy[i]));
+		o.setRotationSpeed(w[i]);
+	}
+
+	/**
+	 * Calculates the effective masses and velocity bias of all contact points of
+	 * a manifold and applies the impulses of the last tick.
+	 * 
+	 * @param m the manifold
+	 */
+	private void prepare(ContactManifold m) {
+		final int a = m.indexA, b = m.indexB;
+		final double nx = m.normalX, ny = m.normalY;
+		final double tx = -ny, ty = nx;
+		final double ax = m.a.getPosition().getX(), ay = m.a.getPosition().getY();
+		final double bx = m.b.getPosition().getX(), by = m.b.getPosition().getY();
+		final double inverseMassSum = inverseMass[a] + inverseMass[b];
+
+		for (int p = 0; p < m.pointCount; p++) {
+			final double rax = m.pointX[p] - ax, ray = m.pointY[p] - ay;
+			final double rbx = m.pointX[p] - bx, rby = m.pointY[p] - by;
+
+			final double rnA = rax * ny - ray * nx, rnB = rbx * ny - rby * nx;
+			final double normal = inverseMassSum + inverseInertia[a] * rnA * rnA + inverseInertia[b] * rnB * rnB;
+			m.normalMass[p] = normal > 0.0 ? 1.0 / normal : 0.0;
+
+			final double rtA = rax * ty - ray * tx, rtB = rbx * ty - rby * tx;
+			final double tangent = inverseMassSum + inverseInertia[a] * rtA * rtA + inverseInertia[b] * rtB * rtB;
+			m.tangentMass[p] = tangent > 0.0 ? 1.0 / tangent : 0.0;
+
+			final double approach = (vx[b] - w[b] * rby - vx[a] + w[a] * ray) * nx
+					+ (vy[b] + w[b] * rbx - vy[a] - w[a] * rax) * ny;
+			final double correction = biasFactor * Math.max(0.0, m.depth[p] - allowedPenetration);
+			final double bounce = approach < -restitutionThreshold ? -restitution * approach : 0.0;
+			m.bias[p] = Math.max(correction, bounce);
+
+			if (warmStarting)
+				applyImpulse(m, p, m.normalImpulse[p] * nx + m.tangentImpulse[p] * tx,
+						m.normalImpulse[p] * ny + m.tangentImpulse[p] * ty);
+			else {
+				m.normalImpulse[p] = 0.0;
+				m.tangentImpulse[p] = 0.0;
+			}
+		}
+	}
+
+	/**
+	 * Runs one solver iteration for all contact points of a manifold.
+	 * 
+	 * @param m the manifold
+	 */
+	private void solve(ContactManifold m) {
+		final int a = m.indexA, b = m.indexB;
+		final double nx = m.normalX, ny = m.normalY;
+		final double tx = -ny, ty = nx;
+		final double ax = m.a.getPosition().getX(), ay = m.a.getPosition().getY();
+		final double bx = m.b.getPosition().getX(), by = m.b.getPosition().getY();
+
+		for (int p = 0; p < m.pointCount; p++) {
+			final double rax = m.pointX[p] - ax, ray = m.pointY[p] - ay;
+			final double rbx = m.pointX[p] - bx, rby = m.pointY[p] - by;
+
+			// normal impulse, never pulling the objects together
+			double dvx = vx[b] - w[b] * rby - vx[a] + w[a] * ray;
+			double dvy = vy[b] + w[b] * rbx - vy[a] - w[a] * rax;
+			final double oldNormal = m.normalImpulse[p];
+			m.normalImpulse[p] = Math.max(0.0, oldNormal + m.normalMass[p] * (m.bias[p] - (dvx * nx + dvy * ny)));
+			final double normal = m.normalImpulse[p] - oldNormal;
+			applyImpulse(m, p, normal * nx, normal * ny);
+
+			// friction impulse, limited by the normal impulse
+			dvx = vx[b] - w[b] * rby - vx[a] + w[a] * ray;
+			dvy = vy[b] + w[b] * rbx - vy[a] - w[a] * rax;
+			final double maxFriction = friction * m.normalImpulse[p];
+			final double oldTangent = m.tangentImpulse[p];
+			m.tangentImpulse[p] = Math.max(-maxFriction,
+					Math.min(maxFriction, oldTangent - m.tangentMass[p] * (dvx * tx + dvy * ty)));
+			final double tangent = m.tangentImpulse[p] - oldTangent;
+			applyImpulse(m, p, tangent * tx, tangent * ty);
+		}
+	}
+
+	/**
+	 * Applies an impulse at a contact point, pushing the second object along it
+	 * and the first object against it.
+	 * 
+	 * @param m  the manifold
+	 * @param p  the index of the contact point
+	 * @param px the x component of the impulse
+	 * @param py the y component of the impulse
+	 */
+	private void applyImpulse(ContactManifold m, int p, double px, double py) {
+		final int a = m.indexA, b = m.indexB;
+		final double rax = m.pointX[p] - m.a.getPosition().getX(), ray = m.pointY[p] - m.a.getPosition().getY();
+		final double rbx = m.pointX[p] - m.b.getPosition().getX(), rby = m.pointY[p] - m.b.getPosition().getY();
+
+		vx[a] -= inverseMass[a] * px;
+		vy[a] -= inverseMass[a] * py;
+		w[a] -= inverseInertia[a] * (rax * py - ray * px);
+
+		vx[b] += inverseMass[b] * px;
+		vy[b] += inverseMass[b] * py;
+		w[b] += inverseInertia[b] * (rbx * py - rby * px);
+	}
+
+	/**
+	 * @param o an object
+	 * @return true if the object is awake and can be pushed by collisions
+	 */
+	private static boolean isActive(MassObject o) {
+		return !o.isSleeping() && !isStatic(o);
+	}
+
+	/**
+	 * @param o an object
+	 * @return true if the object is never pushed by collisions
+	 */
+	static boolean isStatic(MassObject o) {
+		final double mass = o.getMass();
+		return !(mass > 0.0) || mass == Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * @return the number of manifolds that were found in the last step
+	 */
+	public int getContactCount() {
+		return manifoldCount;
+	}
+
+	/**
+	 * @param i the index of a manifold
+	 * @return the manifold, valid until the next step
+	 */
+	public ContactManifold getContact(int i) {
+		if (i < 0 || i >= manifoldCount)
+			throw new IndexOutOfBoundsException("Contact index " + i + " out of range.");
+
+		return manifolds[i];
+	}
+
+	/**
+	 * @return the broadphase that finds the candidate pairs
+	 */
+	public Broadphase getBroadphase() {
+		return broadphase;
+	}
+
+	/**
+	 * @param broadphase the new broadphase that finds the candidate pairs
+	 */
+	public void setBroadphase(Broadphase broadphase) {
+		if (broadphase == null)
+			throw new IllegalArgumentException("Broadphase must not be null.");
+
+		this.broadphase = broadphase;
+	}
+
+	/**
+	 * @return the number of solver iterations per tick
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * @param iterations the new number of solver iterations per tick
+	 */
+	public void setIterations(int iterations) {
+		if (iterations < 1)
+			throw new IllegalArgumentException("Iterations must be at least 1.");
+
+		this.iterations = iterations;
+	}
+
+	/**
+	 * @return the friction coefficient of all contacts
+	 */
+	public double getFriction() {
+		return friction;
+	}
+
+	/**
+	 * @param friction the new friction coefficient of all contacts
+	 */
+	public void setFriction(double friction) {
+		if (!(friction >= 0.0))
+			throw new IllegalArgumentException("Friction must not be negative.");
+
+		this.friction = friction;
+	}
+
+	/**
+	 * @return the restitution of all contacts
+	 */
+	public double getRestitution() {
+		return restitution;
+	}
+
+	/**
+	 * @param restitution the new restitution of all contacts, from 0 (no bounce)
+	 *                    to 1 (elastic)
+	 */
+	public void setRestitution(double restitution) {
+		if (!(restitution >= 0.0 && restitution <= 1.0))
+			throw new IllegalArgumentException("Restitution must be between 0 and 1.");
+
+		this.restitution = restitution;
+	}
+
+	/**
+	 * @return the relative speed below which contacts do not bounce
+	 */
+	public double getRestitutionThreshold() {
+		return restitutionThreshold;
+	}
+
+	/**
+	 * @param restitutionThreshold the new relative speed below which contacts do
+	 *                             not bounce
+	 */
+	public void setRestitutionThreshold(double restitutionThreshold) {
+		if (!(restitutionThreshold >= 0.0))
+			throw new IllegalArgumentException("Restitution threshold must not be negative.");
+
+		this.restitutionThreshold = restitutionThreshold;
+	}
+
+	/**
+	 * @return the part of the penetration that is resolved per tick
+	 */
+	public double getBiasFactor() {
+		return biasFactor;
+	}
+
+	/**
+	 * @param biasFactor the new part of the penetration that is resolved per
+	 *                   tick, from 0 to 1
+	 */
+	public void setBiasFactor(double biasFactor) {
+		if (!(biasFactor >= 0.0 && biasFactor <= 1.0))
+			throw new IllegalArgumentException("Bias factor must be between 0 and 1.");
+
+		this.biasFactor = biasFactor;
+	}
+
+	/**
+	 * @return the penetration depth that is tolerated
+	 */
+	public double getAllowedPenetration() {
+		return allowedPenetration;
+	}
+
+	/**
+	 * @param allowedPenetration the new penetration depth that is tolerated
+	 */
+	public void setAllowedPenetration(double allowedPenetration) {
+		if (!(allowedPenetration >= 0.0))
+			throw new IllegalArgumentException("Allowed penetration must not be negative.");
+
+		this.allowedPenetration = allowedPenetration;
+	}
+
+	/**
+	 * @return true if contacts start with the impulses of the last tick
+	 */
+	public boolean isWarmStarting() {
+		return warmStarting;
+	}
+
+	/**
+	 * @param warmStarting true to start contacts with the impulses of the last
+	 *                     tick
+	 */
+	public void setWarmStarting(boolean warmStarting) {
+		this.warmStarting = warmStarting;
+	}
+
+}
@@ -0,0 +1,197 @@
+package com.timofriedl.simulationbox.physics.collision;
+
+import com.timofriedl.simulationbox.object.MassObject;
+
+/**
+ * The contact points between two touching {@link MassObject}s.
+ * 
+ * Manifolds are reused between ticks by the {@link CollisionSystem}. Each
+ * point keeps the impulses of the last solver run, so the solver can start
+ * from them in the next tick.
+ * 
+ * @author Timo Friedl
+ */
+public class ContactManifold {
+
+	/**
+	 * the maximum number of contact points of one manifold
+	 */
+	public static final int MAX_POINTS = 2;
+
+	/**
+	 * the two touching objects
+	 */
+	MassObject a, b;
+
+	/**
+	 * the list indices of the two touching objects
+	 */
+	int indexA, indexB;
+
+	/**
+	 * the collision normal, pointing from the first to the second object
+	 */
+	double normalX, normalY;
+
+	/**
+	 * the number of contact points
+	 */
+	int pointCount;
+
+	/**
+	 * the ingame positions of the contact points
+	 */
+	final double[] pointX = new double[MAX_POINTS], pointY = new double[MAX_POINTS];
+
+	/**
+	 * the penetration depths of the contact points
+	 */
+	final double[] depth = new double[MAX_POINTS];
+
+	/**
+	 * the geometric features that created the contact points, used to match
+	 * them between ticks
+	 */
+	final int[] feature = new int[MAX_POINTS];
+
+	/**
+	 * the accumulated impulses along the normal and the tangent
+	 */
+	final double[] normalImpulse = new double[MAX_POINTS], tangentImpulse = new double[MAX_POINTS];
+
+	/**
+	 * the solver values of the contact points
+	 */
+	final double[] normalMass = new double[MAX_POINTS], tangentMass = new double[MAX_POINTS],
+			bias = new double[MAX_POINTS];
+
+	/**
+	 * Removes all contact points and sets the collision normal.
+	 * 
+	 * @param normalX the x component of the normal from the first to the second
+	 *                object
+	 * @param normalY the y component of the normal from the first to the second
+	 *                object
+	 */
+	void reset(double normalX, double normalY) {
+		this.normalX = normalX;
+		this.normalY = normalY;
+		pointCount = 0;
+	}
+
+	/**
+	 * Adds a contact point without any accumulated impulse.
+	 * 
+	 * @param x       the ingame x position of the point
+	 * @param y       the ingame y position of the point
+	 * @param depth   the penetration depth
+	 * @param feature the geometric feature that created the point
+	 */
+	void addPoint(double x, double y, double depth, int feature) {
+		final int i = pointCount++;
+		pointX[i] = x;
+		pointY[i] = y;
+		this.depth[i] = depth;
+		this.feature[i] = feature;
+		normalImpulse[i] = 0.0;
+		tangentImpulse[i] = 0.0;
+	}
+
+	/**
+	 * Takes over the accumulated impulses of the matching points of the same
+	 * contact in the last tick.
+	 * 
+	 * @param old the manifold of the last tick
+	 */
+	void warmStartFrom(ContactManifold old) {
+		for (int i = 0; i < pointCount; i++)
+			for (int j = 0; j < old.pointCount; j++)
+				if (feature[i] == old.feature[j]) {
+					normalImpulse[i] = old.normalImpulse[j];
+					tangentImpulse[i] = old.tangentImpulse[j];
+					break;
+				}
+	}
+
+	/**
+	 * @return the first object
+	 */
+	public MassObject getA() {
+		return a;
+	}
+
+	/**
+	 * @return the second object
+	 */
+	public MassObject getB() {
+		return b;
+	}
+
+	/**
+	 * @return the list index of the first object
+	 */
+	public int getIndexA() {
+		return indexA;
+	}
+
+	/**
+	 * @return the list index of the second object
+	 */
+	public int getIndexB() {
+		return indexB;
+	}
+
+	/**
+	 * @return the x component of the normal from the first to the second object
+	 */
+	public double getNormalX() {
+		return normalX;
+	}
+
+	/**
+	 * @return the y component of the normal from the first to the second object
+	 */
+	public double getNormalY() {
+		return normalY;
+	}
+
+	/**
+	 * @return the number of contact points
+	 */
+	public int getPointCount() {
+		return pointCount;
+	}
+
+	/**
+	 * @param i the index of a contact point
+	 * @return the ingame x position of the point
+	 */
+	public double getPointX(int i) {
+		return pointX[i];
+	}
+
+	/**
+	 * @param i the index of a contact point
+	 * @return the ingame y position of the point
+	 */
+	public double getPointY(int i) {
+		return pointY[i];
+	}
+
+	/**
+	 * @param i the index of a contact point
+	 * @return the penetration depth of the point
+	 */
+	public double getDepth(int i) {
+		return depth[i];
+	}
+
+	/**
+	 * @param i the index of a contact point
+	 * @return the accumulated normal impulse of the point
+	 */
+	public double getNormalImpulse(int i) {
+		return normalImpulse[i];
+	}
+
+}
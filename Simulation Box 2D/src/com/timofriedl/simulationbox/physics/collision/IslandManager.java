@@ -0,0 +1,329 @@
+package com.timofriedl.simulationbox.physics.collision;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.timofriedl.simulationbox.object.MassObject;
+import com.timofriedl.simulationbox.object.MovingObject;
+
+/**
+ * Puts resting {@link MassObject}s to sleep and wakes them up again.
+ * 
+ * Objects that touch each other are grouped into islands by the contacts of a
+ * {@link CollisionSystem}. Static objects do not connect islands. An island
+ * falls asleep when all of its objects have been slower than the sleep
+ * thresholds for a number of ticks, and the whole island wakes up as soon as
+ * one of its objects is woken or touched by an awake object. Sleeping objects
+ * are not moved, not accelerated by a
+ * {@link com.timofriedl.simulationbox.physics.gravity.GravitySolver} and skip
+ * the collision tests with each other, so the cost of a tick grows with the
+ * number of awake objects.
+ * 
+ * Call {@link #update(List, CollisionSystem)} once per tick after
+ * {@link CollisionSystem#step(List)} and before the objects are moved.
+ * 
+ * @author Timo Friedl
+ */
+public class IslandManager {
+
+	/**
+	 * the default speed below which an object counts as resting, in units per
+	 * tick
+	 */
+	public static final double DEFAULT_SLEEP_SPEED = 0.005;
+
+	/**
+	 * the default rotation speed below which an object counts as resting, in
+	 * radians per tick
+	 */
+	public static final double DEFAULT_SLEEP_ROTATION_SPEED = 0.002;
+
+	/**
+	 * the default number of resting ticks after which an island falls asleep
+	 */
+	public static final int DEFAULT_SLEEP_TICKS = 30;
+
+	/**
+	 * the speed below which an object counts as resting
+	 */
+	private double sleepSpeed = DEFAULT_SLEEP_SPEED;
+
+	/**
+	 * the rotation speed below which an object counts as resting
+	 */
+	private double sleepRotationSpeed = DEFAULT_SLEEP_ROTATION_SPEED;
+
+	/**
+	 * the number of resting ticks after which an island falls asleep
+	 */
+	private int sleepTicks = DEFAULT_SLEEP_TICKS;
+
+	/**
+	 * the union-find parent of each object index
+	 */
+	private int[] parent = new int[0];
+
+	/**
+	 * the smallest rest counter of each island, stored at its root index
+	 */
+	private int[] islandRest = new int[0];
+
+	/**
+	 * the island that each sleeping object fell asleep with, or -1
+	 */
+	private int[] sleepIsland = new int[0];
+
+	/**
+	 * true for each sleeping island that has to wake up
+	 */
+	private boolean[] wakeIsland = new boolean[0];
+
+	/**
+	 * the object at each index in the last update
+	 */
+	private MovingObject[] owners = new MovingObject[0];
+
+	/**
+	 * the number of objects in the last update
+	 */
+	private int size;
+
+	/**
+	 * the number of awake objects after the last update
+	 */
+	private int awakeCount;
+
+	/**
+	 * Wakes up touched islands, counts the resting ticks of all awake objects
+	 * and puts resting islands to sleep.
+	 * 
+	 * @param objects    the objects of the last collision step
+	 * @param collisions the collision system that found the contacts
+	 */
+	public void update(List<? extends MassObject> objects, CollisionSystem collisions) {
+		final int n = objects.size();
+		ensureCapacity(n);
+		wakeTouchedIslands(objects, collisions, n);
+		size = n;
+
+		// group the awake objects by their contacts
+		for (int i = 0; i < n; i++)
+			parent[i] = i;
+
+		for (int k = 0; k < collisions.getContactCount(); k++) {
+			final ContactManifold m = collisions.getContact(k);
+			if (!CollisionSystem.isStatic(m.a) && !CollisionSystem.isStatic(m.b))
+				union(m.indexA, m.indexB);
+		}
+
+		// the island rests as long as its most restless object
+		Arrays.fill(islandRest, 0, n, Integer.MAX_VALUE);
+		for (int i = 0; i < n; i++) {
+			final MassObject o = objects.get(i);
+			if (o.isSleeping() || CollisionSystem.isStatic(o))
+				continue;
+
+			final double speedX = o.getSpeed().getX(), speedY = o.getSpeed().getY();
+			final boolean resting = o.isSleepAllowed() && speedX * speedX + speedY * speedY <= sleepSpeed * sleepSpeed
+					&& Math.abs(o.getRotationSpeed()) <= sleepRotationSpeed;
+			o.setRestTicks(resting ? o.getRestTicks() + 1 : 0);
+
+			final int root = find(i);
+			islandRest[root] = Math.min(islandRest[root], o.getRestTicks());
+		}
+
+		awakeCount = 0;
+		for (int i = 0; i < n; i++) {
+			final MassObject o = objects.get(i);
+			if (o.isSleeping() || CollisionSystem.isStatic(o))
+				continue;
+
+			final int root = find(i);
+			if (islandRest[root] >= sleepTicks) {
+				o.sleep();
+				sleepIsland[i] = root;
+			} else
+				awakeCount++;
+		}
+	}
+
+	/**
+	 * Wakes up all sleeping islands that have an awake object, either because it
+	 * was woken from outside or because it touches an awake object.
+	 * 
+	 * @param objects    the objects of the last collision step
+	 * @param collisions the collision system that found the contacts
+	 * @param n          the number of objects
+	 */
+	private void wakeTouchedIslands(List<? extends MassObject> objects, CollisionSystem collisions, int n) {
+		Arrays.fill(wakeIsland, false);
+
+		// the islands of removed objects lose their support and have to wake up
+		for (int i = n; i < size; i++) {
+			if (sleepIsland[i] >= 0)
+				wakeIsland[sleepIsland[i]] = true;
+			sleepIsland[i] = -1;
+			owners[i] = null;
+		}
+
+		for (int i = 0; i < n; i++) {
+			final MassObject o = objects.get(i);
+
+			if (owners[i] != o) {
+				// the island of the object that left this index loses it, and the
+				// island of the new object is unknown
+				if (sleepIsland[i] >= 0)
+					wakeIsland[sleepIsland[i]] = true;
+				owners[i] = o;
+				sleepIsland[i] = -1;
+				o.wakeUp();
+			} else if (sleepIsland[i] >= 0 && !o.isSleeping())
+				wakeIsland[sleepIsland[i]] = true;
+		}
+
+		for (int k = 0; k < collisions.getContactCount(); k++) {
+			final ContactManifold m = collisions.getContact(k);
+			if (CollisionSystem.isStatic(m.a) || CollisionSystem.isStatic(m.b))
+				continue;
+
+			if (m.a.isSleeping() && !m.b.isSleeping())
+				markIsland(m.a, m.indexA);
+			else if (m.b.isSleeping() && !m.a.isSleeping())
+				markIsland(m.b, m.indexB);
+		}
+
+		for (int i = 0; i < n; i++) {
+			final int island = sleepIsland[i];
+			if (island < 0)
+				continue;
+
+			final MassObject o = objects.get(i);
+			if (wakeIsland[island] && o.isSleeping())
+				o.wakeUp();
+			if (!o.isSleeping())
+				sleepIsland[i] = -1;
+		}
+	}
+
+	/**
+	 * Marks the island of a sleeping object to wake up.
+	 * 
+	 * @param o the sleeping object
+	 * @param i the index of the object
+	 */
+	private void markIsland(MassObject o, int i) {
+		if (sleepIsland[i] >= 0)
+			wakeIsland[sleepIsland[i]] = true;
+		else
+			o.wakeUp();
+	}
+
+	/**
+	 * @param i an object index
+	 * @return the root index of its island
+	 */
+	private int find(int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+
+		return i;
+	}
+
+	/**
+	 * Merges the islands of two objects.
+	 * 
+	 * @param a one object index
+	 * @param b another object index
+	 */
+	private void union(int a, int b) {
+		final int rootA = find(a), rootB = find(b);
+		if (rootA < rootB)
+			parent[rootB] = rootA;
+		else if (rootB < rootA)
+			parent[rootA] = rootB;
+	}
+
+	/**
+	 * Grows the arrays to hold at least <code>n</code> objects.
+	 * 
+	 * @param n the required number of objects
+	 */
+	private void ensureCapacity(int n) {
+		if (parent.length >= n)
+			return;
+
+		final int capacity = Math.max(n, parent.length * 2);
+		final int oldCapacity = parent.length;
+		parent = new int[capacity];
+		islandRest = new int[capacity];
+		wakeIsland = new boolean[capacity];
+		owners = Arrays.copyOf(owners, capacity);
+		sleepIsland = Arrays.copyOf(sleepIsland, capacity);
+		Arrays.fill(sleepIsland, oldCapacity, capacity, -1);
+	}
+
+	/**
+	 * @return the number of awake objects after the last update, without static
+	 *         objects
+	 */
+	public int getAwakeCount() {
+		return awakeCount;
+	}
+
+	/**
+	 * @return the speed below which an object counts as resting
+	 */
+	public double getSleepSpeed() {
+		return sleepSpeed;
+	}
+
+	/**
+	 * @param sleepSpeed the new speed below which an object counts as resting, in
+	 *                   units per tick
+	 */
+	public void setSleepSpeed(double sleepSpeed) {
+		if (!(sleepSpeed >= 0.0))
+			throw new IllegalArgumentException("Sleep speed must not be negative.");
+
+		this.sleepSpeed = sleepSpeed;
+	}
+
+	/**
+	 * @return the rotation speed below which an object counts as resting
+	 */
+	public double getSleepRotationSpeed() {
+		return sleepRotationSpeed;
+	}
+
+	/**
+	 * @param sleepRotationSpeed the new rotation speed below which an object
+	 *                           counts as resting, in radians per tick
+	 */
+	public void setSleepRotationSpeed(double sleepRotationSpeed) {
+		if (!(sleepRotationSpeed >= 0.0))
+			throw new IllegalArgumentException("Sleep rotation speed must not be negative.");
+
+		this.sleepRotationSpeed = sleepRotationSpeed;
+	}
+
+	/**
+	 * @return the number of resting ticks after which an island falls asleep
+	 */
+	public int getSleepTicks() {
+		return sleepTicks;
+	}
+
+	/**
+	 * @param sleepTicks the new number of resting ticks after which an island
+	 *                   falls asleep
+	 */
+	public void setSleepTicks(int sleepTicks) {
+		if (sleepTicks < 1)
+			throw new IllegalArgumentException("Sleep ticks must be at least 1.");
+
+		this.sleepTicks = sleepTicks;
+	}
+
+}
@@ -0,0 +1,305 @@
+package com.timofriedl.simulationbox.physics.collision;
+
+import com.timofriedl.simulationbox.object.MassObject;
+
+/**
+ * Exact intersection tests between the {@link ShapeType}s of two
+ * {@link MassObject}s.
+ * 
+ * Boxes are tested with the separating axis theorem, their contact points are
+ * found by clipping the incident edge against the reference face. No test
+ * creates any objects.
+ * 
+ * @author Timo Friedl
+ */
+public abstract class Narrowphase {
+
+	/**
+	 * the relative penetration advantage that the second box needs to become the
+	 * reference box, so the reference box does not flip between ticks
+	 */
+	private static final double RELATIVE_TOLERANCE = 0.95;
+
+	/**
+	 * the absolute penetration advantage that the second box needs to become the
+	 * reference box, relative to the smaller box size
+	 */
+	private static final double ABSOLUTE_TOLERANCE = 0.01;
+
+	/**
+	 * Tests two objects for intersection and writes their contact points into a
+	 * manifold.
+	 * 
+	 * @param a the first object
+	 * @param b the second object
+	 * @param m the manifold to write the contact points to
+	 * @return true if the objects intersect, false else
+	 */
+	public static boolean collide(MassObject a, MassObject b, ContactManifold m) {
+		final boolean circleA = a.getShapeType() == ShapeType.CIRCLE;
+		final boolean circleB = b.getShapeType() == ShapeType.CIRCLE;
+
+		if (circleA && circleB)
+			return collideCircles(a, b, m);
+		if (circleA)
+			return collideCircleBox(a, b, m, true);
+		if (circleB)
+			return collideCircleBox(b, a, m, false);
+
+		return collideBoxes(a, b, m);
+	}
+
+	/**
+	 * Tests two circles for intersection.
+	 * 
+	 * @param a the first circle
+	 * @param b the second circle
+	 * @param m the manifold to write the contact point to
+	 * @return true if the circles intersect, false else
+	 */
+	private static boolean collideCircles(MassObject a, MassObject b, ContactManifold m) {
+		final double radiusA = a.getSize().getX() * 0.5;
+		final double radiusB = b.getSize().getX() * 0.5;
+		final double dx = b.getPosition().getX() - a.getPosition().getX();
+		final double dy = b.getPosition().getY() - a.getPosition().getY();
+		final double squareDistance = dx * dx + dy * dy;
+		final double radii = radiusA + radiusB;
+
+		if (squareDistance > radii * radii)
+			return false;
+
+		final double distance = Math.sqrt(squareDistance);
+		final double nx = distance > 0.0 ? dx / distance : 1.0;
+		final double ny = distance > 0.0 ? dy / distance : 0.0;
+		final double depth = radii - distance;
+		final double offset = radiusA - depth * 0.5;
+
+		m.reset(nx, ny);
+		m.addPoint(a.getPosition().getX() + nx * offset, a.getPosition().getY() + ny * offset, depth, 0);
+		return true;
+	}
+
+	/**
+	 * Tests a circle and a box for intersection.
+	 * 
+	 * @param circle       the circle
+	 * @param box          the box
+	 * @param m            the manifold to write the contact point to
+	 * @param circleIsFirst true if the circle is the first object of the
+	 *                     manifold
+	 * @return true if the shapes intersect, false else
+	 */
+	private static boolean collideCircleBox(MassObject circle, MassObject box, ContactManifold m,
+			boolean circleIsFirst) {
+		final double radius = circle.getSize().getX() * 0.5;
+		final double halfWidth = box.getSize().getX() * 0.5;
+		final double halfHeight = box.getSize().getY() * 0.5;
+		final double cos = Math.cos(box.getRotation());
+		final double sin = Math.sin(box.getRotation());
+
+		// circle center in box coordinates
+		final double dx = circle.getPosition().getX() - box.getPosition().getX();
+		final double dy = circle.getPosition().getY() - box.getPosition().getY();
+		final double lx = dx * cos + dy * sin;
+		final double ly = -dx * sin + dy * cos;
+
+		double closestX = Math.max(-halfWidth, Math.min(halfWidth, lx));
+		double closestY = Math.max(-halfHeight, Math.min(halfHeight, ly));
+		double nx, ny, depth;
+
+		if (closestX == lx && closestY == ly) {
+			// center inside the box, push out through the nearest face
+			final double penetrationX = halfWidth - Math.abs(lx);
+			final double penetrationY = halfHeight - Math.abs(ly);
+
+			if (penetrationX < penetrationY) {
+				nx = lx < 0.0 ? -1.0 : 1.0;
+				ny = 0.0;
+				closestX = nx * halfWidth;
+				depth = radius + penetrationX;
+			} else {
+				nx = 0.0;
+				ny = ly < 0.0 ? -1.0 : 1.0;
+				closestY = ny * halfHeight;
+				depth = radius + penetrationY;
+			}
+		} else {
+			final double ox = lx - closestX;
+			final double oy = ly - closestY;
+			final double squareDistance = ox * ox + oy * oy;
+
+			if (squareDistance > radius * radius)
+				return false;
+
+			final double distance = Math.sqrt(squareDistance);
+			nx = ox / distance;
+			ny = oy / distance;
+			depth = radius - distance;
+		}
+
+		// back to ingame coordinates, the normal points from the box to the circle
+		final double worldNormalX = nx * cos - ny * sin;
+		final double worldNormalY = nx * sin + ny * cos;
+		final double pointX = box.getPosition().getX() + closestX * cos - closestY * sin - worldNormalX * depth * 0.5;
+		final double pointY = box.getPosition().getY() + closestX * sin + closestY * cos - worldNormalY * depth * 0.5;
+
+		if (circleIsFirst)
+			m.reset(-worldNormalX, -worldNormalY);
+		else
+			m.reset(worldNormalX, worldNormalY);
+
+		m.addPoint(pointX, pointY, depth, 0);
+		return true;
+	}
+
+	/**
+	 * Tests two rotated boxes for intersection.
+	 * 
+	 * @param a the first box
+	 * @param b the second box
+	 * @param m the manifold to write the contact points to
+	 * @return true if the boxes intersect, false else
+	 */
+	private static boolean collideBoxes(MassObject a, MassObject b, ContactManifold m) {
+		final double ax = a.getPosition().getX(), ay = a.getPosition().getY();
+		final double bx = b.getPosition().getX(), by = b.getPosition().getY();
+		final double hwA = a.getSize().getX() * 0.5, hhA = a.getSize().getY() * 0.5;
+		final double hwB = b.getSize().getX() * 0.5, hhB = b.getSize().getY() * 0.5;
+		final double cosA = Math.cos(a.getRotation()), sinA = Math.sin(a.getRotation());
+		final double cosB = Math.cos(b.getRotation()), sinB = Math.sin(b.getRotation());
+
+		final double dx = bx - ax, dy = by - ay;
+
+		// the width axis of a box is (cos, sin), the height axis (-sin, cos)
+		final double uu = Math.abs(cosA * cosB + sinA * sinB); // |uA.uB|
+		final double uv = Math.abs(-cosA * sinB + sinA * cosB); // |uA.vB|
+		final double vu = Math.abs(-sinA * cosB + cosA * sinB); // |vA.uB|
+		final double vv = Math.abs(sinA * sinB + cosA * cosB); // |vA.vB|
+
+		final double separationAU = Math.abs(dx * cosA + dy * sinA) - hwA - (hwB * uu + hhB * uv);
+		final double separationAV = Math.abs(-dx * sinA + dy * cosA) - hhA - (hwB * vu + hhB * vv);
+		final double separationBU = Math.abs(dx * cosB + dy * sinB) - hwB - (hwA * uu + hhA * vu);
+		final double separationBV = Math.abs(-dx * sinB + dy * cosB) - hhB - (hwA * uv + hhA * vv);
+
+		if (separationAU > 0.0 || separationAV > 0.0 || separationBU > 0.0 || separationBV > 0.0)
+			return false;
+
+		final boolean axisAV = separationAV > separationAU;
+		final boolean axisBV = separationBV > separationBU;
+		final double separationA = axisAV ? separationAV : separationAU;
+		final double separationB = axisBV ? separationBV : separationBU;
+		final double tolerance = ABSOLUTE_TOLERANCE * Math.min(Math.min(hwA, hhA), Math.min(hwB, hhB));
+
+		if (separationB > RELATIVE_TOLERANCE * separationA + tolerance)
+			return clipBoxes(bx, by, hwB, hhB, cosB, sinB, axisBV, ax, ay, hwA, hhA, cosA, sinA, m, true);
+
+		return clipBoxes(ax, ay, hwA, hhA, cosA, sinA, axisAV, bx, by, hwB, hhB, cosB, sinB, m, false);
+	}
+
+	/**
+	 * Finds the contact points of two intersecting boxes by clipping the
+	 * incident edge of one box against the reference face of the other.
+	 * 
+	 * @param rx           the center x position of the reference box
+	 * @param ry           the center y position of the reference box
+	 * @param rhw          the half width of the reference box
+	 * @param rhh          the half height of the reference box
+	 * @param rcos         the cosine of the reference box rotation
+	 * @param rsin         the sine of the reference box rotation
+	 * @param heightAxis   true if the reference face is on the height axis of the
+	 *                     reference box
+	 * @param ix           the center x position of the incident box
+	 * @param iy           the center y position of the incident box
+	 * @param ihw          the half width of the incident box
+	 * @param ihh          the half height of the incident box
+	 * @param icos         the cosine of the incident box rotation
+	 * @param isin         the sine of the incident box rotation
+	 * @param m            the manifold to write the contact points to
+	 * @param referenceIsB true if the reference box is the second object
+	 * @return true if at least one contact point was found
+	 */
+	private static boolean clipBoxes(double rx, double ry, double rhw, double rhh, double rcos, double rsin,
+			boolean heightAxis, double ix, double iy, double ihw, double ihh, double icos, double isin,
+			ContactManifold m, boolean referenceIsB) {
+		// reference face normal (pointing to the incident box) and tangent
+		double nx = heightAxis ? -rsin : rcos;
+		double ny = heightAxis ? rcos : rsin;
+		if ((ix - rx) * nx + (iy - ry) * ny < 0.0) {
+			nx = -nx;
+			ny = -ny;
+		}
+		final double tx = -ny, ty = nx;
+		final double faceExtent = heightAxis ? rhh : rhw;
+		final double sideExtent = heightAxis ? rhw : rhh;
+
+		// incident face: the face of the incident box that faces the reference face most
+		final double dotU = icos * nx + isin * ny;
+		final double dotV = -isin * nx + icos * ny;
+		final double fx, fy, ex, ey, edgeExtent;
+		final int face;
+		if (Math.abs(dotU) > Math.abs(dotV)) {
+			final double sign = dotU > 0.0 ? -1.0 : 1.0;
+			fx = ix + sign * icos * ihw;
+			fy = iy + sign * isin * ihw;
+			ex = -isin;
+			ey = icos;
+			edgeExtent = ihh;
+			face = sign > 0.0 ? 0 : 1;
+		} else {
+			final double sign = dotV > 0.0 ? -1.0 : 1.0;
+			fx = ix - sign * isin * ihh;
+			fy = iy + sign * icos * ihh;
+			ex = icos;
+			ey = isin;
+			edgeExtent = ihw;
+			face = sign > 0.0 ? 2 : 3;
+		}
+
+		double x1 = fx - ex * edgeExtent, y1 = fy - ey * edgeExtent;
+		double x2 = fx + ex * edgeExtent, y2 = fy + ey * edgeExtent;
+		int clipped1 = 0, clipped2 = 0;
+
+		// clip against both side planes of the reference face
+		final double center = rx * tx + ry * ty;
+		for (int side = -1; side <= 1; side += 2) {
+			final double offset = side * center + sideExtent;
+			final double d1 = side * (x1 * tx + y1 * ty) - offset;
+			final double d2 = side * (x2 * tx + y2 * ty) - offset;
+
+			if (d1 > 0.0 && d2 > 0.0)
+				return false;
+
+			if (d1 > 0.0 || d2 > 0.0) {
+				final double t = d1 / (d1 - d2);
+				final double cx = x1 + (x2 - x1) * t;
+				final double cy = y1 + (y2 - y1) * t;
+				if (d1 > 0.0) {
+					x1 = cx;
+					y1 = cy;
+					clipped1 = side + 2;
+				} else {
+					x2 = cx;
+					y2 = cy;
+					clipped2 = side + 2;
+				}
+			}
+		}
+
+		// keep the points below the reference face
+		final double front = rx * nx + ry * ny + faceExtent;
+		final double separation1 = x1 * nx + y1 * ny - front;
+		final double separation2 = x2 * nx + y2 * ny - front;
+		final int baseFeature = (referenceIsB ? 64 : 0) + (heightAxis ? 32 : 0) + face * 8;
+
+		m.reset(referenceIsB ? -nx : nx, referenceIsB ? -ny : ny);
+		if (separation1 <= 0.0)
+			m.addPoint(x1 - nx * separation1 * 0.5, y1 - ny * separation1 * 0.5, -separation1,
+					baseFeature + clipped1);
+		if (separation2 <= 0.0)
+			m.addPoint(x2 - nx * separation2 * 0.5, y2 - ny * separation2 * 0.5, -separation2,
+					baseFeature + 4 + clipped2);
+
+		return m.pointCount > 0;
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.timofriedl.simulationbox.physics.collision;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from object index pairs to manifold indices that
+ * is cleared and refilled on every tick without creating any objects.
+ * 
+ * @author Timo Friedl
+ */
+class PairMap {
+
+	/**
+	 * the marker for empty slots
+	 */
+	private static final long EMPTY = -1L;
+
+	/**
+	 * the pair keys of all slots
+	 */
+	private long[] keys = new long[16];
+
+	/**
+	 * the values of all slots
+	 */
+	private int[] values = new int[16];
+
+	/**
+	 * the number of stored pairs
+	 */
+	private int size;
+
+	/**
+	 * Creates a new empty map.
+	 */
+	PairMap() {
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * @param a the smaller object index
+	 * @param b the bigger object index
+	 * @return the key of the pair
+	 */
+	static long key(int a, int b) {
+		return (long) a << 32 | b & 0xffffffffL;
+	}
+
+	/**
+	 * Removes all pairs.
+	 */
+	void clear() {
+		if (size > 0)
+			Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	/**
+	 * Stores a value for a pair, replacing any old value.
+	 * 
+	 * @param key   the key of the pair
+	 * @param value the value to store
+	 */
+	void put(long key, int value) {
+		if (2 * (size + 1) > keys.length)
+			grow();
+
+		final int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != key)
+			slot = slot + 1 & mask;
+
+		if (keys[slot] == EMPTY)
+			size++;
+		keys[slot] = key;
+		values[slot] = value;
+	}
+
+	/**
+	 * @param key the key of a pair
+	 * @return the value stored for the pair, or -1 if there is none
+	 */
+	int get(long key) {
+		final int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key)
+				return values[slot];
+			slot = slot + 1 & mask;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Doubles the number of slots and inserts all pairs again.
+	 */
+	private void grow() {
+		final long[] oldKeys = keys;
+		final int[] oldValues = values;
+
+		keys = new long[oldKeys.length * 2];
+		values = new int[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+
+		for (int i = 0; i < oldKeys.length; i++)
+			if (oldKeys[i] != EMPTY)
+				put(oldKeys[i], oldValues[i]);
+	}
+
+	/**
+	 * @param key the key of a pair
+	 * @return the hash of the key
+	 */
+	private static int hash(long key) {
+		final long h = key * 0x9e3779b97f4a7c15L;
+		return (int) (h ^ h >>> 32);
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.timofriedl.simulationbox.physics.collision;
+
+/**
+ * The collision shape of a {@link com.timofriedl.simulationbox.object.MassObject}.
+ * 
+ * @author Timo Friedl
+ */
+public enum ShapeType {
+
+	/**
+	 * a circle with the object width as diameter
+	 */
+	CIRCLE,
+
+	/**
+	 * a rotated rectangle with the object size and rotation
+	 */
+	BOX;
+
+}
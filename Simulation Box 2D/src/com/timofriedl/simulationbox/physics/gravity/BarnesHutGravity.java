@@ -0,0 +1,171 @@
+package com.timofriedl.simulationbox.physics.gravity;
+
+import java.util.Arrays;
+
+/**
+ * A {@link GravitySolver} that approximates distant groups of bodies by their
+ * center of mass, using a {@link QuadTree} that is rebuilt on every call.
+ * 
+ * Needs O(n log n) operations per tick. The opening angle θ controls the
+ * accuracy: a node is approximated if its width divided by its distance is
+ * smaller than θ. θ = 0 gives exact results, greater values are faster. The
+ * distance is reduced by the offset of the center of mass, so bodies close to
+ * a lopsided node still open it.
+ * 
+ * The tree walk of a body only collects the bodies of the opened leaves and
+ * the centers of mass of the approximated nodes in an interaction list, which
+ * is then summed up by the unrolled {@link GravityKernel}.
+ * 
+ * For millions of bodies, {@link ParticleMeshGravity} is faster.
+ * 
+ * @author Timo Friedl
+ */
+public class BarnesHutGravity extends GravitySolver {
+
+	/**
+	 * the default opening angle
+	 */
+	public static final double DEFAULT_THETA = 0.5;
+
+	/**
+	 * the maximum opening angle. Above it, a node that contains the body itself
+	 * can be approximated, so the body would attract itself through the center
+	 * of mass of its own node.
+	 */
+	public static final double MAX_THETA = 1.0;
+
+	/**
+	 * the tree of the current bodies
+	 */
+	private final QuadTree tree = new QuadTree();
+
+	/**
+	 * the opening angle
+	 */
+	private double theta;
+
+	/**
+	 * Creates a new Barnes-Hut solver with the default opening angle.
+	 */
+	public BarnesHutGravity() {
+		this(DEFAULT_THETA);
+	}
+
+	/**
+	 * Creates a new Barnes-Hut solver with a given opening angle.
+	 * 
+	 * @param theta the opening angle, from 0 to {@link #MAX_THETA}, usually
+	 *              between 0.3 and 1.0
+	 */
+	public BarnesHutGravity(double theta) {
+		setTheta(theta);
+	}
+
+	@Override
+	protected void prepare(int n, double[] x, double[] y, double[] mass) {
+		tree.build(n, x, y, mass);
+	}
+
+	@Override
+	protected void accelerate(double g, int from, int to, int n, double[] x, double[] y, double[] mass, double[] ax,
+			double[] ay) {
+		final int[] stack = new int[QuadTree.MAX_DEPTH * 3 + 4];
+		final double softeningSquare = getSoftening() * getSoftening();
+		final double[] sum = new double[2];
+		final InteractionList list = new InteractionList();
+
+		for (int i = from; i < to; i++) {
+			final double px = x[i];
+			final double py = y[i];
+
+			list.size = 0;
+			int top = 0;
+			stack[top++] = QuadTree.ROOT;
+
+			while (top > 0) {
+				final int node = stack[--top];
+
+				if (tree.getMass(node) == 0.0)
+					continue;
+
+				if (tree.isLeaf(node)) {
+					// the body itself is at distance zero and adds nothing
+					for (int j = tree.getFirstBody(node); j >= 0; j = tree.getNextBody(j))
+						list.add(x[j], y[j], mass[j]);
+					continue;
+				}
+
+				final double mx = tree.getMassX(node), my = tree.getMassY(node);
+				final double dx = mx - px, dy = my - py;
+				final double distance = Math.sqrt(dx * dx + dy * dy);
+
+				if (theta * distance > tree.getSize(node) + theta * tree.getMassOffset(node)) {
+					list.add(mx, my, tree.getMass(node));
+				} else {
+					final int first = tree.getFirstChild(node);
+					for (int c = first; c < first + 4; c++)
+						stack[top++] = c;
+				}
+			}
+
+			sum[0] = sum[1] = 0.0;
+			GravityKernel.accumulate(px, py, list.x, list.y, list.mass, 0, list.size, softeningSquare, sum);
+			ax[i] = g * sum[0];
+			ay[i] = g * sum[1];
+		}
+	}
+
+	/**
+	 * @return the current opening angle
+	 */
+	public double getTheta() {
+		return theta;
+	}
+
+	/**
+	 * @param theta the new opening angle, from 0 to {@link #MAX_THETA}
+	 */
+	public void setTheta(double theta) {
+		if (!(theta >= 0.0 && theta <= MAX_THETA))
+			throw new IllegalArgumentException("Opening angle must be between 0 and " + MAX_THETA + ".");
+
+		this.theta = theta;
+	}
+
+	/**
+	 * The bodies and centers of mass that attract one body, grown when needed.
+	 */
+	private static class InteractionList {
+
+		/**
+		 * the positions and masses of the attracting bodies
+		 */
+		private double[] x = new double[64], y = new double[64], mass = new double[64];
+
+		/**
+		 * the number of attracting bodies
+		 */
+		private int size;
+
+		/**
+		 * Adds an attracting body.
+		 * 
+		 * @param bodyX    the x position of the body
+		 * @param bodyY    the y position of the body
+		 * @param bodyMass the mass of the body
+		 */
+		private void add(double bodyX, double bodyY, double bodyMass) {
+			if (size == x.length) {
+				x = Arrays.copyOf(x, 2 * size);
+				y = Arrays.copyOf(y, 2 * size);
+				mass = Arrays.copyOf(mass, 2 * size);
+			}
+
+			x[size] = bodyX;
+			y[size] = bodyY;
+			mass[size++] = bodyMass;
+		}
+
+	}
+
+}
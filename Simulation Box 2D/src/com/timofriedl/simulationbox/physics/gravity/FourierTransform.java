@@ -0,0 +1,125 @@
+package com.timofriedl.simulationbox.physics.gravity;
+
+import java.util.concurrent.ForkJoinPool;
+
+import com.timofriedl.simulationbox.parallel.RangeTask;
+
+/**
+ * A radix-2 fast Fourier transform of square complex grids with a side length
+ * that is a power of two.
+ * 
+ * The grids are stored row by row in separate arrays for the real and the
+ * imaginary parts. The rows and then the columns are transformed
+ * independently, so they can be split across the threads of a
+ * {@link ForkJoinPool}.
+ * 
+ * @author Timo Friedl
+ */
+class FourierTransform {
+
+	/**
+	 * the minimum number of rows or columns that one parallel task transforms
+	 */
+	private static final int MIN_LINES_PER_TASK = 16;
+
+	/**
+	 * the side length of the grids
+	 */
+	private final int size;
+
+	/**
+	 * the cosines and sines of the twiddle factors
+	 */
+	private final double[] cos, sin;
+
+	/**
+	 * the bit-reversed index of each index
+	 */
+	private final int[] reversed;
+
+	/**
+	 * Creates a new transform for grids with a given side length.
+	 * 
+	 * @param size the side length, a power of two
+	 */
+	FourierTransform(int size) {
+		if (size < 1 || Integer.bitCount(size) != 1)
+			throw new IllegalArgumentException("Grid size must be a power of two.");
+
+		this.size = size;
+		cos = new double[size / 2];
+		sin = new double[size / 2];
+		for (int k = 0; k < size / 2; k++) {
+			cos[k] = Math.cos(2.0 * Math.PI * k / size);
+			sin[k] = Math.sin(2.0 * Math.PI * k / size);
+		}
+
+		reversed = new int[size];
+		final int bits = Integer.numberOfTrailingZeros(size);
+		for (int i = 0; i < size; i++)
+			reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> 32 - bits;
+	}
+
+	/**
+	 * Transforms a grid in place. The inverse transform is not divided by the
+	 * number of grid points.
+	 * 
+	 * @param re      the real parts of the grid
+	 * @param im      the imaginary parts of the grid
+	 * @param inverse true for the inverse transform
+	 * @param pool    the pool for parallel calculations, or null
+	 */
+	void transform(double[] re, double[] im, boolean inverse, ForkJoinPool pool) {
+		RangeTask.run(pool, 0, size, MIN_LINES_PER_TASK, (from, to) -> {
+			for (int row = from; row < to; row++)
+				transformLine(re, im, row * size, 1, inverse);
+		});
+		RangeTask.run(pool, 0, size, MIN_LINES_PER_TASK, (from, to) -> {
+			for (int column = from; column < to; column++)
+				transformLine(re, im, column, size, inverse);
+		});
+	}
+
+	/**
+	 * Transforms one row or column in place.
+	 * 
+	 * @param re      the real parts of the grid
+	 * @param im      the imaginary parts of the grid
+	 * @param offset  the index of the first element of the line
+	 * @param stride  the distance between two elements of the line
+	 * @param inverse true for the inverse transform
+	 */
+	private void transformLine(double[] re, double[] im, int offset, int stride, boolean inverse) {
+		for (int i = 0; i < size; i++) {
+			final int j = reversed[i];
+			if (j > i) {
+				final int a = offset + i * stride, b = offset + j * stride;
+				final double r = re[a], m = im[a];
+				re[a] = re[b];
+				im[a] = im[b];
+				re[b] = r;
+				im[b] = m;
+			}
+		}
+
+		final double sign = inverse ? 1.0 : -1.0;
+		for (int half = 1; half < size; half <<= 1) {
+			final int step = size / (2 * half);
+
+			for (int start = 0; start < size; start += 2 * half) {
+				for (int k = 0; k < half; k++) {
+					final double wr = cos[k * step], wi = sign * sin[k * step];
+					final int a = offset + (start + k) * stride, b = a + half * stride;
+
+					final double tr = wr * re[b] - wi * im[b];
+					final double ti = wr * im[b] + wi * re[b];
+					re[b] = re[a] - tr;
+					im[b] = im[a] - ti;
+					re[a] += tr;
+					im[a] += ti;
+				}
+			}
+		}
+	}
+
+}
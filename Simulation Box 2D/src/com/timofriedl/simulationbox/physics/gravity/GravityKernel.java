@@ -0,0 +1,90 @@
+package com.timofriedl.simulationbox.physics.gravity;
+
+/**
+ * The direct summation kernel that all {@link GravitySolver}s use for the
+ * attraction between single bodies.
+ * 
+ * Works on primitive arrays and processes four bodies per loop iteration with
+ * independent sums, so the loop body maps onto vector lanes. Distances are
+ * softened by a softening length ε, i.e. r² is replaced by r² + ε², and the
+ * cube of the distance is calculated from one reciprocal square root.
+ * 
+ * @author Timo Friedl
+ */
+public final class GravityKernel {
+
+	/**
+	 * Not instantiable, all methods are static.
+	 */
+	private GravityKernel() {
+	}
+
+	/**
+	 * Sums up the (not yet multiplied with the gravity constant) accelerations
+	 * that a range of bodies cause at a given position.
+	 * 
+	 * Bodies at exactly the given position are ignored if the softening length is
+	 * zero.
+	 * 
+	 * @param px              the x position to calculate the acceleration for
+	 * @param py              the y position to calculate the acceleration for
+	 * @param x               the x positions of the bodies
+	 * @param y               the y positions of the bodies
+	 * @param mass            the masses of the bodies
+	 * @param from            the index of the first attracting body
+	 * @param to              the index after the last attracting body
+	 * @param softeningSquare the square of the softening length
+	 * @param result          a two-element array that the x and y acceleration
+	 *                        are added to
+	 */
+	public static void accumulate(double px, double py, double[] x, double[] y, double[] mass, int from, int to,
+			double softeningSquare, double[] result) {
+		double sx0 = 0.0, sx1 = 0.0, sx2 = 0.0, sx3 = 0.0;
+		double sy0 = 0.0, sy1 = 0.0, sy2 = 0.0, sy3 = 0.0;
+
+		int j = from;
+		for (; j + 3 < to; j += 4) {
+			final double dx0 = x[j] - px, dy0 = y[j] - py;
+			final double dx1 = x[j + 1] - px, dy1 = y[j + 1] - py;
+			final double dx2 = x[j + 2] - px, dy2 = y[j + 2] - py;
+			final double dx3 = x[j + 3] - px, dy3 = y[j + 3] - py;
+
+			final double f0 = mass[j] * inverseCube(dx0 * dx0 + dy0 * dy0 + softeningSquare);
+			final double f1 = mass[j + 1] * inverseCube(dx1 * dx1 + dy1 * dy1 + softeningSquare);
+			final double f2 = mass[j + 2] * inverseCube(dx2 * dx2 + dy2 * dy2 + softeningSquare);
+			final double f3 = mass[j + 3] * inverseCube(dx3 * dx3 + dy3 * dy3 + softeningSquare);
+
+			sx0 += f0 * dx0;
+			sy0 += f0 * dy0;
+			sx1 += f1 * dx1;
+			sy1 += f1 * dy1;
+			sx2 += f2 * dx2;
+			sy2 += f2 * dy2;
+			sx3 += f3 * dx3;
+			sy3 += f3 * dy3;
+		}
+
+		for (; j < to; j++) {
+			final double dx = x[j] - px, dy = y[j] - py;
+			final double f = mass[j] * inverseCube(dx * dx + dy * dy + softeningSquare);
+
+			sx0 += f * dx;
+			sy0 += f * dy;
+		}
+
+		result[0] += (sx0 + sx1) + (sx2 + sx3);
+		result[1] += (sy0 + sy1) + (sy2 + sy3);
+	}
+
+	/**
+	 * Calculates 1 / r³ from r² using one reciprocal square root.
+	 * 
+	 * @param squareDistance the (softened) square distance r²
+	 * @return 1 / r³, or zero if the distance is zero
+	 */
+	public static double inverseCube(double squareDistance) {
+		final double inverse = squareDistance > 0.0 ? 1.0 / Math.sqrt(squareDistance) : 0.0;
+		return inverse * inverse * inverse;
+	}
+
+}
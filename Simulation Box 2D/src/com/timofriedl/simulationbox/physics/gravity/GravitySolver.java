@@ -0,0 +1,214 @@
+package com.timofriedl.simulationbox.physics.gravity;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.timofriedl.simulationbox.object.MassObject;
+import com.timofriedl.simulationbox.parallel.RangeTask;
+import com.timofriedl.simulationbox.vector.Vector2D;
+
+/**
+ * Calculates the gravity accelerations of a whole set of {@link MassObject}s at
+ * once.
+ * 
+ * Use an implementation of this class instead of calling
+ * {@link MassObject#tickGravityTo(MassObject)} for every pair of objects.
+ * 
+ * The acceleration of each body is calculated independently and written to its
+ * own array slot, so the bodies can be split across the threads of a
+ * {@link ForkJoinPool}. Every body sums up its forces in the same order, no
+ * matter how the bodies are split, so the parallel results match the
+ * sequential ones exactly.
+ * 
+ * @author Timo Friedl
+ */
+public abstract class GravitySolver {
+
+	/**
+	 * the minimum number of bodies that one parallel task calculates
+	 */
+	public static final int MIN_BODIES_PER_TASK = 256;
+
+	/**
+	 * the pool for parallel calculations, null for sequential calculations
+	 */
+	private ForkJoinPool pool;
+
+	/**
+	 * the softening length that is added to all distances to avoid infinite
+	 * accelerations of close bodies
+	 */
+	private double softening;
+
+	/**
+	 * the reusable body buffers for {@link #apply(double, List)}
+	 */
+	private double[] x = new double[0], y = new double[0], mass = new double[0], ax = new double[0],
+			ay = new double[0];
+
+	/**
+	 * the object index of each body in the buffers of {@link #apply(double, List)}
+	 */
+	private int[] order = new int[0];
+
+	/**
+	 * Calculates the gravity acceleration of every body caused by all other
+	 * bodies.
+	 * 
+	 * @param g    the gravity constant
+	 * @param n    the number of bodies
+	 * @param x    the x positions of the bodies
+	 * @param y    the y positions of the bodies
+	 * @param mass the masses of the bodies
+	 * @param ax   the array to write the x accelerations to
+	 * @param ay   the array to write the y accelerations to
+	 */
+	public void computeAccelerations(double g, int n, double[] x, double[] y, double[] mass, double[] ax,
+			double[] ay) {
+		computeAccelerations(g, n, n, x, y, mass, ax, ay);
+	}
+
+	/**
+	 * Calculates the gravity acceleration of the first bodies caused by all
+	 * other bodies. The remaining bodies only attract, e.g. because they are
+	 * asleep.
+	 * 
+	 * @param g       the gravity constant
+	 * @param targets the number of bodies to calculate the acceleration for
+	 * @param n       the number of bodies
+	 * @param x       the x positions of the bodies
+	 * @param y       the y positions of the bodies
+	 * @param mass    the masses of the bodies
+	 * @param ax      the array to write the x accelerations to
+	 * @param ay      the array to write the y accelerations to
+	 */
+	public void computeAccelerations(double g, int targets, int n, double[] x, double[] y, double[] mass,
+			double[] ax, double[] ay) {
+		if (targets < 0 || targets > n)
+			throw new IllegalArgumentException("Target count must be between 0 and the body count.");
+
+		prepare(n, x, y, mass);
+
+		RangeTask.run(pool, 0, targets, MIN_BODIES_PER_TASK,
+				(from, to) -> accelerate(g, from, to, n, x, y, mass, ax, ay));
+	}
+
+	/**
+	 * Prepares the calculation for a given set of bodies, e.g. by building a
+	 * spatial data structure. Called once before the accelerations are
+	 * calculated.
+	 * 
+	 * @param n    the number of bodies
+	 * @param x    the x positions of the bodies
+	 * @param y    the y positions of the bodies
+	 * @param mass the masses of the bodies
+	 */
+	protected void prepare(int n, double[] x, double[] y, double[] mass) {
+	}
+
+	/**
+	 * Calculates the gravity acceleration of a range of bodies caused by all
+	 * other bodies. Must only write to the acceleration slots in this range, as
+	 * other ranges might be calculated at the same time.
+	 * 
+	 * @param g    the gravity constant
+	 * @param from the index of the first body to calculate
+	 * @param to   the index after the last body to calculate
+	 * @param n    the number of bodies
+	 * @param x    the x positions of the bodies
+	 * @param y    the y positions of the bodies
+	 * @param mass the masses of the bodies
+	 * @param ax   the array to write the x accelerations to
+	 * @param ay   the array to write the y accelerations to
+	 */
+	protected abstract void accelerate(double g, int from, int to, int n, double[] x, double[] y, double[] mass,
+			double[] ax, double[] ay);
+
+	/**
+	 * Calculates the gravity accelerations between all given objects and adds
+	 * them to their speeds.
+	 * 
+	 * Sleeping objects still attract the others, but are not accelerated
+	 * themselves, so the cost grows with the number of awake objects.
+	 * 
+	 * @param g       the gravity constant, usually
+	 *                {@link com.timofriedl.simulationbox.Simulation#getGravityConstant()}
+	 * @param objects the objects that attract each other
+	 */
+	public void apply(double g, List<? extends MassObject> objects) {
+		final int n = objects.size();
+		ensureCapacity(n);
+
+		// awake objects first, sleeping ones from the back
+		int awake = 0, sleeping = n;
+		for (int i = 0; i < n; i++) {
+			final MassObject o = objects.get(i);
+			final int slot = o.isSleeping() ? --sleeping : awake++;
+			order[slot] = i;
+			x[slot] = o.getPosition().getX();
+			y[slot] = o.getPosition().getY();
+			mass[slot] = o.getMass();
+		}
+
+		computeAccelerations(g, awake, n, x, y, mass, ax, ay);
+
+		// speeds are only changed after all accelerations are known
+		for (int slot = 0; slot < awake; slot++) {
+			final MassObject o = objects.get(order[slot]);
+			final Vector2D speed = o.getSpeed();
+			o.setSpeed(new Vector2D(speed.getX() + ax[slot], speed.getY() + ay[slot]));
+		}
+	}
+
+	/**
+	 * Grows the body buffers to hold at least <code>n</code> bodies.
+	 * 
+	 * @param n the required number of bodies
+	 */
+	private void ensureCapacity(int n) {
+		if (x.length >= n)
+			return;
+
+		final int capacity = Math.max(n, x.length * 2);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		mass = Arrays.copyOf(mass, capacity);
+		ax = Arrays.copyOf(ax, capacity);
+		ay = Arrays.copyOf(ay, capacity);
+		order = Arrays.copyOf(order, capacity);
+	}
+
+	/**
+	 * @return the softening length
+	 */
+	public double getSoftening() {
+		return softening;
+	}
+
+	/**
+	 * @param softening the new softening length, zero for exact Newtonian gravity
+	 */
+	public void setSoftening(double softening) {
+		if (!(softening >= 0.0) || Double.isInfinite(softening))
+			throw new IllegalArgumentException("Softening length must not be negative and must be finite.");
+
+		this.softening = softening;
+	}
+
+	/**
+	 * @return the pool for parallel calculations, null if sequential
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool the new pool for parallel calculations, null for sequential
+	 *             calculations
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.timofriedl.simulationbox.physics.gravity;
+
+/**
+ * A {@link GravitySolver} that sums up the attraction of every pair of bodies.
+ * 
+ * Exact, but needs O(n²) operations per tick. Prefer {@link BarnesHutGravity}
+ * for scenes with more than a few thousand bodies. The sums are calculated by
+ * the {@link GravityKernel}.
+ * 
+ * @author Timo Friedl
+ */
+public class PairwiseGravity extends GravitySolver {
+
+	@Override
+	protected void accelerate(double g, int from, int to, int n, double[] x, double[] y, double[] mass, double[] ax,
+			double[] ay) {
+		final double softeningSquare = getSoftening() * getSoftening();
+		final double[] sum = new double[2];
+
+		for (int i = from; i < to; i++) {
+			sum[0] = sum[1] = 0.0;
+			GravityKernel.accumulate(x[i], y[i], x, y, mass, 0, n, softeningSquare, sum);
+
+			ax[i] = g * sum[0];
+			ay[i] = g * sum[1];
+		}
+	}
+
+}
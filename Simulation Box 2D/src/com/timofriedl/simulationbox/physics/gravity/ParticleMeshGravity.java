@@ -0,0 +1,436 @@
+package com.timofriedl.simulationbox.physics.gravity;
+
+import java.util.Arrays;
+
+/**
+ * A {@link GravitySolver} that calculates the gravity on a mesh with fast
+ * Fourier transforms.
+ * 
+ * The masses of the bodies are distributed onto a square mesh around all
+ * bodies with the cloud-in-cell scheme, convolved with the gravity of a single
+ * mesh cell in Fourier space and interpolated back to the bodies. The mesh is
+ * padded to twice its size, so distant bodies do not attract each other
+ * through the mesh borders. One calculation needs O(n + m² log m) operations
+ * for a mesh with m × m cells, and the transforms and interpolations run in
+ * parallel on the pool of the solver.
+ * 
+ * The mesh alone cannot resolve distances below a few cells, so bodies closer
+ * than that are softened by at least one cell size. With the short range
+ * correction enabled (P³M), the mesh only calculates the smooth long range part
+ * of the gravity, and bodies closer than a few cells are summed up directly,
+ * which restores the exact attraction of close bodies at the cost of a
+ * neighbour search.
+ * 
+ * @author Timo Friedl
+ */
+public class ParticleMeshGravity extends GravitySolver {
+
+	/**
+	 * the default number of mesh cells in each direction
+	 */
+	public static final int DEFAULT_MESH_SIZE = 256;
+
+	/**
+	 * the default distance in mesh cells at which the gravity is split into the
+	 * long range and the short range part
+	 */
+	public static final double DEFAULT_SPLIT_SCALE = 1.25;
+
+	/**
+	 * the distance in split scales beyond which the short range part is ignored
+	 */
+	private static final double CUTOFF = 4.5;
+
+	/**
+	 * 2 / sqrt(pi)
+	 */
+	private static final double TWO_BY_SQRT_PI = 2.0 / Math.sqrt(Math.PI);
+
+	/**
+	 * the number of mesh cells in each direction
+	 */
+	private int meshSize;
+
+	/**
+	 * true if close bodies are summed up directly
+	 */
+	private boolean shortRange;
+
+	/**
+	 * the split distance in mesh cells
+	 */
+	private double splitScale = DEFAULT_SPLIT_SCALE;
+
+	/**
+	 * the transform of the padded mesh
+	 */
+	private FourierTransform transform;
+
+	/**
+	 * the real and imaginary parts of the padded mesh
+	 */
+	private double[] re = new double[0], im = new double[0];
+
+	/**
+	 * the transformed gravity of one cell, x in the real and y in the imaginary
+	 * part
+	 */
+	private double[] kernelRe = new double[0], kernelIm = new double[0];
+
+	/**
+	 * the parameters that the current kernel was built for
+	 */
+	private double kernelCellSize = Double.NaN, kernelSoftening, kernelSplitScale;
+
+	/**
+	 * true if the current kernel only contains the long range part
+	 */
+	private boolean kernelShortRange;
+
+	/**
+	 * the accelerations at the mesh points, not yet multiplied with the gravity
+	 * constant
+	 */
+	private double[] meshAx = new double[0], meshAy = new double[0];
+
+	/**
+	 * the position of the first mesh point
+	 */
+	private double originX, originY;
+
+	/**
+	 * the size of one mesh cell
+	 */
+	private double cellSize;
+
+	/**
+	 * the first body in each neighbour cell, or -1
+	 */
+	private int[] cellHead = new int[0];
+
+	/**
+	 * the next body in the same neighbour cell, or -1
+	 */
+	private int[] nextBody = new int[0];
+
+	/**
+	 * the number of neighbour cells in each direction
+	 */
+	private int neighbourCells;
+
+	/**
+	 * the size of one neighbour cell, equal to the short range cutoff
+	 */
+	private double neighbourCellSize;
+
+	/**
+	 * Creates a new particle mesh solver with the default mesh size and without
+	 * short range correction.
+	 */
+	public ParticleMeshGravity() {
+		this(DEFAULT_MESH_SIZE, false);
+	}
+
+	/**
+	 * Creates a new particle mesh solver.
+	 * 
+	 * @param meshSize   the number of mesh cells in each direction, a power of
+	 *                   two
+	 * @param shortRange true to sum up close bodies directly (P³M)
+	 */
+	public ParticleMeshGravity(int meshSize, boolean shortRange) {
+		setMeshSize(meshSize);
+		this.shortRange = shortRange;
+	}
+
+	@Override
+	protected void prepare(int n, double[] x, double[] y, double[] mass) {
+		if (n == 0)
+			return;
+
+		double minX = x[0], minY = y[0], maxX = x[0], maxY = y[0];
+		for (int i = 1; i < n; i++) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+
+		// the cell size only takes a few values, so the kernel rarely needs to be rebuilt
+		final double span = Math.max(maxX - minX, maxY - minY);
+		final double rawCellSize = span > 0.0 ? span / (meshSize - 2) : 1.0;
+		cellSize = Math.pow(2.0, Math.ceil(8.0 * Math.log(rawCellSize) / Math.log(2.0)) / 8.0);
+		originX = 0.5 * (minX + maxX) - 0.5 * (meshSize - 1) * cellSize;
+		originY = 0.5 * (minY + maxY) - 0.5 * (meshSize - 1) * cellSize;
+
+		if (cellSize != kernelCellSize || getSoftening() != kernelSoftening || shortRange != kernelShortRange
+				|| splitScale != kernelSplitScale)
+			buildKernel();
+
+		solve(n, x, y, mass);
+
+		if (shortRange)
+			buildNeighbourCells(n, x, y);
+	}
+
+	/**
+	 * Calculates the transformed gravity of one cell for the current cell size.
+	 */
+	private void buildKernel() {
+		final int size = 2 * meshSize;
+		final double softeningSquare = shortRange ? 0.0
+				: Math.pow(Math.max(getSoftening(), cellSize), 2.0);
+		final double split = splitScale * cellSize;
+
+		for (int j = 0; j < size; j++) {
+			final int cy = j < meshSize ? j : j - size;
+
+			for (int i = 0; i < size; i++) {
+				final int cx = i < meshSize ? i : i - size;
+				final int k = j * size + i;
+
+				if (i == meshSize || j == meshSize) {
+					kernelRe[k] = kernelIm[k] = 0.0;
+					continue;
+				}
+
+				// the acceleration of a mesh point caused by a unit mass at (-cx, -cy) cells
+				final double dx = -cx * cellSize, dy = -cy * cellSize;
+				final double squareDistance = dx * dx + dy * dy;
+				final double f = shortRange ? longRange(Math.sqrt(squareDistance), split)
+						: GravityKernel.inverseCube(squareDistance + softeningSquare);
+
+				kernelRe[k] = f * dx;
+				kernelIm[k] = f * dy;
+			}
+		}
+
+		transform.transform(kernelRe, kernelIm, false, getPool());
+
+		kernelCellSize = cellSize;
+		kernelSoftening = getSoftening();
+		kernelShortRange = shortRange;
+		kernelSplitScale = splitScale;
+	}
+
+	/**
+	 * Distributes the masses onto the mesh and calculates the accelerations at
+	 * the mesh points.
+	 * 
+	 * @param n    the number of bodies
+	 * @param x    the x positions of the bodies
+	 * @param y    the y positions of the bodies
+	 * @param mass the masses of the bodies
+	 */
+	private void solve(int n, double[] x, double[] y, double[] mass) {
+		final int size = 2 * meshSize;
+		Arrays.fill(re, 0.0);
+		Arrays.fill(im, 0.0);
+
+		for (int b = 0; b < n; b++) {
+			final double gx = (x[b] - originX) / cellSize, gy = (y[b] - originY) / cellSize;
+			final int i = (int) gx, j = (int) gy;
+			final double fx = gx - i, fy = gy - j;
+			final int k = j * size + i;
+
+			re[k] += mass[b] * (1.0 - fx) * (1.0 - fy);
+			re[k + 1] += mass[b] * fx * (1.0 - fy);
+			re[k + size] += mass[b] * (1.0 - fx) * fy;
+			re[k + size + 1] += mass[b] * fx * fy;
+		}
+
+		transform.transform(re, im, false, getPool());
+
+		for (int k = 0; k < re.length; k++) {
+			final double r = re[k] * kernelRe[k] - im[k] * kernelIm[k];
+			im[k] = re[k] * kernelIm[k] + im[k] * kernelRe[k];
+			re[k] = r;
+		}
+
+		// the x and y accelerations come out as the real and imaginary parts, as the masses are real
+		transform.transform(re, im, true, getPool());
+
+		final double scale = 1.0 / ((double) size * size);
+		for (int j = 0; j < meshSize; j++) {
+			for (int i = 0; i < meshSize; i++) {
+				meshAx[j * meshSize + i] = re[j * size + i] * scale;
+				meshAy[j * meshSize + i] = im[j * size + i] * scale;
+			}
+		}
+	}
+
+	/**
+	 * Sorts the bodies into square cells with the size of the short range
+	 * cutoff.
+	 * 
+	 * @param n the number of bodies
+	 * @param x the x positions of the bodies
+	 * @param y the y positions of the bodies
+	 */
+	private void buildNeighbourCells(int n, double[] x, double[] y) {
+		neighbourCellSize = CUTOFF * splitScale * cellSize;
+		neighbourCells = (int) Math.ceil(meshSize * cellSize / neighbourCellSize);
+
+		if (cellHead.length < neighbourCells * neighbourCells)
+			cellHead = new int[neighbourCells * neighbourCells];
+		if (nextBody.length < n)
+			nextBody = new int[Math.max(n, nextBody.length * 2)];
+
+		Arrays.fill(cellHead, 0, neighbourCells * neighbourCells, -1);
+		for (int b = n - 1; b >= 0; b--) {
+			final int cell = neighbourCell(y[b], originY) * neighbourCells + neighbourCell(x[b], originX);
+			nextBody[b] = cellHead[cell];
+			cellHead[cell] = b;
+		}
+	}
+
+	/**
+	 * @param position a body coordinate
+	 * @param origin   the matching coordinate of the first mesh point
+	 * @return the neighbour cell index of the coordinate
+	 */
+	private int neighbourCell(double position, double origin) {
+		return Math.min((int) ((position - origin) / neighbourCellSize), neighbourCells - 1);
+	}
+
+	@Override
+	protected void accelerate(double g, int from, int to, int n, double[] x, double[] y, double[] mass, double[] ax,
+			double[] ay) {
+		final double split = splitScale * cellSize;
+		final double cutoffSquare = neighbourCellSize * neighbourCellSize;
+		final double softeningSquare = getSoftening() * getSoftening();
+
+		for (int b = from; b < to; b++) {
+			final double gx = (x[b] - originX) / cellSize, gy = (y[b] - originY) / cellSize;
+			final int i = (int) gx, j = (int) gy;
+			final double fx = gx - i, fy = gy - j;
+			final int k = j * meshSize + i;
+
+			final double w00 = (1.0 - fx) * (1.0 - fy), w10 = fx * (1.0 - fy), w01 = (1.0 - fx) * fy, w11 = fx * fy;
+			double sx = w00 * meshAx[k] + w10 * meshAx[k + 1] + w01 * meshAx[k + meshSize]
+					+ w11 * meshAx[k + meshSize + 1];
+			double sy = w00 * meshAy[k] + w10 * meshAy[k + 1] + w01 * meshAy[k + meshSize]
+					+ w11 * meshAy[k + meshSize + 1];
+
+			if (shortRange) {
+				final int cx = neighbourCell(x[b], originX), cy = neighbourCell(y[b], originY);
+
+				for (int ny = Math.max(cy - 1, 0); ny <= Math.min(cy + 1, neighbourCells - 1); ny++) {
+					for (int nx = Math.max(cx - 1, 0); nx <= Math.min(cx + 1, neighbourCells - 1); nx++) {
+						for (int o = cellHead[ny * neighbourCells + nx]; o >= 0; o = nextBody[o]) {
+							final double dx = x[o] - x[b], dy = y[o] - y[b];
+							final double squareDistance = dx * dx + dy * dy;
+							if (o == b || squareDistance >= cutoffSquare)
+								continue;
+
+							final double f = mass[o] * (GravityKernel.inverseCube(squareDistance + softeningSquare)
+									- longRange(Math.sqrt(squareDistance), split));
+							sx += f * dx;
+							sy += f * dy;
+						}
+					}
+				}
+			}
+
+			ax[b] = g * sx;
+			ay[b] = g * sy;
+		}
+	}
+
+	/**
+	 * Calculates the long range part of 1 / r³, the gradient of erf(r / 2s) / r
+	 * divided by -r. It is smooth and finite at r = 0.
+	 * 
+	 * @param r     the distance
+	 * @param split the split distance s
+	 * @return the long range part of 1 / r³
+	 */
+	private static double longRange(double r, double split) {
+		final double u = r / (2.0 * split);
+		final double squareU = u * u;
+
+		if (u < 0.2) {
+			// series expansion, as the difference below cancels out for small u
+			return TWO_BY_SQRT_PI / (8.0 * split * split * split)
+					* (2.0 / 3.0 - 0.4 * squareU + squareU * squareU / 7.0);
+		}
+
+		return (erf(u) - TWO_BY_SQRT_PI * u * Math.exp(-squareU)) / (r * r * r);
+	}
+
+	/**
+	 * Approximates the error function with an absolute error below 1.5E-7.
+	 * 
+	 * @param u a non-negative number
+	 * @return erf(u)
+	 */
+	private static double erf(double u) {
+		final double t = 1.0 / (1.0 + 0.3275911 * u);
+		final double poly = t * (0.254829592
+				+ t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))));
+		return 1.0 - poly * Math.exp(-u * u);
+	}
+
+	/**
+	 * @return the number of mesh cells in each direction
+	 */
+	public int getMeshSize() {
+		return meshSize;
+	}
+
+	/**
+	 * @param meshSize the new number of mesh cells in each direction, a power of
+	 *                 two of at least 4
+	 */
+	public void setMeshSize(int meshSize) {
+		if (meshSize < 4 || Integer.bitCount(meshSize) != 1)
+			throw new IllegalArgumentException("Mesh size must be a power of two of at least 4.");
+
+		this.meshSize = meshSize;
+
+		final int size = 2 * meshSize;
+		transform = new FourierTransform(size);
+		re = new double[size * size];
+		im = new double[size * size];
+		kernelRe = new double[size * size];
+		kernelIm = new double[size * size];
+		meshAx = new double[meshSize * meshSize];
+		meshAy = new double[meshSize * meshSize];
+		kernelCellSize = Double.NaN;
+	}
+
+	/**
+	 * @return true if close bodies are summed up directly (P³M)
+	 */
+	public boolean isShortRange() {
+		return shortRange;
+	}
+
+	/**
+	 * @param shortRange true to sum up close bodies directly (P³M), false to use
+	 *                   the mesh only
+	 */
+	public void setShortRange(boolean shortRange) {
+		this.shortRange = shortRange;
+	}
+
+	/**
+	 * @return the distance in mesh cells at which the gravity is split into the
+	 *         long range and the short range part
+	 */
+	public double getSplitScale() {
+		return splitScale;
+	}
+
+	/**
+	 * @param splitScale the new split distance in mesh cells, greater values are
+	 *                   more accurate but sum up more bodies directly
+	 */
+	public void setSplitScale(double splitScale) {
+		if (!(splitScale >= 0.5))
+			throw new IllegalArgumentException("Split scale must be at least 0.5 cells.");
+
+		this.splitScale = splitScale;
+	}
+
+}
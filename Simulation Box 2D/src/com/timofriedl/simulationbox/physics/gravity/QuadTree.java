@@ -0,0 +1,322 @@
+package com.timofriedl.simulationbox.physics.gravity;
+
+import java.util.Arrays;
+
+/**
+ * A quadtree over the centers of mass of a set of bodies.
+ * 
+ * All nodes are stored in reusable arrays, so rebuilding the tree every tick
+ * does not allocate new objects once the arrays are big enough.
+ * 
+ * @author Timo Friedl
+ */
+public class QuadTree {
+
+	/**
+	 * the maximum tree depth, bodies at this depth share one leaf
+	 */
+	public static final int MAX_DEPTH = 48;
+
+	/**
+	 * the node index of the root node
+	 */
+	public static final int ROOT = 0;
+
+	/**
+	 * the number of nodes currently in use
+	 */
+	private int nodeCount;
+
+	/**
+	 * the center position and half width of each node square
+	 */
+	private double[] centerX = new double[0], centerY = new double[0], halfSize = new double[0];
+
+	/**
+	 * the total mass and center of mass of each node
+	 */
+	private double[] nodeMass = new double[0], massX = new double[0], massY = new double[0];
+
+	/**
+	 * the distance between the center of mass and the square center of each node
+	 */
+	private double[] massOffset = new double[0];
+
+	/**
+	 * the index of the first of four children of each node, -1 for leaves
+	 */
+	private int[] firstChild = new int[0];
+
+	/**
+	 * the first body of each leaf, -1 for empty leaves
+	 */
+	private int[] firstBody = new int[0];
+
+	/**
+	 * the next body in the same leaf for each body, -1 for the last one
+	 */
+	private int[] nextBody = new int[0];
+
+	/**
+	 * the body positions of the current build
+	 */
+	private double[] bodyX, bodyY;
+
+	/**
+	 * Rebuilds this tree for a given set of bodies.
+	 * 
+	 * @param n    the number of bodies
+	 * @param x    the x positions of the bodies
+	 * @param y    the y positions of the bodies
+	 * @param mass the masses of the bodies
+	 */
+	public void build(int n, double[] x, double[] y, double[] mass) {
+		if (nextBody.length < n)
+			nextBody = new int[Math.max(n, nextBody.length * 2)];
+
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+
+		bodyX = x;
+		bodyY = y;
+
+		nodeCount = 0;
+		if (n == 0) {
+			createNode(0.0, 0.0, 0.5);
+			return;
+		}
+
+		final double half = Math.max(Math.max(maxX - minX, maxY - minY) * 0.5, Double.MIN_NORMAL) * 1.0001;
+		createNode((minX + maxX) * 0.5, (minY + maxY) * 0.5, half);
+
+		for (int i = 0; i < n; i++)
+			insert(i, x[i], y[i]);
+
+		computeMasses(x, y, mass);
+	}
+
+	/**
+	 * Inserts a body into the tree.
+	 * 
+	 * @param body the index of the body
+	 * @param px   the x position of the body
+	 * @param py   the y position of the body
+	 */
+	private void insert(int body, double px, double py) {
+		int node = ROOT;
+
+		for (int depth = 0;; depth++) {
+			if (firstChild[node] >= 0) {
+				node = childAt(node, px, py);
+				continue;
+			}
+
+			if (firstBody[node] < 0 || depth >= MAX_DEPTH) {
+				nextBody[body] = firstBody[node];
+				firstBody[node] = body;
+				return;
+			}
+
+			// split the leaf and move its only body down one level
+			final int other = firstBody[node];
+			firstBody[node] = -1;
+			subdivide(node);
+
+			final int child = childAt(node, bodyX[other], bodyY[other]);
+			firstBody[child] = other;
+			nextBody[other] = -1;
+
+			node = childAt(node, px, py);
+		}
+	}
+
+	/**
+	 * Creates the four children of a leaf node.
+	 * 
+	 * @param node the index of the node to split
+	 */
+	private void subdivide(int node) {
+		final double q = halfSize[node] * 0.5;
+		final double cx = centerX[node];
+		final double cy = centerY[node];
+
+		final int first = createNode(cx - q, cy - q, q);
+		createNode(cx + q, cy - q, q);
+		createNode(cx - q, cy + q, q);
+		createNode(cx + q, cy + q, q);
+
+		firstChild[node] = first;
+	}
+
+	/**
+	 * Finds the child of an inner node that contains a given position.
+	 * 
+	 * @param node the index of the inner node
+	 * @param px   the x position
+	 * @param py   the y position
+	 * @return the index of the child node
+	 */
+	private int childAt(int node, double px, double py) {
+		return firstChild[node] + (px < centerX[node] ? 0 : 1) + (py < centerY[node] ? 0 : 2);
+	}
+
+	/**
+	 * Appends a new empty leaf node.
+	 * 
+	 * @param cx   the center x position of the node square
+	 * @param cy   the center y position of the node square
+	 * @param half the half width of the node square
+	 * @return the index of the new node
+	 */
+	private int createNode(double cx, double cy, double half) {
+		if (nodeCount == firstChild.length)
+			grow();
+
+		final int node = nodeCount++;
+		centerX[node] = cx;
+		centerY[node] = cy;
+		halfSize[node] = half;
+		firstChild[node] = -1;
+		firstBody[node] = -1;
+		nodeMass[node] = 0.0;
+
+		return node;
+	}
+
+	/**
+	 * Doubles the capacity of all node arrays.
+	 */
+	private void grow() {
+		final int capacity = Math.max(64, firstChild.length * 2);
+
+		centerX = Arrays.copyOf(centerX, capacity);
+		centerY = Arrays.copyOf(centerY, capacity);
+		halfSize = Arrays.copyOf(halfSize, capacity);
+		nodeMass = Arrays.copyOf(nodeMass, capacity);
+		massX = Arrays.copyOf(massX, capacity);
+		massY = Arrays.copyOf(massY, capacity);
+		massOffset = Arrays.copyOf(massOffset, capacity);
+		firstChild = Arrays.copyOf(firstChild, capacity);
+		firstBody = Arrays.copyOf(firstBody, capacity);
+	}
+
+	/**
+	 * Calculates the total mass and center of mass of every node. Children are
+	 * always created after their parents, so a reverse pass visits them first.
+	 * 
+	 * @param x    the x positions of the bodies
+	 * @param y    the y positions of the bodies
+	 * @param mass the masses of the bodies
+	 */
+	private void computeMasses(double[] x, double[] y, double[] mass) {
+		for (int node = nodeCount - 1; node >= 0; node--) {
+			double m = 0.0, mx = 0.0, my = 0.0;
+
+			if (firstChild[node] >= 0) {
+				for (int c = firstChild[node]; c < firstChild[node] + 4; c++) {
+					m += nodeMass[c];
+					mx += nodeMass[c] * massX[c];
+					my += nodeMass[c] * massY[c];
+				}
+			} else {
+				for (int b = firstBody[node]; b >= 0; b = nextBody[b]) {
+					m += mass[b];
+					mx += mass[b] * x[b];
+					my += mass[b] * y[b];
+				}
+			}
+
+			nodeMass[node] = m;
+			massX[node] = m != 0.0 ? mx / m : centerX[node];
+			massY[node] = m != 0.0 ? my / m : centerY[node];
+			massOffset[node] = Math.hypot(massX[node] - centerX[node], massY[node] - centerY[node]);
+		}
+	}
+
+	/**
+	 * @param node the index of a node
+	 * @return true if the node has no children
+	 */
+	public boolean isLeaf(int node) {
+		return firstChild[node] < 0;
+	}
+
+	/**
+	 * @param node the index of an inner node
+	 * @return the index of the first of its four consecutive children
+	 */
+	public int getFirstChild(int node) {
+		return firstChild[node];
+	}
+
+	/**
+	 * @param node the index of a leaf node
+	 * @return the index of the first body in the leaf, -1 if empty
+	 */
+	public int getFirstBody(int node) {
+		return firstBody[node];
+	}
+
+	/**
+	 * @param body the index of a body
+	 * @return the index of the next body in the same leaf, -1 if none
+	 */
+	public int getNextBody(int body) {
+		return nextBody[body];
+	}
+
+	/**
+	 * @param node the index of a node
+	 * @return the width of the node square
+	 */
+	public double getSize(int node) {
+		return halfSize[node] * 2.0;
+	}
+
+	/**
+	 * @param node the index of a node
+	 * @return the total mass of all bodies in the node
+	 */
+	public double getMass(int node) {
+		return nodeMass[node];
+	}
+
+	/**
+	 * @param node the index of a node
+	 * @return the x position of the center of mass of the node
+	 */
+	public double getMassX(int node) {
+		return massX[node];
+	}
+
+	/**
+	 * @param node the index of a node
+	 * @return the y position of the center of mass of the node
+	 */
+	public double getMassY(int node) {
+		return massY[node];
+	}
+
+	/**
+	 * @param node the index of a node
+	 * @return the distance between the center of mass and the square center of
+	 *         the node
+	 */
+	public double getMassOffset(int node) {
+		return massOffset[node];
+	}
+
+	/**
+	 * @return the number of nodes of the current tree
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+}
@@ -0,0 +1,303 @@
+package com.timofriedl.simulationbox.physics.integration;
+
+import java.util.Arrays;
+
+import com.timofriedl.simulationbox.physics.BodyStore;
+
+/**
+ * A kick-drift-kick leapfrog method with hierarchical block time steps.
+ * 
+ * Each body gets its own time step, the step of the whole integration divided
+ * by a power of two. Bodies with strong accelerations, like tightly bound
+ * pairs, take many small steps, while distant bodies take few large ones. All
+ * bodies drift together, but only the bodies whose own step ends are
+ * accelerated again, so most force calculations are saved when few bodies
+ * need small steps. A body chooses the largest step with
+ * 
+ * <pre>
+ * dt &lt;= sqrt(2 * accuracy * lengthScale / |a|)
+ * </pre>
+ * 
+ * and may only change to a larger step when both steps end at the same time.
+ * 
+ * @author Timo Friedl
+ */
+public class BlockTimestepLeapfrog extends Integrator {
+
+	/**
+	 * the default maximum number of times that the step of a body is halved
+	 */
+	public static final int DEFAULT_MAX_LEVEL = 8;
+
+	/**
+	 * the default accuracy parameter of the time step criterion
+	 */
+	public static final double DEFAULT_ACCURACY = 0.025;
+
+	/**
+	 * the maximum number of times that the step of a body is halved
+	 */
+	private int maxLevel = DEFAULT_MAX_LEVEL;
+
+	/**
+	 * the accuracy parameter of the time step criterion
+	 */
+	private double accuracy = DEFAULT_ACCURACY;
+
+	/**
+	 * the length scale of the time step criterion, e.g. the softening length
+	 */
+	private double lengthScale = 1.0;
+
+	/**
+	 * the number of times that the step of each body is halved
+	 */
+	private int[] level = new int[0];
+
+	/**
+	 * the indices of the bodies that are accelerated in the current substep
+	 */
+	private int[] active = new int[0];
+
+	/**
+	 * the body arrays with the active bodies first, for the force field
+	 */
+	private double[] sortedX = new double[0], sortedY = new double[0], sortedMass = new double[0],
+			sortedAx = new double[0], sortedAy = new double[0];
+
+	/**
+	 * the number of bodies that a force calculation covered on average in the
+	 * last step, relative to all bodies
+	 */
+	private double activeRatio;
+
+	@Override
+	protected void integrate(BodyStore bodies, ForceField field, double dt) {
+		final int n = bodies.size();
+		if (n == 0)
+			return;
+
+		ensureCapacity(n);
+		if (!bodies.areAccelerationsValid()) {
+			ensureAccelerations(bodies, field);
+			for (int i = 0; i < n; i++)
+				level[i] = chooseLevel(bodies, i, dt, 0);
+		}
+
+		final double[] vx = bodies.getSpeedX(), vy = bodies.getSpeedY();
+		final double[] ax = bodies.getAccelerationX(), ay = bodies.getAccelerationY();
+
+		// the whole step is split into 2^maxLevel substeps, level l spans 2^(maxLevel - l) of them
+		final int substeps = 1 << maxLevel;
+		final double substepDt = dt / substeps;
+
+		int finestLevel = 0;
+		for (int i = 0; i < n; i++) {
+			level[i] = Math.min(level[i], maxLevel);
+			final double halfDt = 0.5 * dt / (1 << level[i]);
+			vx[i] += ax[i] * halfDt;
+			vy[i] += ay[i] * halfDt;
+			finestLevel = Math.max(finestLevel, level[i]);
+		}
+
+		long evaluated = 0L;
+		int evaluations = 0;
+
+		for (int t = 0; t < substeps;) {
+			final int next = t + (substeps >> finestLevel);
+			bodies.move((next - t) * substepDt);
+			t = next;
+
+			// the bodies whose own step ends now
+			int activeCount = 0;
+			for (int i = 0; i < n; i++)
+				if ((t & (substeps >> level[i]) - 1) == 0)
+					active[activeCount++] = i;
+
+			accelerate(bodies, field, activeCount);
+			evaluated += activeCount;
+			evaluations++;
+
+			finestLevel = 0;
+			for (int i = 0; i < n; i++) {
+				if ((t & (substeps >> level[i]) - 1) == 0) {
+					final double closingDt = 0.5 * dt / (1 << level[i]);
+					vx[i] += ax[i] * closingDt;
+					vy[i] += ay[i] * closingDt;
+
+					if (t < substeps) {
+						level[i] = chooseLevel(bodies, i, dt, t);
+						final double openingDt = 0.5 * dt / (1 << level[i]);
+						vx[i] += ax[i] * openingDt;
+						vy[i] += ay[i] * openingDt;
+					}
+				}
+
+				finestLevel = Math.max(finestLevel, level[i]);
+			}
+		}
+
+		// all bodies end together, so their next steps can be chosen freely
+		for (int i = 0; i < n; i++)
+			level[i] = chooseLevel(bodies, i, dt, 0);
+
+		activeRatio = (double) evaluated / ((double) evaluations * n);
+	}
+
+	/**
+	 * Calculates the accelerations of the active bodies caused by all bodies.
+	 * 
+	 * @param bodies      the bodies of the integration
+	 * @param field       the forces that accelerate the bodies
+	 * @param activeCount the number of active bodies
+	 */
+	private void accelerate(BodyStore bodies, ForceField field, int activeCount) {
+		final int n = bodies.size();
+
+		if (activeCount == n) {
+			bodies.invalidateAccelerations();
+			ensureAccelerations(bodies, field);
+			return;
+		}
+
+		final double[] x = bodies.getX(), y = bodies.getY(), mass = bodies.getMass();
+		final double[] ax = bodies.getAccelerationX(), ay = bodies.getAccelerationY();
+
+		// active bodies first, the others behind them
+		int slot = 0, a = 0;
+		for (int i = 0; i < n; i++) {
+			if (a < activeCount && active[a] == i) {
+				a++;
+				continue;
+			}
+
+			final int s = activeCount + slot++;
+			sortedX[s] = x[i];
+			sortedY[s] = y[i];
+			sortedMass[s] = mass[i];
+		}
+		for (int k = 0; k < activeCount; k++) {
+			final int i = active[k];
+			sortedX[k] = x[i];
+			sortedY[k] = y[i];
+			sortedMass[k] = mass[i];
+		}
+
+		computeAccelerations(field, activeCount, n, sortedX, sortedY, sortedMass, sortedAx, sortedAy);
+
+		for (int k = 0; k < activeCount; k++) {
+			ax[active[k]] = sortedAx[k];
+			ay[active[k]] = sortedAy[k];
+		}
+	}
+
+	/**
+	 * Chooses the level of the next step of a body.
+	 * 
+	 * @param bodies the bodies of the integration
+	 * @param i      the index of the body
+	 * @param dt     the step of the whole integration
+	 * @param t      the current substep, the new step must end at a multiple of
+	 *               its length
+	 * @return the number of times that the step of the body is halved
+	 */
+	private int chooseLevel(BodyStore bodies, int i, double dt, int t) {
+		final double ax = bodies.getAccelerationX()[i], ay = bodies.getAccelerationY()[i];
+		final double a = Math.sqrt(ax * ax + ay * ay);
+
+		int l = 0;
+		if (a > 0.0) {
+			final double bodyDt = Math.sqrt(2.0 * accuracy * lengthScale / a);
+			while (l < maxLevel && dt / (1 << l) > bodyDt)
+				l++;
+		}
+
+		// a longer step must start at one of its own boundaries
+		final int substeps = 1 << maxLevel;
+		while ((t & (substeps >> l) - 1) != 0)
+			l++;
+
+		return l;
+	}
+
+	/**
+	 * Grows the buffers to hold at least <code>n</code> bodies.
+	 * 
+	 * @param n the required number of bodies
+	 */
+	private void ensureCapacity(int n) {
+		if (level.length >= n)
+			return;
+
+		level = Arrays.copyOf(level, n);
+		active = new int[n];
+		sortedX = new double[n];
+		sortedY = new double[n];
+		sortedMass = new double[n];
+		sortedAx = new double[n];
+		sortedAy = new double[n];
+	}
+
+	/**
+	 * @return the part of all bodies that one force calculation covered on
+	 *         average in the last step
+	 */
+	public double getActiveRatio() {
+		return activeRatio;
+	}
+
+	/**
+	 * @return the maximum number of times that the step of a body is halved
+	 */
+	public int getMaxLevel() {
+		return maxLevel;
+	}
+
+	/**
+	 * @param maxLevel the new maximum number of times that the step of a body is
+	 *                 halved, from 0 to 30
+	 */
+	public void setMaxLevel(int maxLevel) {
+		if (maxLevel < 0 || maxLevel > 30)
+			throw new IllegalArgumentException("Maximum level must be between 0 and 30.");
+
+		this.maxLevel = maxLevel;
+	}
+
+	/**
+	 * @return the accuracy parameter of the time step criterion
+	 */
+	public double getAccuracy() {
+		return accuracy;
+	}
+
+	/**
+	 * @param accuracy the new accuracy parameter of the time step criterion,
+	 *                 smaller values lead to smaller steps
+	 */
+	public void setAccuracy(double accuracy) {
+		if (!(accuracy > 0.0))
+			throw new IllegalArgumentException("Accuracy must be positive.");
+
+		this.accuracy = accuracy;
+	}
+
+	/**
+	 * @return the length scale of the time step criterion
+	 */
+	public double getLengthScale() {
+		return lengthScale;
+	}
+
+	/**
+	 * @param lengthScale the new length scale of the time step criterion, e.g.
+	 *                    the softening length of the gravity
+	 */
+	public void setLengthScale(double lengthScale) {
+		if (!(lengthScale > 0.0))
+			throw new IllegalArgumentException("Length scale must be positive.");
+
+		this.lengthScale = lengthScale;
+	}
+
+}
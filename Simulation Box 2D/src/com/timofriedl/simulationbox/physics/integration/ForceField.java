@@ -0,0 +1,39 @@
+package com.timofriedl.simulationbox.physics.integration;
+
+import com.timofriedl.simulationbox.physics.gravity.GravitySolver;
+
+/**
+ * Calculates the accelerations of bodies at given positions, for example by
+ * gravity.
+ * 
+ * @author Timo Friedl
+ */
+public interface ForceField {
+
+	/**
+	 * Calculates the accelerations of the first bodies caused by all bodies.
+	 * The remaining bodies only act on the others.
+	 * 
+	 * @param targets the number of bodies to calculate the acceleration for
+	 * @param n       the number of bodies
+	 * @param x       the x positions of the bodies
+	 * @param y       the y positions of the bodies
+	 * @param mass    the masses of the bodies
+	 * @param ax      the array to write the x accelerations to
+	 * @param ay      the array to write the y accelerations to
+	 */
+	public void computeAccelerations(int targets, int n, double[] x, double[] y, double[] mass, double[] ax,
+			double[] ay);
+
+	/**
+	 * Creates a force field for the gravity between the bodies.
+	 * 
+	 * @param solver the solver that calculates the gravity
+	 * @param g      the gravity constant
+	 * @return the gravity force field
+	 */
+	public static ForceField gravity(GravitySolver solver, double g) {
+		return (targets, n, x, y, mass, ax, ay) -> solver.computeAccelerations(g, targets, n, x, y, mass, ax, ay);
+	}
+
+}
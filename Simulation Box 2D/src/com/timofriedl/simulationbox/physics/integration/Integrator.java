@@ -0,0 +1,85 @@
+package com.timofriedl.simulationbox.physics.integration;
+
+import com.timofriedl.simulationbox.physics.BodyStore;
+
+/**
+ * Moves the bodies of a {@link BodyStore} forward in time under the forces of
+ * a {@link ForceField}.
+ * 
+ * Speeds are measured in units per tick, so a time step of 1 moves the bodies
+ * as far as {@link BodyStore#move()} does. Integrators reuse the accelerations
+ * of the last step as long as they belong to the current positions.
+ * 
+ * @author Timo Friedl
+ */
+public abstract class Integrator {
+
+	/**
+	 * the number of body accelerations calculated so far
+	 */
+	private long forceEvaluations;
+
+	/**
+	 * Moves all bodies forward by a given time step.
+	 * 
+	 * @param bodies the bodies to move
+	 * @param field  the forces that accelerate the bodies
+	 * @param dt     the time step in ticks
+	 */
+	public void step(BodyStore bodies, ForceField field, double dt) {
+		if (!(dt > 0.0) || Double.isInfinite(dt))
+			throw new IllegalArgumentException("Time step must be positive and finite.");
+
+		integrate(bodies, field, dt);
+	}
+
+	/**
+	 * Moves all bodies forward by a given valid time step.
+	 * 
+	 * @param bodies the bodies to move
+	 * @param field  the forces that accelerate the bodies
+	 * @param dt     the positive time step in ticks
+	 */
+	protected abstract void integrate(BodyStore bodies, ForceField field, double dt);
+
+	/**
+	 * Calculates the accelerations of all bodies unless they belong to the
+	 * current positions already.
+	 * 
+	 * @param bodies the bodies to calculate the accelerations for
+	 * @param field  the forces that accelerate the bodies
+	 */
+	protected void ensureAccelerations(BodyStore bodies, ForceField field) {
+		if (!bodies.areAccelerationsValid()) {
+			bodies.computeAccelerations(field);
+			forceEvaluations += bodies.size();
+		}
+	}
+
+	/**
+	 * Calculates accelerations with a force field and counts them.
+	 * 
+	 * @param field   the forces that accelerate the bodies
+	 * @param targets the number of bodies to calculate the acceleration for
+	 * @param n       the number of bodies
+	 * @param x       the x positions of the bodies
+	 * @param y       the y positions of the bodies
+	 * @param mass    the masses of the bodies
+	 * @param ax      the array to write the x accelerations to
+	 * @param ay      the array to write the y accelerations to
+	 */
+	protected void computeAccelerations(ForceField field, int targets, int n, double[] x, double[] y,
+			double[] mass, double[] ax, double[] ay) {
+		field.computeAccelerations(targets, n, x, y, mass, ax, ay);
+		forceEvaluations += targets;
+	}
+
+	/**
+	 * @return the number of body accelerations calculated so far, a measure for
+	 *         the cost of the integration
+	 */
+	public long getForceEvaluations() {
+		return forceEvaluations;
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.timofriedl.simulationbox.physics.integration;
+
+import com.timofriedl.simulationbox.physics.BodyStore;
+
+/**
+ * The kick-drift-kick leapfrog method: half a kick, a full drift, and another
+ * half kick with the new accelerations. Second order and symplectic, with one
+ * force calculation per step because the accelerations of the last step are
+ * reused.
+ * 
+ * @author Timo Friedl
+ */
+public class Leapfrog extends Integrator {
+
+	@Override
+	protected void integrate(BodyStore bodies, ForceField field, double dt) {
+		ensureAccelerations(bodies, field);
+		bodies.kick(0.5 * dt);
+		bodies.move(dt);
+		ensureAccelerations(bodies, field);
+		bodies.kick(0.5 * dt);
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.timofriedl.simulationbox.physics.integration;
+
+import com.timofriedl.simulationbox.physics.BodyStore;
+
+/**
+ * The classic fourth order Runge-Kutta method. Very accurate for short times
+ * and smooth forces, but not symplectic, so the energy of long orbits slowly
+ * drifts. Needs three to four force calculations per step.
+ * 
+ * @author Timo Friedl
+ */
+public class RungeKutta4 extends Integrator {
+
+	/**
+	 * the positions of the intermediate stages
+	 */
+	private double[] stageX = new double[0], stageY = new double[0];
+
+	/**
+	 * the speeds of the intermediate stages
+	 */
+	private double[] stageVx = new double[0], stageVy = new double[0];
+
+	/**
+	 * the accelerations of the intermediate stages
+	 */
+	private double[] stageAx = new double[0], stageAy = new double[0];
+
+	/**
+	 * the weighted sums of the stage speeds and accelerations
+	 */
+	private double[] sumVx = new double[0], sumVy = new double[0], sumAx = new double[0], sumAy = new double[0];
+
+	@Override
+	protected void integrate(BodyStore bodies, ForceField field, double dt) {
+		ensureAccelerations(bodies, field);
+
+		final int n = bodies.size();
+		ensureCapacity(n);
+
+		final double[] x = bodies.getX(), y = bodies.getY(), mass = bodies.getMass();
+		final double[] vx = bodies.getSpeedX(), vy = bodies.getSpeedY();
+		final double[] ax = bodies.getAccelerationX(), ay = bodies.getAccelerationY();
+
+		// first stage at the start of the step
+		for (int i = 0; i < n; i++) {
+			sumVx[i] = vx[i];
+			sumVy[i] = vy[i];
+			sumAx[i] = ax[i];
+			sumAy[i] = ay[i];
+			stageVx[i] = vx[i];
+			stageVy[i] = vy[i];
+			stageAx[i] = ax[i];
+			stageAy[i] = ay[i];
+		}
+
+		// second and third stage in the middle, fourth stage at the end
+		stage(field, n, x, y, vx, vy, mass, 0.5 * dt, 2.0);
+		stage(field, n, x, y, vx, vy, mass, 0.5 * dt, 2.0);
+		stage(field, n, x, y, vx, vy, mass, dt, 1.0);
+
+		final double[] rotation = bodies.getRotation(), rotationSpeed = bodies.getRotationSpeed();
+		final double sixthDt = dt / 6.0;
+
+		for (int i = 0; i < n; i++) {
+			x[i] += sumVx[i] * sixthDt;
+			y[i] += sumVy[i] * sixthDt;
+			vx[i] += sumAx[i] * sixthDt;
+			vy[i] += sumAy[i] * sixthDt;
+			rotation[i] += rotationSpeed[i] * dt;
+		}
+
+		bodies.invalidateAccelerations();
+	}
+
+	/**
+	 * Calculates the next stage from the speeds and accelerations of the last
+	 * one and adds it to the weighted sums.
+	 * 
+	 * @param field  the forces that accelerate the bodies
+	 * @param n      the number of bodies
+	 * @param x      the x positions at the start of the step
+	 * @param y      the y positions at the start of the step
+	 * @param vx     the x speeds at the start of the step
+	 * @param vy     the y speeds at the start of the step
+	 * @param mass   the masses of the bodies
+	 * @param h      the time from the start of the step to the stage
+	 * @param weight the weight of the stage in the sums
+	 */
+	private void stage(ForceField field, int n, double[] x, double[] y, double[] vx, double[] vy, double[] mass,
+			double h, double weight) {
+		for (int i = 0; i < n; i++) {
+			stageX[i] = x[i] + stageVx[i] * h;
+			stageY[i] = y[i] + stageVy[i] * h;
+			stageVx[i] = vx[i] + stageAx[i] * h;
+			stageVy[i] = vy[i] + stageAy[i] * h;
+		}
+
+		computeAccelerations(field, n, n, stageX, stageY, mass, stageAx, stageAy);
+
+		for (int i = 0; i < n; i++) {
+			sumVx[i] += stageVx[i] * weight;
+			sumVy[i] += stageVy[i] * weight;
+			sumAx[i] += stageAx[i] * weight;
+			sumAy[i] += stageAy[i] * weight;
+		}
+	}
+
+	/**
+	 * Grows the stage buffers to hold at least <code>n</code> bodies.
+	 * 
+	 * @param n the required number of bodies
+	 */
+	private void ensureCapacity(int n) {
+		if (stageX.length >= n)
+			return;
+
+		stageX = new double[n];
+		stageY = new double[n];
+		stageVx = new double[n];
+		stageVy = new double[n];
+		stageAx = new double[n];
+		stageAy = new double[n];
+		sumVx = new double[n];
+		sumVy = new double[n];
+		sumAx = new double[n];
+		sumAy = new double[n];
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.timofriedl.simulationbox.physics.integration;
+
+import com.timofriedl.simulationbox.physics.BodyStore;
+
+/**
+ * The semi-implicit (symplectic) Euler method: first the speeds are changed by
+ * the accelerations, then the bodies move with the new speeds. First order,
+ * but unlike the explicit Euler method it keeps orbits bounded.
+ * 
+ * @author Timo Friedl
+ */
+public class SemiImplicitEuler extends Integrator {
+
+	@Override
+	protected void integrate(BodyStore bodies, ForceField field, double dt) {
+		ensureAccelerations(bodies, field);
+		bodies.kick(dt);
+		bodies.move(dt);
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.timofriedl.simulationbox.physics.integration;
+
+import com.timofriedl.simulationbox.physics.BodyStore;
+
+/**
+ * The velocity Verlet method: the bodies move with their speeds and half of
+ * their accelerations, then the speeds change by the mean of the old and the
+ * new accelerations. Second order and symplectic, with one force calculation
+ * per step.
+ * 
+ * @author Timo Friedl
+ */
+public class VelocityVerlet extends Integrator {
+
+	/**
+	 * the accelerations at the start of the step
+	 */
+	private double[] oldAx = new double[0], oldAy = new double[0];
+
+	@Override
+	protected void integrate(BodyStore bodies, ForceField field, double dt) {
+		ensureAccelerations(bodies, field);
+
+		final int n = bodies.size();
+		if (oldAx.length < n) {
+			oldAx = new double[n];
+			oldAy = new double[n];
+		}
+
+		final double[] x = bodies.getX(), y = bodies.getY();
+		final double[] vx = bodies.getSpeedX(), vy = bodies.getSpeedY();
+		final double[] rotation = bodies.getRotation(), rotationSpeed = bodies.getRotationSpeed();
+		final double[] ax = bodies.getAccelerationX(), ay = bodies.getAccelerationY();
+		final double halfSquareDt = 0.5 * dt * dt;
+
+		for (int i = 0; i < n; i++) {
+			x[i] += vx[i] * dt + ax[i] * halfSquareDt;
+			y[i] += vy[i] * dt + ay[i] * halfSquareDt;
+			rotation[i] += rotationSpeed[i] * dt;
+		}
+
+		System.arraycopy(ax, 0, oldAx, 0, n);
+		System.arraycopy(ay, 0, oldAy, 0, n);
+		bodies.invalidateAccelerations();
+		ensureAccelerations(bodies, field);
+
+		final double halfDt = 0.5 * dt;
+		for (int i = 0; i < n; i++) {
+			vx[i] += (oldAx[i] + ax[i]) * halfDt;
+			vy[i] += (oldAy[i] + ay[i]) * halfDt;
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.timofriedl.simulationbox.physics.pair;
+
+/**
+ * A spring between all bodies that are closer than a cutoff distance. The
+ * spring pushes the bodies apart below its rest length and pulls them
+ * together above it, until it breaks at the cutoff.
+ * 
+ * @author Timo Friedl
+ */
+public class CutoffSpring implements PairForce {
+
+	/**
+	 * the force per unit of stretching
+	 */
+	private final double stiffness;
+
+	/**
+	 * the distance without force
+	 */
+	private final double restLength;
+
+	/**
+	 * the distance at which the spring breaks
+	 */
+	private final double cutoff;
+
+	/**
+	 * Creates a new spring force.
+	 * 
+	 * @param stiffness  the force per unit of stretching
+	 * @param restLength the distance without force
+	 * @param cutoff     the distance at which the spring breaks
+	 */
+	public CutoffSpring(double stiffness, double restLength, double cutoff) {
+		if (!(stiffness >= 0.0) || !(restLength >= 0.0) || !(cutoff > restLength))
+			throw new IllegalArgumentException(
+					"Stiffness and rest length must not be negative, cutoff must be greater than the rest length.");
+
+		this.stiffness = stiffness;
+		this.restLength = restLength;
+		this.cutoff = cutoff;
+	}
+
+	@Override
+	public double getCutoff() {
+		return cutoff;
+	}
+
+	@Override
+	public double forceOverDistance(double squareDistance) {
+		if (squareDistance == 0.0)
+			return 0.0;
+
+		final double distance = Math.sqrt(squareDistance);
+		return stiffness * (restLength - distance) / distance;
+	}
+
+	/**
+	 * @return the force per unit of stretching
+	 */
+	public double getStiffness() {
+		return stiffness;
+	}
+
+	/**
+	 * @return the distance without force
+	 */
+	public double getRestLength() {
+		return restLength;
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.timofriedl.simulationbox.physics.pair;
+
+/**
+ * The Lennard-Jones force between neutral atoms: strongly repulsive below the
+ * size σ, weakly attractive above it, with the deepest potential ε at a
+ * distance of 2^(1/6) σ.
+ * 
+ * @author Timo Friedl
+ */
+public class LennardJones implements PairForce {
+
+	/**
+	 * the default cutoff in multiples of σ
+	 */
+	public static final double DEFAULT_CUTOFF_FACTOR = 2.5;
+
+	/**
+	 * the depth of the potential well
+	 */
+	private final double epsilon;
+
+	/**
+	 * the distance at which the potential is zero
+	 */
+	private final double sigma;
+
+	/**
+	 * the distance beyond which the force is ignored
+	 */
+	private final double cutoff;
+
+	/**
+	 * Creates a new Lennard-Jones force with the default cutoff of 2.5 σ.
+	 * 
+	 * @param epsilon the depth of the potential well
+	 * @param sigma   the distance at which the potential is zero
+	 */
+	public LennardJones(double epsilon, double sigma) {
+		this(epsilon, sigma, DEFAULT_CUTOFF_FACTOR * sigma);
+	}
+
+	/**
+	 * Creates a new Lennard-Jones force.
+	 * 
+	 * @param epsilon the depth of the potential well
+	 * @param sigma   the distance at which the potential is zero
+	 * @param cutoff  the distance beyond which the force is ignored
+	 */
+	public LennardJones(double epsilon, double sigma, double cutoff) {
+		if (!(epsilon >= 0.0) || !(sigma > 0.0) || !(cutoff > 0.0))
+			throw new IllegalArgumentException("Epsilon must not be negative, sigma and cutoff must be positive.");
+
+		this.epsilon = epsilon;
+		this.sigma = sigma;
+		this.cutoff = cutoff;
+	}
+
+	@Override
+	public double getCutoff() {
+		return cutoff;
+	}
+
+	@Override
+	public double forceOverDistance(double squareDistance) {
+		final double s2 = sigma * sigma / squareDistance;
+		final double s6 = s2 * s2 * s2;
+		return 24.0 * epsilon * s6 * (2.0 * s6 - 1.0) / squareDistance;
+	}
+
+	/**
+	 * @return the depth of the potential well
+	 */
+	public double getEpsilon() {
+		return epsilon;
+	}
+
+	/**
+	 * @return the distance at which the potential is zero
+	 */
+	public double getSigma() {
+		return sigma;
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.timofriedl.simulationbox.physics.pair;
+
+/**
+ * A short range force law between two bodies that only depends on their
+ * distance and vanishes beyond a cutoff radius.
+ * 
+ * @author Timo Friedl
+ */
+public interface PairForce {
+
+	/**
+	 * @return the distance beyond which the force is zero
+	 */
+	public double getCutoff();
+
+	/**
+	 * Calculates the force between two bodies divided by their distance, so the
+	 * force on one body is this value times the vector from the other body to
+	 * it. Only called for distances below the cutoff.
+	 * 
+	 * @param squareDistance the square distance of the bodies
+	 * @return the force divided by the distance, positive for repulsion and
+	 *         negative for attraction
+	 */
+	public double forceOverDistance(double squareDistance);
+
+}
@@ -0,0 +1,184 @@
+package com.timofriedl.simulationbox.physics.pair;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.timofriedl.simulationbox.vector.Vector2D;
+import com.timofriedl.simulationbox.object.MassObject;
+import com.timofriedl.simulationbox.physics.integration.ForceField;
+
+/**
+ * Applies a short range {@link PairForce} between all bodies that are closer
+ * than its cutoff.
+ * 
+ * The pairs are taken from a {@link VerletList}, so a tick only checks the
+ * displacements of the bodies and walks the list, which costs linear time
+ * instead of testing all pairs. The list is only rebuilt when a body has
+ * moved more than half the skin.
+ * 
+ * Bodies whose mass is not positive and finite are static: they push and
+ * pull the others, but are not accelerated themselves.
+ * 
+ * @author Timo Friedl
+ */
+public class PairForceField implements ForceField {
+
+	/**
+	 * the default skin in multiples of the cutoff
+	 */
+	public static final double DEFAULT_SKIN_FACTOR = 0.3;
+
+	/**
+	 * the force between two bodies
+	 */
+	private final PairForce force;
+
+	/**
+	 * the pairs of bodies within the cutoff plus skin
+	 */
+	private final VerletList list;
+
+	/**
+	 * the reusable body buffers for {@link #apply(List)}
+	 */
+	private double[] x = new double[0], y = new double[0], mass = new double[0], ax = new double[0],
+			ay = new double[0];
+
+	/**
+	 * Creates a new pair force field with a skin of 0.3 times the cutoff.
+	 * 
+	 * @param force the force between two bodies
+	 */
+	public PairForceField(PairForce force) {
+		this(force, DEFAULT_SKIN_FACTOR * force.getCutoff());
+	}
+
+	/**
+	 * Creates a new pair force field.
+	 * 
+	 * @param force the force between two bodies
+	 * @param skin  the extra radius that the bodies may move before the
+	 *              neighbour list is rebuilt
+	 */
+	public PairForceField(PairForce force, double skin) {
+		if (force == null)
+			throw new IllegalArgumentException("Force must not be null.");
+
+		this.force = force;
+		list = new VerletList(force.getCutoff(), skin);
+	}
+
+	@Override
+	public void computeAccelerations(int targets, int n, double[] x, double[] y, double[] mass, double[] ax,
+			double[] ay) {
+		list.update(n, x, y);
+		Arrays.fill(ax, 0, targets, 0.0);
+		Arrays.fill(ay, 0, targets, 0.0);
+
+		final int[] start = list.getStart(), neighbours = list.getNeighbours();
+		final double cutoff = force.getCutoff();
+		final double squareCutoff = cutoff * cutoff;
+
+		for (int i = 0; i < n; i++) {
+			final boolean targetI = i < targets && isDynamic(mass[i]);
+
+			for (int k = start[i]; k < start[i + 1]; k++) {
+				final int j = neighbours[k];
+				final boolean targetJ = j < targets && isDynamic(mass[j]);
+				if (!targetI && !targetJ)
+					continue;
+
+				final double dx = x[i] - x[j], dy = y[i] - y[j];
+				final double squareDistance = dx * dx + dy * dy;
+				if (squareDistance >= squareCutoff)
+					continue;
+
+				// equal and opposite forces on both bodies
+				final double f = force.forceOverDistance(squareDistance);
+				final double fx = f * dx, fy = f * dy;
+				if (targetI) {
+					ax[i] += fx / mass[i];
+					ay[i] += fy / mass[i];
+				}
+				if (targetJ) {
+					ax[j] -= fx / mass[j];
+					ay[j] -= fy / mass[j];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calculates the pair forces between all given objects and adds the
+	 * resulting accelerations to their speeds.
+	 * 
+	 * Sleeping objects still act on the others, but are not accelerated
+	 * themselves. The neighbour list refers to the objects by their index, so
+	 * the list should keep its order between ticks to avoid rebuilds.
+	 * 
+	 * @param objects the objects that act on each other
+	 */
+	public void apply(List<? extends MassObject> objects) {
+		final int n = objects.size();
+		ensureCapacity(n);
+
+		for (int i = 0; i < n; i++) {
+			final MassObject o = objects.get(i);
+			x[i] = o.getPosition().getX();
+			y[i] = o.getPosition().getY();
+			mass[i] = o.getMass();
+		}
+
+		computeAccelerations(n, n, x, y, mass, ax, ay);
+
+		// speeds are only changed after all accelerations are known
+		for (int i = 0; i < n; i++) {
+			final MassObject o = objects.get(i);
+			if (o.isSleeping() || ax[i] == 0.0 && ay[i] == 0.0)
+				continue;
+
+			final Vector2D speed = o.getSpeed();
+			o.setSpeed(new Vector2D(speed.getX() + ax[i], speed.getY() + ay[i]));
+		}
+	}
+
+	/**
+	 * @param mass the mass of a body
+	 * @return true if the body can be accelerated
+	 */
+	private static boolean isDynamic(double mass) {
+		return mass > 0.0 && mass < Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Grows the body buffers to hold at least <code>n</code> bodies.
+	 * 
+	 * @param n the required number of bodies
+	 */
+	private void ensureCapacity(int n) {
+		if (x.length >= n)
+			return;
+
+		final int capacity = Math.max(n, x.length * 2);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		mass = Arrays.copyOf(mass, capacity);
+		ax = Arrays.copyOf(ax, capacity);
+		ay = Arrays.copyOf(ay, capacity);
+	}
+
+	/**
+	 * @return the force between two bodies
+	 */
+	public PairForce getForce() {
+		return force;
+	}
+
+	/**
+	 * @return the neighbour list of this field
+	 */
+	public VerletList getList() {
+		return list;
+	}
+
+}
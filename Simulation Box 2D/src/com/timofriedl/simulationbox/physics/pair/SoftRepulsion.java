@@ -0,0 +1,56 @@
+package com.timofriedl.simulationbox.physics.pair;
+
+/**
+ * A soft repulsion that grows linearly from zero at a given range to a
+ * maximum force at zero distance, e.g. for overlapping soft discs.
+ * 
+ * @author Timo Friedl
+ */
+public class SoftRepulsion implements PairForce {
+
+	/**
+	 * the force at zero distance
+	 */
+	private final double strength;
+
+	/**
+	 * the distance at which the force vanishes
+	 */
+	private final double range;
+
+	/**
+	 * Creates a new soft repulsion.
+	 * 
+	 * @param strength the force at zero distance
+	 * @param range    the distance at which the force vanishes
+	 */
+	public SoftRepulsion(double strength, double range) {
+		if (!(strength >= 0.0) || !(range > 0.0))
+			throw new IllegalArgumentException("Strength must not be negative and range must be positive.");
+
+		this.strength = strength;
+		this.range = range;
+	}
+
+	@Override
+	public double getCutoff() {
+		return range;
+	}
+
+	@Override
+	public double forceOverDistance(double squareDistance) {
+		if (squareDistance == 0.0)
+			return 0.0;
+
+		final double distance = Math.sqrt(squareDistance);
+		return strength * (1.0 - distance / range) / distance;
+	}
+
+	/**
+	 * @return the force at zero distance
+	 */
+	public double getStrength() {
+		return strength;
+	}
+
+}
@@ -0,0 +1,304 @@
+package com.timofriedl.simulationbox.physics.pair;
+
+import java.util.Arrays;
+
+/**
+ * A Verlet neighbour list that holds all pairs of bodies that are closer than
+ * a cutoff radius plus a skin.
+ * 
+ * The list stays valid as long as no body has moved more than half the skin
+ * since it was built, because then no pair outside the list can have come
+ * closer than the cutoff. So it is only rebuilt when a body has moved that
+ * far, and most ticks just check the displacements and walk the list. The
+ * list is built with a grid of cells of the list radius, so a rebuild costs
+ * linear time as well.
+ * 
+ * The list holds pairs of indices, not bodies, so it stays correct when the
+ * bodies change their order, as long as the body at each index stays within
+ * half the skin of the position at that index when the list was built.
+ * 
+ * @author Timo Friedl
+ */
+public class VerletList {
+
+	/**
+	 * the maximum number of grid cells per body
+	 */
+	private static final int MAX_CELLS_PER_BODY = 2;
+
+	/**
+	 * the radius of the force
+	 */
+	private double cutoff;
+
+	/**
+	 * the extra radius that the bodies may move before a rebuild
+	 */
+	private double skin;
+
+	/**
+	 * the number of bodies when the list was built, -1 before the first build
+	 */
+	private int size = -1;
+
+	/**
+	 * the positions of the bodies when the list was built
+	 */
+	private double[] builtX = new double[0], builtY = new double[0];
+
+	/**
+	 * the index of the first neighbour of each body in {@link #neighbours}, one
+	 * more entry marks the end of the last body
+	 */
+	private int[] start = new int[1];
+
+	/**
+	 * the neighbours with a greater index of all bodies, body by body
+	 */
+	private int[] neighbours = new int[0];
+
+	/**
+	 * the first body of each grid cell and the next body in the same cell of
+	 * each body, -1 for none
+	 */
+	private int[] cellHead = new int[0], next = new int[0];
+
+	/**
+	 * the number of times that the list was built
+	 */
+	private long builds;
+
+	/**
+	 * Creates a new empty Verlet list.
+	 * 
+	 * @param cutoff the radius of the force
+	 * @param skin   the extra radius that the bodies may move before a rebuild
+	 */
+	public VerletList(double cutoff, double skin) {
+		setCutoff(cutoff);
+		setSkin(skin);
+	}
+
+	/**
+	 * Rebuilds the list if the number of bodies has changed or a body has moved
+	 * more than half the skin since the last build.
+	 * 
+	 * @param n the number of bodies
+	 * @param x the x positions of the bodies
+	 * @param y the y positions of the bodies
+	 * @return true if the list was rebuilt
+	 */
+	public boolean update(int n, double[] x, double[] y) {
+		if (!needsRebuild(n, x, y))
+			return false;
+
+		build(n, x, y);
+		return true;
+	}
+
+	/**
+	 * Checks if the list is outdated.
+	 * 
+	 * @param n the number of bodies
+	 * @param x the x positions of the bodies
+	 * @param y the y positions of the bodies
+	 * @return true if the number of bodies has changed or a body has moved more
+	 *         than half the skin since the last build
+	 */
+	public boolean needsRebuild(int n, double[] x, double[] y) {
+		if (n != size)
+			return true;
+
+		final double maxDisplacement = 0.5 * skin;
+		final double maxSquareDisplacement = maxDisplacement * maxDisplacement;
+		for (int i = 0; i < n; i++) {
+			final double dx = x[i] - builtX[i], dy = y[i] - builtY[i];
+			if (!(dx * dx + dy * dy <= maxSquareDisplacement))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Builds the list for the current positions of the bodies.
+	 * 
+	 * @param n the number of bodies
+	 * @param x the x positions of the bodies
+	 * @param y the y positions of the bodies
+	 */
+	public void build(int n, double[] x, double[] y) {
+		ensureCapacity(n);
+		size = n;
+		builds++;
+		System.arraycopy(x, 0, builtX, 0, n);
+		System.arraycopy(y, 0, builtY, 0, n);
+
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+
+		// cells of at least the list radius, but not much more cells than bodies
+		final double radius = cutoff + skin;
+		final double extent = Math.max(maxX - minX, maxY - minY);
+		final double maxCellsPerSide = Math.max(1.0, Math.floor(Math.sqrt((double) MAX_CELLS_PER_BODY * n)));
+		final double cellSize = n == 0 ? radius : Math.max(radius, extent / maxCellsPerSide);
+		final int columns = n == 0 ? 1 : (int) Math.min(maxCellsPerSide, (maxX - minX) / cellSize + 1.0);
+		final int rows = n == 0 ? 1 : (int) Math.min(maxCellsPerSide, (maxY - minY) / cellSize + 1.0);
+
+		if (cellHead.length < columns * rows)
+			cellHead = new int[columns * rows];
+		Arrays.fill(cellHead, 0, columns * rows, -1);
+
+		for (int i = n - 1; i >= 0; i--) {
+			final int cell = cell(y[i], minY, cellSize, rows) * columns + cell(x[i], minX, cellSize, columns);
+			next[i] = cellHead[cell];
+			cellHead[cell] = i;
+		}
+
+		final double squareRadius = radius * radius;
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			start[i] = count;
+			final int column = cell(x[i], minX, cellSize, columns), row = cell(y[i], minY, cellSize, rows);
+
+			for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+				for (int c = Math.max(0, column - 1); c <= Math.min(columns - 1, column + 1); c++) {
+					for (int j = cellHead[r * columns + c]; j >= 0; j = next[j]) {
+						if (j <= i)
+							continue;
+
+						final double dx = x[j] - x[i], dy = y[j] - y[i];
+						if (dx * dx + dy * dy < squareRadius) {
+							if (count == neighbours.length)
+								neighbours = Arrays.copyOf(neighbours, Math.max(16, 2 * count));
+							neighbours[count++] = j;
+						}
+					}
+				}
+			}
+		}
+		start[n] = count;
+	}
+
+	/**
+	 * Finds the grid cell of a coordinate on one axis.
+	 * 
+	 * @param value    the coordinate
+	 * @param min      the smallest coordinate of all bodies
+	 * @param cellSize the side length of a cell
+	 * @param cells    the number of cells on the axis
+	 * @return the index of the cell
+	 */
+	private static int cell(double value, double min, double cellSize, int cells) {
+		return Math.min(cells - 1, Math.max(0, (int) ((value - min) / cellSize)));
+	}
+
+	/**
+	 * Grows the buffers to hold at least <code>n</code> bodies.
+	 * 
+	 * @param n the required number of bodies
+	 */
+	private void ensureCapacity(int n) {
+		if (builtX.length >= n)
+			return;
+
+		final int capacity = Math.max(n, builtX.length * 2);
+		builtX = new double[capacity];
+		builtY = new double[capacity];
+		next = new int[capacity];
+		start = new int[capacity + 1];
+	}
+
+	/**
+	 * Marks the list as outdated, so the next update rebuilds it.
+	 */
+	public void invalidate() {
+		size = -1;
+	}
+
+	/**
+	 * @return the number of bodies when the list was built, -1 if it is outdated
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the index of the first neighbour of each body in
+	 * {@link #getNeighbours()}. The neighbours of body <code>i</code> are at the
+	 * indices from <code>start[i]</code> to <code>start[i + 1]</code>.
+	 * 
+	 * @return the start indices, only valid up to {@link #size()}
+	 */
+	public int[] getStart() {
+		return start;
+	}
+
+	/**
+	 * Returns the neighbours of all bodies. Each pair is only stored once, at
+	 * the body with the smaller index.
+	 * 
+	 * @return the indices of the neighbours
+	 */
+	public int[] getNeighbours() {
+		return neighbours;
+	}
+
+	/**
+	 * @return the number of pairs in the list
+	 */
+	public int getPairCount() {
+		return size < 0 ? 0 : start[size];
+	}
+
+	/**
+	 * @return the number of times that the list was built
+	 */
+	public long getBuilds() {
+		return builds;
+	}
+
+	/**
+	 * @return the radius of the force
+	 */
+	public double getCutoff() {
+		return cutoff;
+	}
+
+	/**
+	 * @param cutoff the new radius of the force
+	 */
+	public void setCutoff(double cutoff) {
+		if (!(cutoff > 0.0) || Double.isInfinite(cutoff))
+			throw new IllegalArgumentException("Cutoff must be positive and finite.");
+
+		this.cutoff = cutoff;
+		invalidate();
+	}
+
+	/**
+	 * @return the extra radius that the bodies may move before a rebuild
+	 */
+	public double getSkin() {
+		return skin;
+	}
+
+	/**
+	 * @param skin the new extra radius that the bodies may move before a
+	 *             rebuild, larger values lead to rarer rebuilds but longer lists
+	 */
+	public void setSkin(double skin) {
+		if (!(skin >= 0.0) || Double.isInfinite(skin))
+			throw new IllegalArgumentException("Skin must not be negative and must be finite.");
+
+		this.skin = skin;
+		invalidate();
+	}
+
+}
@@ -0,0 +1,255 @@
+package com.timofriedl.simulationbox.vector;
+
+/**
+ * A mutable 2D <code>double</code> vector class.
+ * 
+ * All operations change this vector and return it, so calculations can be
+ * chained without creating new objects. Use it in code that runs for every
+ * object in every tick or frame, and {@link Vector2D} everywhere else.
+ * 
+ * @author Timo Friedl
+ */
+public class MutableVector2D {
+
+	/**
+	 * the two elements of this vector
+	 */
+	private double x, y;
+
+	/**
+	 * Creates a new zero vector.
+	 */
+	public MutableVector2D() {
+		this(0.0, 0.0);
+	}
+
+	/**
+	 * Creates a new mutable vector from two <code>double</code> values.
+	 * 
+	 * @param x the first element of this vector
+	 * @param y the second element of this vector
+	 */
+	public MutableVector2D(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Creates a new mutable copy of a {@link Vector2D}.
+	 * 
+	 * @param v the vector to copy
+	 */
+	public MutableVector2D(Vector2D v) {
+		this(v.getX(), v.getY());
+	}
+
+	/**
+	 * Sets both elements of this vector.
+	 * 
+	 * @param x the new first element
+	 * @param y the new second element
+	 * @return this vector
+	 */
+	public MutableVector2D set(double x, double y) {
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+
+	/**
+	 * Copies the elements of a {@link Vector2D}.
+	 * 
+	 * @param v the vector to copy
+	 * @return this vector
+	 */
+	public MutableVector2D set(Vector2D v) {
+		return set(v.getX(), v.getY());
+	}
+
+	/**
+	 * Copies the elements of another mutable vector.
+	 * 
+	 * @param v the vector to copy
+	 * @return this vector
+	 */
+	public MutableVector2D set(MutableVector2D v) {
+		return set(v.x, v.y);
+	}
+
+	/**
+	 * Adds two values to the elements of this vector.
+	 * 
+	 * @param x the value to add to the first element
+	 * @param y the value to add to the second element
+	 * @return this vector
+	 */
+	public MutableVector2D add(double x, double y) {
+		this.x += x;
+		this.y += y;
+		return this;
+	}
+
+	/**
+	 * Adds a {@link Vector2D} to this one.
+	 * 
+	 * @param addend the vector to add
+	 * @return this vector
+	 */
+	public MutableVector2D add(Vector2D addend) {
+		return add(addend.getX(), addend.getY());
+	}
+
+	/**
+	 * Adds another mutable vector to this one.
+	 * 
+	 * @param addend the vector to add
+	 * @return this vector
+	 */
+	public MutableVector2D add(MutableVector2D addend) {
+		return add(addend.x, addend.y);
+	}
+
+	/**
+	 * Subtracts two values from the elements of this vector.
+	 * 
+	 * @param x the value to subtract from the first element
+	 * @param y the value to subtract from the second element
+	 * @return this vector
+	 */
+	public MutableVector2D subtract(double x, double y) {
+		this.x -= x;
+		this.y -= y;
+		return this;
+	}
+
+	/**
+	 * Subtracts a {@link Vector2D} from this one.
+	 * 
+	 * @param subtrahend the vector to subtract
+	 * @return this vector
+	 */
+	public MutableVector2D subtract(Vector2D subtrahend) {
+		return subtract(subtrahend.getX(), subtrahend.getY());
+	}
+
+	/**
+	 * Subtracts another mutable vector from this one.
+	 * 
+	 * @param subtrahend the vector to subtract
+	 * @return this vector
+	 */
+	public MutableVector2D subtract(MutableVector2D subtrahend) {
+		return subtract(subtrahend.x, subtrahend.y);
+	}
+
+	/**
+	 * Scales this vector with a given scalar.
+	 * 
+	 * @param scalar the factor to scale this vector with
+	 * @return this vector
+	 */
+	public MutableVector2D scale(double scalar) {
+		x *= scalar;
+		y *= scalar;
+		return this;
+	}
+
+	/**
+	 * Scales this vector to a given length.
+	 * 
+	 * @param length the new length of this vector
+	 * @return this vector
+	 */
+	public MutableVector2D scaleTo(double length) {
+		if (x == 0.0 && y == 0.0)
+			if (length == 0.0)
+				return this;
+			else
+				throw new ArithmeticException("Tried to scale zero vector to a non-zero length.");
+
+		return scale(length / length());
+	}
+
+	/**
+	 * Rotates this vector by a given angle in radians.
+	 * 
+	 * @param angle the rotation angle in radians
+	 * @return this vector
+	 */
+	public MutableVector2D rotate(double angle) {
+		return rotate(Math.cos(angle), Math.sin(angle));
+	}
+
+	/**
+	 * Rotates this vector by an angle given as its cosine and sine. Use this
+	 * method to rotate many vectors by the same angle.
+	 * 
+	 * @param cos the cosine of the rotation angle
+	 * @param sin the sine of the rotation angle
+	 * @return this vector
+	 */
+	public MutableVector2D rotate(double cos, double sin) {
+		return set(x * cos - y * sin, x * sin + y * cos);
+	}
+
+	/**
+	 * Calculates the length of this vector.
+	 * 
+	 * @return the length of this vector
+	 */
+	public double length() {
+		return Math.sqrt(squareLength());
+	}
+
+	/**
+	 * Calculates the square of the length of this vector.
+	 * 
+	 * @return the square of the length of this vector
+	 */
+	public double squareLength() {
+		return x * x + y * y;
+	}
+
+	/**
+	 * Creates an immutable copy of this vector.
+	 * 
+	 * @return a new {@link Vector2D} with the elements of this vector
+	 */
+	public Vector2D toVector2D() {
+		return new Vector2D(x, y);
+	}
+
+	@Override
+	public String toString() {
+		return "(" + x + ",\t" + y + ")";
+	}
+
+	/**
+	 * @return the first element of this vector
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * @param x the new first element of this vector
+	 */
+	public void setX(double x) {
+		this.x = x;
+	}
+
+	/**
+	 * @return the second element of this vector
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * @param y the new second element of this vector
+	 */
+	public void setY(double y) {
+		this.y = y;
+	}
+
+}
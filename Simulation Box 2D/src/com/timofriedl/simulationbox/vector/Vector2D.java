@@ -3,6 +3,8 @@ package com.timofriedl.simulationbox.vector;
 /**
  * An immutable 2D <code>double</code> vector class.
  * 
+ * @see MutableVector2D
+ * 
  * @author Timo Friedl
  */
 public class Vector2D {
@@ -136,6 +138,50 @@ public class Vector2D {
 		return new Vector2D(x * Math.cos(angle) - y * Math.sin(angle), x * Math.sin(angle) + y * Math.cos(angle));
 	}
 
+	/**
+	 * Adds another vector to this one without creating a new instance.
+	 * 
+	 * @param addend the vector to add
+	 * @param dst    the vector to store the result in
+	 * @return <code>dst</code>
+	 */
+	public MutableVector2D addInto(Vector2D addend, MutableVector2D dst) {
+		return dst.set(x + addend.x, y + addend.y);
+	}
+
+	/**
+	 * Subtracts another vector from this one without creating a new instance.
+	 * 
+	 * @param subtrahend the vector to subtract
+	 * @param dst        the vector to store the result in
+	 * @return <code>dst</code>
+	 */
+	public MutableVector2D subtractInto(Vector2D subtrahend, MutableVector2D dst) {
+		return dst.set(x - subtrahend.x, y - subtrahend.y);
+	}
+
+	/**
+	 * Scales this vector with a given scalar without creating a new instance.
+	 * 
+	 * @param scalar the factor to scale this vector with
+	 * @param dst    the vector to store the result in
+	 * @return <code>dst</code>
+	 */
+	public MutableVector2D scaleInto(double scalar, MutableVector2D dst) {
+		return dst.set(scalar * x, scalar * y);
+	}
+
+	/**
+	 * Rotates this vector by a given angle without creating a new instance.
+	 * 
+	 * @param angle the rotation angle in radians
+	 * @param dst   the vector to store the result in
+	 * @return <code>dst</code>
+	 */
+	public MutableVector2D rotateInto(double angle, MutableVector2D dst) {
+		return dst.set(this).rotate(angle);
+	}
+
 	/**
 	 * Calculates the anti-clockwise angle to the vector (1,0).
 	 * 
@@ -0,0 +1,253 @@
+package com.timofriedl.simulationbox.world;
+
+import java.util.Arrays;
+
+import com.timofriedl.simulationbox.object.SimulationObject;
+
+/**
+ * A uniform grid of the bounding boxes of all objects of a {@link World} that
+ * finds the objects in a visible area.
+ * 
+ * The grid is rebuilt from scratch after each tick with a counting sort of the
+ * object centers, which costs linear time and reads the objects only once, so
+ * it stays cheap when all objects move. Objects that are bigger than a cell
+ * are kept in a separate list and tested one by one.
+ * 
+ * @author Timo Friedl
+ */
+class CullingGrid {
+
+	/**
+	 * the average number of objects per cell
+	 */
+	private static final int OBJECTS_PER_CELL = 4;
+
+	/**
+	 * the objects that the grid was built for
+	 */
+	private SimulationObject[] objects = new SimulationObject[0];
+
+	/**
+	 * the bounding box of each object, stored as min x, min y, max x and max y
+	 * next to each other
+	 */
+	private double[] bounds = new double[0];
+
+	/**
+	 * the index of the first entry of each cell, one more entry marks the end of
+	 * the last cell
+	 */
+	private int[] cellStart = new int[1];
+
+	/**
+	 * the object indices of all cells, cell by cell and sorted within each cell
+	 */
+	private int[] entries = new int[0];
+
+	/**
+	 * the indices of the objects that are bigger than a cell
+	 */
+	private int[] large = new int[0];
+
+	/**
+	 * the number of objects that are bigger than a cell
+	 */
+	private int largeCount;
+
+	/**
+	 * the indices of the objects of the last query
+	 */
+	private int[] found = new int[16];
+
+	/**
+	 * the position of the upper left corner of the grid
+	 */
+	private double minX, minY;
+
+	/**
+	 * the side length of a cell
+	 */
+	private double cellSize;
+
+	/**
+	 * the number of cells in each row and column
+	 */
+	private int columns, rows;
+
+	/**
+	 * the largest half size of the objects in the cells
+	 */
+	private double maxHalfSize;
+
+	/**
+	 * Rebuilds the grid for the render bounds of some objects, so each box covers
+	 * every interpolated pose that can be rendered until the next tick, see
+	 * {@link SimulationObject#getRenderBounds(double[], int)}.
+	 * 
+	 * @param objects the objects to sort into the grid
+	 */
+	void build(SimulationObject[] objects) {
+		final int n = objects.length;
+		this.objects = objects;
+		if (bounds.length < 4 * n) {
+			bounds = new double[4 * n];
+			entries = new int[n];
+			large = new int[n];
+		}
+
+		double minCenterX = Double.POSITIVE_INFINITY, minCenterY = Double.POSITIVE_INFINITY;
+		double maxCenterX = Double.NEGATIVE_INFINITY, maxCenterY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			objects[i].getRenderBounds(bounds, 4 * i);
+			final double x = 0.5 * (bounds[4 * i] + bounds[4 * i + 2]), y = 0.5 * (bounds[4 * i + 1] + bounds[4 * i + 3]);
+
+			minCenterX = Math.min(minCenterX, x);
+			minCenterY = Math.min(minCenterY, y);
+			maxCenterX = Math.max(maxCenterX, x);
+			maxCenterY = Math.max(maxCenterY, y);
+		}
+
+		// square cells with a few objects each on average
+		final double width = maxCenterX - minCenterX, height = maxCenterY - minCenterY;
+		final double cells = Math.max(1.0, (double) n / OBJECTS_PER_CELL);
+		cellSize = Math.max(Math.sqrt(width * height / cells), Math.max(width, height) / cells);
+		if (!(cellSize > 0.0) || Double.isInfinite(cellSize))
+			cellSize = 1.0;
+		minX = n == 0 || Double.isInfinite(minCenterX) ? 0.0 : minCenterX;
+		minY = n == 0 || Double.isInfinite(minCenterY) ? 0.0 : minCenterY;
+		columns = (int) Math.min(cells, width / cellSize + 1.0);
+		rows = (int) Math.min(cells, height / cellSize + 1.0);
+		if (!(columns >= 1) || !(rows >= 1))
+			columns = rows = 1;
+
+		if (cellStart.length < columns * rows + 1)
+			cellStart = new int[columns * rows + 1];
+		Arrays.fill(cellStart, 0, columns * rows + 1, 0);
+
+		// count the objects of each cell, objects bigger than a cell are tested alone
+		largeCount = 0;
+		maxHalfSize = 0.0;
+		for (int i = 0; i < n; i++) {
+			final double halfSize = 0.5 * Math.max(bounds[4 * i + 2] - bounds[4 * i], bounds[4 * i + 3] - bounds[4 * i + 1]);
+			if (!(halfSize <= cellSize)) {
+				large[largeCount++] = i;
+				continue;
+			}
+
+			maxHalfSize = Math.max(maxHalfSize, halfSize);
+			cellStart[cell(i) + 1]++;
+		}
+
+		for (int c = 0; c < columns * rows; c++)
+			cellStart[c + 1] += cellStart[c];
+
+		// the objects of a cell stay in their order, so the cells need no sorting
+		for (int i = 0, l = 0; i < n; i++) {
+			if (l < largeCount && large[l] == i) {
+				l++;
+				continue;
+			}
+
+			entries[cellStart[cell(i)]++] = i;
+		}
+
+		for (int c = columns * rows; c > 0; c--)
+			cellStart[c] = cellStart[c - 1];
+		cellStart[0] = 0;
+	}
+
+	/**
+	 * Finds the cell of the center of an object.
+	 * 
+	 * @param i the index of the object
+	 * @return the index of its cell
+	 */
+	private int cell(int i) {
+		final double x = 0.5 * (bounds[4 * i] + bounds[4 * i + 2]), y = 0.5 * (bounds[4 * i + 1] + bounds[4 * i + 3]);
+		final int column = Math.min(columns - 1, Math.max(0, (int) ((x - minX) / cellSize)));
+		final int row = Math.min(rows - 1, Math.max(0, (int) ((y - minY) / cellSize)));
+		return row * columns + column;
+	}
+
+	/**
+	 * Finds all objects whose bounding box overlaps a given area.
+	 * 
+	 * @param minX the left border of the area
+	 * @param minY the upper border of the area
+	 * @param maxX the right border of the area
+	 * @param maxY the lower border of the area
+	 * @return the number of found objects, see {@link #getFound()}
+	 */
+	int query(double minX, double minY, double maxX, double maxY) {
+		int count = 0;
+
+		// the center of an overlapping object is at most its half size outside of the area
+		final int fromColumn = Math.max(0, (int) Math.floor((minX - maxHalfSize - this.minX) / cellSize));
+		final int toColumn = Math.min(columns - 1, (int) Math.floor((maxX + maxHalfSize - this.minX) / cellSize));
+		final int fromRow = Math.max(0, (int) Math.floor((minY - maxHalfSize - this.minY) / cellSize));
+		final int toRow = Math.min(rows - 1, (int) Math.floor((maxY + maxHalfSize - this.minY) / cellSize));
+
+		for (int row = fromRow; row <= toRow; row++) {
+			for (int column = fromColumn; column <= toColumn; column++) {
+				final int c = row * columns + column;
+				for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+					final int i = entries[k];
+					if (overlaps(i, minX, minY, maxX, maxY))
+						count = add(count, i);
+				}
+			}
+		}
+
+		for (int l = 0; l < largeCount; l++) {
+			if (overlaps(large[l], minX, minY, maxX, maxY))
+				count = add(count, large[l]);
+		}
+
+		// the cells are not in object order, but later objects must be drawn on top
+		Arrays.sort(found, 0, count);
+		return count;
+	}
+
+	/**
+	 * Adds an object to the found objects.
+	 * 
+	 * @param count the number of found objects
+	 * @param i     the index of the object
+	 * @return the new number of found objects
+	 */
+	private int add(int count, int i) {
+		if (count == found.length)
+			found = Arrays.copyOf(found, 2 * count);
+
+		found[count] = i;
+		return count + 1;
+	}
+
+	/**
+	 * @param i    the index of an object
+	 * @param minX the left border of an area
+	 * @param minY the upper border of an area
+	 * @param maxX the right border of an area
+	 * @param maxY the lower border of an area
+	 * @return true if the bounding box of the object overlaps the area
+	 */
+	private boolean overlaps(int i, double minX, double minY, double maxX, double maxY) {
+		return bounds[4 * i] <= maxX && minX <= bounds[4 * i + 2] && bounds[4 * i + 1] <= maxY
+				&& minY <= bounds[4 * i + 3];
+	}
+
+	/**
+	 * @return the indices of the objects of the last query in ascending order
+	 */
+	int[] getFound() {
+		return found;
+	}
+
+	/**
+	 * @return the objects that the grid was built for
+	 */
+	SimulationObject[] getObjects() {
+		return objects;
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.timofriedl.simulationbox.world;
+
+/**
+ * The phases of one {@link World} tick, in the order in which they run.
+ * 
+ * @author Timo Friedl
+ */
+public enum TickPhase {
+
+	/**
+	 * Applies forces like gravity to the speeds of the objects.
+	 */
+	FORCES,
+
+	/**
+	 * Moves the objects according to their speeds. Every world ticks its
+	 * objects in this phase with {@link World#TICK_OBJECTS} by default.
+	 */
+	INTEGRATE,
+
+	/**
+	 * Finds and resolves collisions. The changed speeds are used by the next
+	 * integration.
+	 */
+	COLLIDE,
+
+	/**
+	 * Runs everything that needs the final state of the tick, e.g. sleeping or
+	 * statistics.
+	 */
+	POST_TICK
+
+}
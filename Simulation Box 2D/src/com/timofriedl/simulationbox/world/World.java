@@ -0,0 +1,363 @@
+package com.timofriedl.simulationbox.world;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import com.timofriedl.simulationbox.camera.Camera;
+import com.timofriedl.simulationbox.gameloop.Renderable;
+import com.timofriedl.simulationbox.gameloop.Tickable;
+import com.timofriedl.simulationbox.object.SimulationObject;
+import com.timofriedl.simulationbox.parallel.RangeTask;
+
+/**
+ * Holds all {@link SimulationObject}s of a simulation and ticks them in
+ * ordered phases.
+ * 
+ * Objects can be added and removed at any time and from any thread. The
+ * changes are collected and applied together at the beginning of the next
+ * tick, so the tasks of a tick always see the same objects and the order of
+ * the remaining objects never changes. Each tick runs the {@link WorldTask}s
+ * of all {@link TickPhase}s in phase order, and the tasks of one phase in the
+ * order they were added. Tasks can use {@link #forEach(Class, Consumer)} to
+ * process the objects in parallel on a {@link ForkJoinPool}.
+ * 
+ * Rendering draws an immutable snapshot of the objects, so it can run on
+ * another thread while the world ticks. With culling, the objects are sorted
+ * into a grid by their bounding boxes after each tick, and
+ * {@link #render(Graphics2D, Camera)} only renders the objects that overlap
+ * the view of the camera. So the render cost depends on the visible objects,
+ * not on the size of the world. Objects must not draw outside of their size to
+ * be culled correctly.
+ * 
+ * @author Timo Friedl
+ */
+public class World implements Tickable, Renderable {
+
+	/**
+	 * the minimum number of objects that one parallel task processes
+	 */
+	public static final int MIN_OBJECTS_PER_TASK = 256;
+
+	/**
+	 * the task that ticks all objects, which every new world runs in the
+	 * {@link TickPhase#INTEGRATE} phase. Remove it if another task moves the
+	 * objects, e.g. an integrator that works on the bodies directly.
+	 */
+	public static final WorldTask TICK_OBJECTS = world -> world.forEach(SimulationObject.class,
+			SimulationObject::tick);
+
+	/**
+	 * the objects of the current tick
+	 */
+	private final ArrayList<SimulationObject> objects = new ArrayList<>();
+
+	/**
+	 * the objects to add and remove before the next tick
+	 */
+	private final ArrayList<SimulationObject> added = new ArrayList<>(), removed = new ArrayList<>();
+
+	/**
+	 * the objects to render
+	 */
+	private volatile SimulationObject[] snapshot = new SimulationObject[0];
+
+	/**
+	 * the cached lists of the objects of each requested type
+	 */
+	private final Map<Class<?>, List<?>> views = new HashMap<>();
+
+	/**
+	 * the tasks of each phase
+	 */
+	private final EnumMap<TickPhase, List<WorldTask>> tasks = new EnumMap<>(TickPhase.class);
+
+	/**
+	 * the pool for parallel tasks, null for sequential tasks
+	 */
+	private ForkJoinPool pool;
+
+	/**
+	 * true if only the visible objects are rendered
+	 */
+	private volatile boolean culling = true;
+
+	/**
+	 * the grid of the last tick that is used for rendering, null without
+	 * culling, and the grid that is built in the next tick
+	 */
+	private CullingGrid grid, nextGrid;
+
+	/**
+	 * the lock for swapping the grids
+	 */
+	private final Object gridLock = new Object();
+
+	/**
+	 * the reusable ingame bounds of the view, only used while rendering
+	 */
+	private final Rectangle2D.Double view = new Rectangle2D.Double();
+
+	/**
+	 * Creates a new empty world that ticks its objects with
+	 * {@link #TICK_OBJECTS}.
+	 */
+	public World() {
+		for (TickPhase phase : TickPhase.values())
+			tasks.put(phase, new ArrayList<>());
+
+		tasks.get(TickPhase.INTEGRATE).add(TICK_OBJECTS);
+	}
+
+	/**
+	 * Applies the pending changes, runs all tasks in phase order and rebuilds
+	 * the culling grid.
+	 */
+	@Override
+	public void tick() {
+		update();
+
+		for (List<WorldTask> phaseTasks : tasks.values())
+			for (WorldTask task : phaseTasks)
+				task.run(this);
+
+		if (culling)
+			updateGrid();
+	}
+
+	/**
+	 * Builds the culling grid for the current objects and makes it the grid for
+	 * rendering. The previous grid is reused in the next tick, it is not used
+	 * by the renderer anymore once it has been swapped out.
+	 */
+	private void updateGrid() {
+		final CullingGrid built = nextGrid == null ? new CullingGrid() : nextGrid;
+		built.build(snapshot);
+
+		synchronized (gridLock) {
+			nextGrid = grid;
+			grid = built;
+		}
+	}
+
+	/**
+	 * Renders all objects.
+	 */
+	@Override
+	public void render(Graphics2D g) {
+		for (SimulationObject o : snapshot)
+			o.render(g);
+	}
+
+	/**
+	 * Renders the objects that are visible by a camera, in the order they were
+	 * added. Renders all objects if culling is disabled, there is no camera, or
+	 * the world has not been ticked yet.
+	 * 
+	 * @param g      the {@link Graphics2D} to draw on
+	 * @param camera the camera that shows the world, or null
+	 */
+	public void render(Graphics2D g, Camera camera) {
+		if (camera == null || !culling) {
+			render(g);
+			return;
+		}
+
+		camera.getViewBounds(view);
+		final SimulationObject[] objects;
+		final int[] found;
+		final int count;
+		synchronized (gridLock) {
+			if (grid == null) {
+				render(g);
+				return;
+			}
+
+			count = grid.query(view.getMinX(), view.getMinY(), view.getMaxX(), view.getMaxY());
+			objects = grid.getObjects();
+			found = grid.getFound();
+		}
+
+		// only the renderer writes the found indices, so a rebuild of the grid cannot change them
+		for (int i = 0; i < count; i++)
+			objects[found[i]].render(g);
+	}
+
+	/**
+	 * Adds an object before the next tick.
+	 * 
+	 * @param o the object to add
+	 */
+	public void add(SimulationObject o) {
+		if (o == null)
+			throw new IllegalArgumentException("Object must not be null.");
+
+		synchronized (added) {
+			added.add(o);
+		}
+	}
+
+	/**
+	 * Removes an object before the next tick. Does nothing if the object is not
+	 * in this world. Removals are applied after the additions of the same tick.
+	 * 
+	 * @param o the object to remove
+	 */
+	public void remove(SimulationObject o) {
+		synchronized (added) {
+			removed.add(o);
+		}
+	}
+
+	/**
+	 * Applies all pending additions and removals. Called at the beginning of
+	 * every tick, so there is usually no need to call it directly.
+	 */
+	public void update() {
+		synchronized (added) {
+			if (added.isEmpty() && removed.isEmpty())
+				return;
+
+			objects.addAll(added);
+			added.clear();
+
+			// all removals in one pass, so removing many objects stays linear
+			if (!removed.isEmpty()) {
+				final Set<SimulationObject> removedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+				removedSet.addAll(removed);
+				objects.removeIf(removedSet::contains);
+				removed.clear();
+			}
+		}
+
+		views.clear();
+		snapshot = objects.toArray(new SimulationObject[objects.size()]);
+	}
+
+	/**
+	 * Runs an action for all objects of a given type. The objects are split
+	 * into ranges that run in parallel if there is a pool, so the action must be
+	 * safe to run for different objects at the same time.
+	 * 
+	 * @param <T>    the type of objects to process
+	 * @param type   the class of the objects to process
+	 * @param action the action to run for each object
+	 */
+	public <T> void forEach(Class<T> type, Consumer<? super T> action) {
+		final List<T> list = getObjects(type);
+
+		RangeTask.run(pool, 0, list.size(), MIN_OBJECTS_PER_TASK, (from, to) -> {
+			for (int i = from; i < to; i++)
+				action.accept(list.get(i));
+		});
+	}
+
+	/**
+	 * Adds a task that runs on every tick after the tasks of earlier phases and
+	 * after the tasks that were added to the same phase before.
+	 * 
+	 * @param phase the phase to run the task in
+	 * @param task  the task to add
+	 */
+	public void addTask(TickPhase phase, WorldTask task) {
+		if (phase == null || task == null)
+			throw new IllegalArgumentException("Phase and task must not be null.");
+
+		tasks.get(phase).add(task);
+	}
+
+	/**
+	 * Removes a task from a phase.
+	 * 
+	 * @param phase the phase of the task
+	 * @param task  the task to remove
+	 */
+	public void removeTask(TickPhase phase, WorldTask task) {
+		tasks.get(phase).remove(task);
+	}
+
+	/**
+	 * @return all objects of the current tick in the order they were added
+	 */
+	public List<SimulationObject> getObjects() {
+		return getObjects(SimulationObject.class);
+	}
+
+	/**
+	 * Returns the objects of a given type, in the order they were added. The
+	 * list is built once per change of the world and must only be used on the
+	 * thread that ticks the world.
+	 * 
+	 * @param <T>  the type of objects to return
+	 * @param type the class of the objects to return
+	 * @return an unmodifiable list of the objects of the current tick that are
+	 *         instances of <code>type</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> getObjects(Class<T> type) {
+		List<?> view = views.get(type);
+
+		if (view == null) {
+			final ArrayList<T> list = new ArrayList<>();
+			for (SimulationObject o : objects)
+				if (type.isInstance(o))
+					list.add(type.cast(o));
+
+			view = Collections.unmodifiableList(list);
+			views.put(type, view);
+		}
+
+		return (List<T>) view;
+	}
+
+	/**
+	 * @return the number of objects of the current tick
+	 */
+	public int size() {
+		return objects.size();
+	}
+
+	/**
+	 * @return true if only the visible objects are rendered
+	 */
+	public boolean isCulling() {
+		return culling;
+	}
+
+	/**
+	 * @param culling true to only render the visible objects, false to render
+	 *                all objects and skip building the culling grid
+	 */
+	public void setCulling(boolean culling) {
+		this.culling = culling;
+
+		if (!culling)
+			synchronized (gridLock) {
+				grid = nextGrid = null;
+			}
+	}
+
+	/**
+	 * @return the pool for parallel tasks, null if sequential
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool the new pool for parallel tasks, null for sequential tasks
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.timofriedl.simulationbox.world;
+
+/**
+ * A piece of work that a {@link World} runs in one of its {@link TickPhase}s
+ * on every tick.
+ * 
+ * @author Timo Friedl
+ */
+public interface WorldTask {
+
+	/**
+	 * Runs this task for one tick.
+	 * 
+	 * @param world the world that is ticking
+	 */
+	public void run(World world);
+
+}